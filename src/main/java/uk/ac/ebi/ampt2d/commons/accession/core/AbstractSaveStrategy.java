@@ -0,0 +1,92 @@
+/*
+ *
+ * Copyright 2018 EMBL - European Bioinformatics Institute
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package uk.ac.ebi.ampt2d.commons.accession.core;
+
+import uk.ac.ebi.ampt2d.commons.accession.generators.ModelHashAccession;
+import uk.ac.ebi.ampt2d.commons.accession.metrics.AccessioningMetrics;
+import uk.ac.ebi.ampt2d.commons.accession.metrics.NoOpAccessioningMetrics;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Base class of the {@link SaveStrategy} implementations that keeps count of the saved objects, conflicts and
+ * retries.
+ *
+ * @param <MODEL>
+ * @param <HASH>
+ * @param <ACCESSION>
+ */
+public abstract class AbstractSaveStrategy<MODEL, HASH, ACCESSION> implements SaveStrategy<MODEL, HASH, ACCESSION> {
+
+    private final AtomicLong objects;
+
+    private final AtomicLong conflicts;
+
+    private final AtomicLong retries;
+
+    private AccessioningMetrics metrics;
+
+    public AbstractSaveStrategy() {
+        this.objects = new AtomicLong();
+        this.conflicts = new AtomicLong();
+        this.retries = new AtomicLong();
+        this.metrics = NoOpAccessioningMetrics.INSTANCE;
+    }
+
+    @Override
+    public SaveResponse<ACCESSION, MODEL> doSaveAccessions(
+            List<ModelHashAccession<MODEL, HASH, ACCESSION>> modelHashAccessions) {
+        SaveResponse<ACCESSION, MODEL> response = save(modelHashAccessions);
+        objects.addAndGet(modelHashAccessions.size());
+        conflicts.addAndGet(response.getUnsavedAccessions().size());
+        return response;
+    }
+
+    protected abstract SaveResponse<ACCESSION, MODEL> save(
+            List<ModelHashAccession<MODEL, HASH, ACCESSION>> modelHashAccessions);
+
+    /**
+     * Records a failed save operation that is going to be retried.
+     */
+    protected void recordRetry() {
+        retries.incrementAndGet();
+        metrics.increment(AccessioningMetrics.SAVE_FAILURES, 1);
+    }
+
+    @Override
+    public double getConflictRate() {
+        long savedObjects = objects.get();
+        return savedObjects == 0 ? 0 : (double) conflicts.get() / savedObjects;
+    }
+
+    @Override
+    public long getRetries() {
+        return retries.get();
+    }
+
+    @Override
+    public void setMetrics(AccessioningMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    protected AccessioningMetrics getMetrics() {
+        return metrics;
+    }
+
+}
@@ -23,10 +23,30 @@ import org.springframework.data.repository.NoRepositoryBean;
 import java.io.Serializable;
 import java.util.Collection;
 
+/**
+ * Base Spring Data repository of the accessioned entities. The entities must have a "hashedMessage" property and, to
+ * use the projection query, an "accession" property.
+ *
+ * @param <ENTITY>
+ * @param <HASH>
+ * @param <ACCESSION>
+ */
 @NoRepositoryBean
 public interface AccessioningRepository<ENTITY, HASH, ACCESSION extends Serializable>
         extends CrudRepository<ENTITY, ACCESSION> {
 
     Collection<ENTITY> findByHashedMessageIn(Collection<HASH> hashes);
 
+    /**
+     * Finds the entities with the given hashes, returning them as a projection. A closed projection like
+     * {@link HashedMessageAccession} only selects the columns of its properties, so the rest of the entity is neither
+     * read from the database nor hydrated.
+     *
+     * @param hashes
+     * @param type   Projection interface
+     * @param <T>
+     * @return
+     */
+    <T> Collection<T> findByHashedMessageIn(Collection<HASH> hashes, Class<T> type);
+
 }
@@ -0,0 +1,106 @@
+/*
+ *
+ * Copyright 2018 EMBL - European Bioinformatics Institute
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package uk.ac.ebi.ampt2d.commons.accession.core;
+
+import org.springframework.dao.DataIntegrityViolationException;
+import uk.ac.ebi.ampt2d.commons.accession.generators.ModelHashAccession;
+import uk.ac.ebi.ampt2d.commons.accession.persistence.DatabaseService;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Save strategy that switches from the binary partition of {@link BasicAccessioningServiceSaveDelegate} to saving
+ * one object at a time when the recent conflict rate passes a threshold. Each conflict costs about 2*log2(n) failed
+ * saves of a batch of n objects in the binary partition, so with many conflicts saving the objects one by one needs
+ * fewer transactions.
+ * <p>
+ * The recent conflict rate is an exponentially weighted moving average of the conflict rate of each batch, so the
+ * strategy switches back to the binary partition when the conflicts become less frequent.
+ *
+ * @param <MODEL>
+ * @param <HASH>
+ * @param <ACCESSION>
+ */
+public class AdaptiveSaveStrategy<MODEL, HASH, ACCESSION>
+        extends BasicAccessioningServiceSaveDelegate<MODEL, HASH, ACCESSION> {
+
+    /**
+     * Weight of the conflict rate of the last batch in the recent conflict rate
+     */
+    public static final double DEFAULT_SMOOTHING_FACTOR = 0.2;
+
+    private final double conflictRateThreshold;
+
+    private final double smoothingFactor;
+
+    private volatile double recentConflictRate;
+
+    public AdaptiveSaveStrategy(DatabaseService<MODEL, HASH, ACCESSION> dbService, double conflictRateThreshold) {
+        this(dbService, conflictRateThreshold, DEFAULT_SMOOTHING_FACTOR);
+    }
+
+    public AdaptiveSaveStrategy(DatabaseService<MODEL, HASH, ACCESSION> dbService, double conflictRateThreshold,
+                                double smoothingFactor) {
+        super(dbService);
+        this.conflictRateThreshold = conflictRateThreshold;
+        this.smoothingFactor = smoothingFactor;
+    }
+
+    @Override
+    protected SaveResponse<ACCESSION, MODEL> saveInPartitions(
+            List<ModelHashAccession<MODEL, HASH, ACCESSION>> modelHashAccessions) {
+        SaveResponse<ACCESSION, MODEL> response;
+        if (isSavingOneByOne()) {
+            response = saveOneByOne(modelHashAccessions);
+        } else {
+            response = super.saveInPartitions(modelHashAccessions);
+        }
+        if (!modelHashAccessions.isEmpty()) {
+            double batchConflictRate = (double) response.getUnsavedAccessions().size() / modelHashAccessions.size();
+            recentConflictRate = smoothingFactor * batchConflictRate + (1 - smoothingFactor) * recentConflictRate;
+        }
+        return response;
+    }
+
+    private SaveResponse<ACCESSION, MODEL> saveOneByOne(
+            List<ModelHashAccession<MODEL, HASH, ACCESSION>> modelHashAccessions) {
+        Map<ACCESSION, MODEL> savedAccessions = new HashMap<>();
+        Map<ACCESSION, MODEL> unsavedAccessions = new HashMap<>();
+        for (ModelHashAccession<MODEL, HASH, ACCESSION> object : modelHashAccessions) {
+            try {
+                getDbService().save(Collections.singletonList(object));
+                savedAccessions.put(object.accession(), object.model());
+            } catch (DataIntegrityViolationException e) {
+                unsavedAccessions.put(object.accession(), object.model());
+            }
+        }
+        return new SaveResponse<>(savedAccessions, unsavedAccessions);
+    }
+
+    public boolean isSavingOneByOne() {
+        return recentConflictRate > conflictRateThreshold;
+    }
+
+    public double getRecentConflictRate() {
+        return recentConflictRate;
+    }
+
+}
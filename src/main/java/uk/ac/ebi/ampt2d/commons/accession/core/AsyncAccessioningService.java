@@ -0,0 +1,81 @@
+/*
+ *
+ * Copyright 2018 EMBL - European Bioinformatics Institute
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package uk.ac.ebi.ampt2d.commons.accession.core;
+
+import uk.ac.ebi.ampt2d.commons.accession.generators.exceptions.AccessionCouldNotBeGeneratedException;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+
+/**
+ * Asynchronous counterpart of {@link BasicAccessioningService}, that does not block the calling thread. The summary
+ * and hash of the messages are computed in the hashing executor, and the database queries, the generation of
+ * accessions and the save operation are executed in the database executor, which should be sized according to the
+ * database connection pool, as its threads can block waiting for the database or for new blocks of accessions.
+ * <p>
+ * If an accession could not be generated, the returned future completes exceptionally with a
+ * {@link CompletionException} caused by an {@link AccessionCouldNotBeGeneratedException}.
+ *
+ * @param <MODEL>
+ * @param <HASH>
+ * @param <ACCESSION>
+ */
+public class AsyncAccessioningService<MODEL, HASH, ACCESSION> {
+
+    private final BasicAccessioningService<MODEL, HASH, ACCESSION> accessioningService;
+
+    private final Executor hashingExecutor;
+
+    private final Executor databaseExecutor;
+
+    public AsyncAccessioningService(BasicAccessioningService<MODEL, HASH, ACCESSION> accessioningService,
+                                    Executor hashingExecutor,
+                                    Executor databaseExecutor) {
+        this.accessioningService = accessioningService;
+        this.hashingExecutor = hashingExecutor;
+        this.databaseExecutor = databaseExecutor;
+    }
+
+    public CompletableFuture<Map<ACCESSION, MODEL>> getOrCreateAccessions(List<? extends MODEL> messages) {
+        return CompletableFuture
+                .supplyAsync(() -> accessioningService.mapHashOfMessages(messages), hashingExecutor)
+                .thenApplyAsync(hashToMessages -> {
+                    try {
+                        return accessioningService.getOrCreateAccessions(hashToMessages);
+                    } catch (AccessionCouldNotBeGeneratedException e) {
+                        throw new CompletionException(e);
+                    }
+                }, databaseExecutor);
+    }
+
+    public CompletableFuture<Map<ACCESSION, MODEL>> getAccessions(List<? extends MODEL> accessionedObjects) {
+        return CompletableFuture
+                .supplyAsync(() -> accessioningService.getHashes(accessionedObjects), hashingExecutor)
+                .thenApplyAsync(hashes -> accessioningService.getDbService().findAllAccessionsByHash(hashes),
+                        databaseExecutor);
+    }
+
+    public CompletableFuture<Map<ACCESSION, MODEL>> getByAccessions(List<ACCESSION> accessions) {
+        return CompletableFuture.supplyAsync(() -> accessioningService.getByAccessions(accessions),
+                databaseExecutor);
+    }
+
+}
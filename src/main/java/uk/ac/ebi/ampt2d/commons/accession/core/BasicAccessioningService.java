@@ -17,13 +17,21 @@
  */
 package uk.ac.ebi.ampt2d.commons.accession.core;
 
+import uk.ac.ebi.ampt2d.commons.accession.core.exceptions.HashMismatchException;
 import uk.ac.ebi.ampt2d.commons.accession.generators.AccessionGenerator;
+import uk.ac.ebi.ampt2d.commons.accession.generators.ModelHashAccession;
 import uk.ac.ebi.ampt2d.commons.accession.generators.exceptions.AccessionCouldNotBeGeneratedException;
+import uk.ac.ebi.ampt2d.commons.accession.metrics.AccessioningMetrics;
+import uk.ac.ebi.ampt2d.commons.accession.metrics.NoOpAccessioningMetrics;
 import uk.ac.ebi.ampt2d.commons.accession.persistence.DatabaseService;
 
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ThreadLocalRandom;
 import java.util.function.Function;
 import java.util.stream.Collectors;
 
@@ -36,7 +44,7 @@ import java.util.stream.Collectors;
  */
 public class BasicAccessioningService<MODEL, HASH, ACCESSION> implements AccessioningService<MODEL, ACCESSION> {
 
-    private final BasicAccessioningServiceSaveDelegate<MODEL, HASH, ACCESSION> basicAccessioningServiceSaveDelegate;
+    private final SaveStrategy<MODEL, HASH, ACCESSION> saveStrategy;
 
     private AccessionGenerator<MODEL, ACCESSION> accessionGenerator;
 
@@ -46,20 +54,47 @@ public class BasicAccessioningService<MODEL, HASH, ACCESSION> implements Accessi
 
     private final Function<String, HASH> hashingFunction;
 
+    private final InFlightHashes<HASH, ACCESSION> inFlightHashes;
+
+    private ForkJoinPool hashingPool;
+
+    private int parallelHashingThreshold;
+
+    private double hashVerificationRate;
+
+    private AccessioningMetrics metrics;
+
     public BasicAccessioningService(AccessionGenerator<MODEL, ACCESSION> accessionGenerator,
                                     DatabaseService<MODEL, HASH, ACCESSION> dbService,
                                     Function<MODEL, String> summaryFunction,
                                     Function<String, HASH> hashingFunction) {
+        this(accessionGenerator, dbService, summaryFunction, hashingFunction,
+                new BasicAccessioningServiceSaveDelegate<>(dbService));
+    }
+
+    /**
+     * @param saveStrategy Algorithm used to store the generated accessions
+     */
+    public BasicAccessioningService(AccessionGenerator<MODEL, ACCESSION> accessionGenerator,
+                                    DatabaseService<MODEL, HASH, ACCESSION> dbService,
+                                    Function<MODEL, String> summaryFunction,
+                                    Function<String, HASH> hashingFunction,
+                                    SaveStrategy<MODEL, HASH, ACCESSION> saveStrategy) {
         this.accessionGenerator = accessionGenerator;
         this.dbService = dbService;
         this.summaryFunction = summaryFunction;
         this.hashingFunction = hashingFunction;
-        this.basicAccessioningServiceSaveDelegate = new BasicAccessioningServiceSaveDelegate<>(dbService);
+        this.saveStrategy = saveStrategy;
+        this.inFlightHashes = new InFlightHashes<>();
+        this.metrics = NoOpAccessioningMetrics.INSTANCE;
     }
 
     /**
      * Get accessions for a list of messages. It looks for the object's accessions in a repository, and if they don't
-     * exist, generate new ones, storing them in the repository
+     * exist, generate new ones, storing them in the repository.
+     *
+     * If another call is accessioning a message with the same hash at the same time, this call waits for its result
+     * instead of generating a second accession for it.
      *
      * @param messages
      * @return
@@ -67,13 +102,104 @@ public class BasicAccessioningService<MODEL, HASH, ACCESSION> implements Accessi
     @Override
     public Map<ACCESSION, MODEL> getOrCreateAccessions(List<? extends MODEL> messages)
             throws AccessionCouldNotBeGeneratedException {
-        Map<HASH, MODEL> hashToMessages = mapHashOfMessages(messages);
+        return getOrCreateAccessions(mapHashOfMessages(messages));
+    }
+
+    /**
+     * Get accessions for messages whose hashes have already been computed by the caller, skipping the summary and
+     * hashing of the messages. A sample of the supplied hashes can be verified, see
+     * {@link #setHashVerificationRate(double)}.
+     *
+     * @param hashToMessages Messages mapped by the hash of their summary
+     * @return
+     * @throws HashMismatchException if a verified hash does not match its message
+     */
+    @SuppressWarnings("unchecked")
+    public Map<ACCESSION, MODEL> getOrCreateAccessionsByHash(Map<HASH, ? extends MODEL> hashToMessages)
+            throws AccessionCouldNotBeGeneratedException {
+        verifyHashes(hashToMessages);
+        // The map is only read, so it can be safely used as a map of MODEL
+        return getOrCreateAccessions((Map<HASH, MODEL>) hashToMessages);
+    }
+
+    private void verifyHashes(Map<HASH, ? extends MODEL> hashToMessages) {
+        if (hashVerificationRate <= 0) {
+            return;
+        }
+        Function<MODEL, HASH> hashFunction = summaryFunction.andThen(hashingFunction);
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        hashToMessages.forEach((hash, message) -> {
+            if (random.nextDouble() < hashVerificationRate) {
+                HASH computedHash = hashFunction.apply(message);
+                if (!computedHash.equals(hash)) {
+                    throw new HashMismatchException(hash, computedHash);
+                }
+            }
+        });
+    }
+
+    Map<ACCESSION, MODEL> getOrCreateAccessions(Map<HASH, MODEL> hashToMessages)
+            throws AccessionCouldNotBeGeneratedException {
+        metrics.recordValue(AccessioningMetrics.BATCH_SIZE, hashToMessages.size());
+        return getOrCreateClaimedAccessions(hashToMessages);
+    }
+
+    private Map<ACCESSION, MODEL> getOrCreateClaimedAccessions(Map<HASH, MODEL> hashToMessages)
+            throws AccessionCouldNotBeGeneratedException {
+        InFlightHashes<HASH, ACCESSION>.Claim claim = inFlightHashes.claim(hashToMessages.keySet());
+        Map<HASH, ACCESSION> ownedAccessions = new HashMap<>();
+        Map<ACCESSION, MODEL> accessions;
+        try {
+            accessions = getOrCreateOwnedAccessions(filterHashes(hashToMessages, claim.getOwnedHashes()),
+                    ownedAccessions);
+        } catch (Throwable e) {
+            // Errors must release the claim too, or the callers waiting for the owned hashes would block forever
+            inFlightHashes.fail(claim, e);
+            throw e;
+        }
+        inFlightHashes.complete(claim, ownedAccessions);
+
+        if (!claim.getAwaitedHashes().isEmpty()) {
+            Map<HASH, ACCESSION> awaitedAccessions = inFlightHashes.await(claim);
+            List<HASH> unresolvedHashes = new ArrayList<>();
+            awaitedAccessions.forEach((hash, accession) -> {
+                if (accession != null) {
+                    accessions.put(accession, hashToMessages.get(hash));
+                } else {
+                    unresolvedHashes.add(hash);
+                }
+            });
+            if (!unresolvedHashes.isEmpty()) {
+                metrics.increment(AccessioningMetrics.RETRIES, unresolvedHashes.size());
+                accessions.putAll(getOrCreateClaimedAccessions(filterHashes(hashToMessages, unresolvedHashes)));
+            }
+        }
+        return accessions;
+    }
+
+    /**
+     * Accessions the messages whose hashes are owned by this call.
+     *
+     * @param hashToMessages  Messages owned by this call
+     * @param ownedAccessions Filled with the accession of each hash that has been found or stored
+     */
+    private Map<ACCESSION, MODEL> getOrCreateOwnedAccessions(Map<HASH, MODEL> hashToMessages,
+                                                             Map<HASH, ACCESSION> ownedAccessions)
+            throws AccessionCouldNotBeGeneratedException {
+        if (hashToMessages.isEmpty()) {
+            return new HashMap<>();
+        }
+        long start = System.nanoTime();
         Map<HASH, ACCESSION> existingAccessions = dbService.getExistingAccessions(hashToMessages.keySet());
+        metrics.recordTime(AccessioningMetrics.LOOKUP, System.nanoTime() - start);
+        ownedAccessions.putAll(existingAccessions);
         Map<HASH, MODEL> newMessages = filterNotExistingAccessions(hashToMessages, existingAccessions);
+        metrics.recordValue(AccessioningMetrics.EXISTING_MESSAGES, existingAccessions.size());
+        metrics.recordValue(AccessioningMetrics.NEW_MESSAGES, newMessages.size());
 
         Map<ACCESSION, MODEL> accessions = joinExistingAccessionsWithMessages(existingAccessions, hashToMessages);
         if (!newMessages.isEmpty()) {
-            accessions.putAll(generateAccessions(newMessages));
+            accessions.putAll(generateAccessions(newMessages, ownedAccessions));
         }
         return accessions;
     }
@@ -84,8 +210,19 @@ public class BasicAccessioningService<MODEL, HASH, ACCESSION> implements Accessi
      * @param messages
      * @return
      */
-    private Map<HASH, MODEL> mapHashOfMessages(List<? extends MODEL> messages) {
-        return messages.stream().collect(Collectors.toMap(summaryFunction.andThen(hashingFunction), e -> e, (r, o) -> r));
+    Map<HASH, MODEL> mapHashOfMessages(List<? extends MODEL> messages) {
+        List<HASH> hashes = getHashes(messages);
+        Map<HASH, MODEL> hashToMessages = new HashMap<>();
+        for (int i = 0; i < hashes.size(); i++) {
+            hashToMessages.putIfAbsent(hashes.get(i), messages.get(i));
+        }
+        return hashToMessages;
+    }
+
+    private Map<HASH, MODEL> filterHashes(Map<HASH, MODEL> hashToMessages, Collection<HASH> hashes) {
+        Map<HASH, MODEL> filteredMessages = new HashMap<>();
+        hashes.forEach(hash -> filteredMessages.put(hash, hashToMessages.get(hash)));
+        return filteredMessages;
     }
 
     private Map<HASH, MODEL> filterNotExistingAccessions(Map<HASH, MODEL> hashToMessages,
@@ -101,15 +238,50 @@ public class BasicAccessioningService<MODEL, HASH, ACCESSION> implements Accessi
                 .collect(Collectors.toMap(e -> e.getValue(), e -> hashToMessages.get(e.getKey())));
     }
 
-    private Map<ACCESSION, MODEL> generateAccessions(Map<HASH, MODEL> accessions) throws
-            AccessionCouldNotBeGeneratedException {
-        SaveResponse<ACCESSION, MODEL> response = basicAccessioningServiceSaveDelegate
-                .doSaveAccessions(accessionGenerator.generateAccessions(accessions));
+    /**
+     * Generates and stores accessions for new messages. The messages that could not be stored because a concurrent
+     * save already stored the same hash are resolved with the accessions of those hashes, which are looked up without
+     * computing the summary and hash of the messages again, unless the save strategy already returned them.
+     */
+    private Map<ACCESSION, MODEL> generateAccessions(Map<HASH, MODEL> newMessages,
+                                                     Map<HASH, ACCESSION> ownedAccessions)
+            throws AccessionCouldNotBeGeneratedException {
+        long start = System.nanoTime();
+        List<ModelHashAccession<MODEL, HASH, ACCESSION>> generatedAccessions =
+                accessionGenerator.generateAccessions(newMessages);
+        long generated = System.nanoTime();
+        metrics.recordTime(AccessioningMetrics.GENERATION, generated - start);
+        SaveResponse<ACCESSION, MODEL> response = saveStrategy.doSaveAccessions(generatedAccessions);
+        long saved = System.nanoTime();
+        metrics.recordTime(AccessioningMetrics.SAVE, saved - generated);
         accessionGenerator.postSave(response);
+        metrics.recordTime(AccessioningMetrics.POST_SAVE, System.nanoTime() - saved);
         Map<ACCESSION, MODEL> savedAccessions = response.getSavedAccessions();
-        List<MODEL> unsavedObjects = new ArrayList<>(response.getUnsavedAccessions().values());
-        savedAccessions.putAll(getAccessions(unsavedObjects));
+        Map<ACCESSION, MODEL> unsavedAccessions = response.getUnsavedAccessions();
+        Map<ACCESSION, ACCESSION> existingAccessions = response.getExistingAccessions();
+        Map<HASH, ACCESSION> conflictingAccessions = new HashMap<>();
+        List<HASH> unsavedHashes = new ArrayList<>();
+        for (ModelHashAccession<MODEL, HASH, ACCESSION> generatedAccession : generatedAccessions) {
+            if (savedAccessions.containsKey(generatedAccession.accession())) {
+                ownedAccessions.put(generatedAccession.hash(), generatedAccession.accession());
+            } else if (existingAccessions.containsKey(generatedAccession.accession())) {
+                conflictingAccessions.put(generatedAccession.hash(),
+                        existingAccessions.get(generatedAccession.accession()));
+            } else if (unsavedAccessions.containsKey(generatedAccession.accession())) {
+                unsavedHashes.add(generatedAccession.hash());
+            }
+        }
 
+        if (!conflictingAccessions.isEmpty() || !unsavedHashes.isEmpty()) {
+            metrics.increment(AccessioningMetrics.CONFLICTS, conflictingAccessions.size() + unsavedHashes.size());
+            long conflictStart = System.nanoTime();
+            if (!unsavedHashes.isEmpty()) {
+                conflictingAccessions.putAll(dbService.getConflictingAccessions(unsavedHashes));
+            }
+            ownedAccessions.putAll(conflictingAccessions);
+            savedAccessions.putAll(joinExistingAccessionsWithMessages(conflictingAccessions, newMessages));
+            metrics.recordTime(AccessioningMetrics.CONFLICT_RESOLUTION, System.nanoTime() - conflictStart);
+        }
         return savedAccessions;
     }
 
@@ -123,8 +295,57 @@ public class BasicAccessioningService<MODEL, HASH, ACCESSION> implements Accessi
         return dbService.findAllAccessionMappingsByAccessions(accessions);
     }
 
-    private List<HASH> getHashes(List<? extends MODEL> accessionObjects) {
-        return accessionObjects.stream().map(summaryFunction.andThen(hashingFunction)).collect(Collectors.toList());
+    /**
+     * Digest messages and hash them, keeping the order of the list. Lists larger than the parallel hashing threshold
+     * are hashed in parallel in the hashing pool.
+     *
+     * @param accessionObjects
+     * @return
+     */
+    List<HASH> getHashes(List<? extends MODEL> accessionObjects) {
+        Function<MODEL, HASH> hashFunction = summaryFunction.andThen(hashingFunction);
+        long start = System.nanoTime();
+        List<HASH> hashes;
+        if (hashingPool == null || accessionObjects.size() < parallelHashingThreshold) {
+            hashes = accessionObjects.stream().map(hashFunction).collect(Collectors.toList());
+        } else {
+            hashes = hashingPool.submit(() -> accessionObjects.parallelStream().map(hashFunction)
+                    .collect(Collectors.toList())).join();
+        }
+        metrics.recordTime(AccessioningMetrics.HASHING, System.nanoTime() - start);
+        return hashes;
+    }
+
+    /**
+     * Sets the fraction of the hashes supplied to {@link #getOrCreateAccessionsByHash(Map)} that are verified against
+     * the hash of their message. By default no hash is verified.
+     *
+     * @param hashVerificationRate Value between 0 (no hash is verified) and 1 (all the hashes are verified)
+     */
+    public void setHashVerificationRate(double hashVerificationRate) {
+        this.hashVerificationRate = hashVerificationRate;
+    }
+
+    /**
+     * Enables the parallel computation of summaries and hashes for large lists of messages.
+     *
+     * @param hashingPool              Pool that computes the summaries and hashes
+     * @param parallelHashingThreshold Min number of messages that are hashed in parallel
+     */
+    public void setParallelHashing(ForkJoinPool hashingPool, int parallelHashingThreshold) {
+        this.hashingPool = hashingPool;
+        this.parallelHashingThreshold = parallelHashingThreshold;
+    }
+
+    /**
+     * Sets the registry where the time spent in each stage of the accessioning and the size, new and existing
+     * messages, conflicts and retries of each batch are recorded. By default nothing is recorded.
+     *
+     * @param metrics Registry of the accessioning metrics
+     */
+    public void setMetrics(AccessioningMetrics metrics) {
+        this.metrics = metrics;
+        this.saveStrategy.setMetrics(metrics);
     }
 
     protected AccessionGenerator<MODEL, ACCESSION> getAccessionGenerator() {
@@ -3,13 +3,22 @@ package uk.ac.ebi.ampt2d.commons.accession.core;
 import org.springframework.dao.DataIntegrityViolationException;
 import uk.ac.ebi.ampt2d.commons.accession.generators.ModelHashAccession;
 import uk.ac.ebi.ampt2d.commons.accession.persistence.DatabaseService;
+import uk.ac.ebi.ampt2d.commons.accession.persistence.InsertIfAbsentDatabaseService;
 
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Stack;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 /**
- * This class is delegate for {@link BasicAccessioningService} to manage the save operation.
+ * This class is the default {@link SaveStrategy} of {@link BasicAccessioningService} to manage the save operation.
  *
  * The save operation can fail when an object has been already accessioned with a different value while having the
  * same hash message and elements. In this case a database constraint exception can be raised. Due to limited
@@ -21,11 +30,27 @@ import java.util.Stack;
  * and try to save each part separately until all the split batches have been saved correctly and we find the specific
  * elements that provoke error.
  *
+ * When the database service supports {@link InsertIfAbsentDatabaseService#insertIfAbsent(List)}, directly or through
+ * decorators that forward it, the whole batch is stored in a single
+ * insert-if-absent operation that skips the elements already stored, and the binary partition is only used if that
+ * operation fails, for example because of a concurrent insert of the same elements.
+ *
+ * If an executor is provided, the partitions are saved concurrently in it, each one in its own transaction. The
+ * executor should be bounded according to the database connection pool. If the save of a partition fails with any
+ * other exception, the partitions that have not started yet are skipped and the exception is rethrown once the running
+ * ones finish. The partitions saved before the failure stay committed, so the save of a batch can be partial, like
+ * when the chunks of a batch are saved sequentially.
+ *
+ * The number of rows saved in a transaction can be bounded with {@link #setMaxRowsPerTransaction(int)}, so that a
+ * large batch is split up front in chunks of bounded transactions. The size of the chunks can also adapt to the
+ * observed commit latency, see {@link #setTargetTransactionTime(long, TimeUnit)}.
+ *
  * @param <MODEL>
  * @param <HASH>
  * @param <ACCESSION>
  */
-class BasicAccessioningServiceSaveDelegate<MODEL, HASH, ACCESSION> {
+public class BasicAccessioningServiceSaveDelegate<MODEL, HASH, ACCESSION>
+        extends AbstractSaveStrategy<MODEL, HASH, ACCESSION> {
 
     private class Partition {
 
@@ -40,14 +65,123 @@ class BasicAccessioningServiceSaveDelegate<MODEL, HASH, ACCESSION> {
 
     private final DatabaseService<MODEL, HASH, ACCESSION> dbService;
 
+    private final Executor saveExecutor;
+
+    private int maxRowsPerTransaction;
+
+    private long targetTransactionNanos;
+
+    private volatile int rowsPerTransaction;
+
     public BasicAccessioningServiceSaveDelegate(DatabaseService<MODEL, HASH, ACCESSION> dbService) {
+        this(dbService, null);
+    }
+
+    /**
+     * @param saveExecutor Executor where the partitions are saved concurrently
+     */
+    public BasicAccessioningServiceSaveDelegate(DatabaseService<MODEL, HASH, ACCESSION> dbService,
+                                                Executor saveExecutor) {
         this.dbService = dbService;
+        this.saveExecutor = saveExecutor;
+    }
+
+    /**
+     * Bounds the number of rows saved in each transaction. By default a batch is saved in a single transaction.
+     *
+     * @param maxRowsPerTransaction Max number of rows per transaction, or 0 to save a batch in one transaction
+     */
+    public void setMaxRowsPerTransaction(int maxRowsPerTransaction) {
+        this.maxRowsPerTransaction = maxRowsPerTransaction;
+        this.rowsPerTransaction = maxRowsPerTransaction;
+    }
+
+    /**
+     * Makes the number of rows per transaction adapt to the observed commit latency, so each transaction takes
+     * approximately the target time. The number of rows never exceeds the max set with
+     * {@link #setMaxRowsPerTransaction(int)}.
+     *
+     * @param targetTransactionTime Target time of each transaction
+     * @param unit                  Unit of the target time
+     */
+    public void setTargetTransactionTime(long targetTransactionTime, TimeUnit unit) {
+        this.targetTransactionNanos = unit.toNanos(targetTransactionTime);
     }
 
-    public SaveResponse<ACCESSION, MODEL> doSaveAccessions(
+    /**
+     * @return Current number of rows saved per transaction, or 0 if batches are saved in one transaction
+     */
+    public int getRowsPerTransaction() {
+        return rowsPerTransaction;
+    }
+
+    @Override
+    protected SaveResponse<ACCESSION, MODEL> save(
+            List<ModelHashAccession<MODEL, HASH, ACCESSION>> modelHashAccessions) {
+        if (InsertIfAbsentDatabaseService.canInsertIfAbsent(dbService)) {
+            Map<ACCESSION, MODEL> savedAccessions = new HashMap<>();
+            Map<ACCESSION, MODEL> notSavedAccessions = new HashMap<>();
+            Map<ACCESSION, ACCESSION> existingAccessions = new HashMap<>();
+            for (List<ModelHashAccession<MODEL, HASH, ACCESSION>> chunk : splitInChunks(modelHashAccessions)) {
+                SaveResponse<ACCESSION, MODEL> response = insertIfAbsent(chunk);
+                savedAccessions.putAll(response.getSavedAccessions());
+                notSavedAccessions.putAll(response.getUnsavedAccessions());
+                existingAccessions.putAll(response.getExistingAccessions());
+            }
+            return new SaveResponse<>(savedAccessions, notSavedAccessions, existingAccessions);
+        }
+        return saveInPartitions(modelHashAccessions);
+    }
+
+    private SaveResponse<ACCESSION, MODEL> insertIfAbsent(List<ModelHashAccession<MODEL, HASH, ACCESSION>> chunk) {
+        try {
+            long start = System.nanoTime();
+            SaveResponse<ACCESSION, MODEL> response =
+                    ((InsertIfAbsentDatabaseService<MODEL, HASH, ACCESSION>) dbService).insertIfAbsent(chunk);
+            recordTransaction(chunk.size(), System.nanoTime() - start);
+            return response;
+        } catch (DataIntegrityViolationException e) {
+            recordRetry();
+        }
+        return saveInPartitions(chunk);
+    }
+
+    private List<List<ModelHashAccession<MODEL, HASH, ACCESSION>>> splitInChunks(
             List<ModelHashAccession<MODEL, HASH, ACCESSION>> modelHashAccessions) {
+        int chunkSize = rowsPerTransaction > 0 ? rowsPerTransaction : modelHashAccessions.size();
+        List<List<ModelHashAccession<MODEL, HASH, ACCESSION>>> chunks = new ArrayList<>();
+        for (int start = 0; start < modelHashAccessions.size(); start += chunkSize) {
+            chunks.add(modelHashAccessions.subList(start, Math.min(start + chunkSize, modelHashAccessions.size())));
+        }
+        return chunks;
+    }
+
+    /**
+     * Adapts the number of rows per transaction to the throughput of a committed transaction. The number of rows
+     * changes at most by a factor of 2 on each transaction, to smooth out outliers.
+     */
+    private void recordTransaction(int rows, long elapsedNanos) {
+        if (targetTransactionNanos <= 0 || maxRowsPerTransaction <= 0 || rows == 0) {
+            return;
+        }
+        int currentRows = rowsPerTransaction;
+        double targetRows = (double) rows * targetTransactionNanos / Math.max(elapsedNanos, 1);
+        double boundedTargetRows = Math.max(currentRows / 2.0, Math.min(currentRows * 2.0, targetRows));
+        rowsPerTransaction = (int) Math.max(1, Math.min(maxRowsPerTransaction, Math.round(boundedTargetRows)));
+    }
+
+    protected SaveResponse<ACCESSION, MODEL> saveInPartitions(
+            List<ModelHashAccession<MODEL, HASH, ACCESSION>> modelHashAccessions) {
+        if (saveExecutor != null) {
+            return saveInParallelPartitions(modelHashAccessions);
+        }
         Stack<Partition> partitions = new Stack<>();
-        partitions.add(new Partition(0, modelHashAccessions.size()));
+        List<List<ModelHashAccession<MODEL, HASH, ACCESSION>>> chunks = splitInChunks(modelHashAccessions);
+        int chunkEnd = modelHashAccessions.size();
+        for (int i = chunks.size() - 1; i >= 0; i--) {
+            partitions.add(new Partition(chunkEnd - chunks.get(i).size(), chunkEnd));
+            chunkEnd -= chunks.get(i).size();
+        }
         HashMap<ACCESSION, MODEL> savedAccessions = new HashMap<ACCESSION, MODEL>();
         HashMap<ACCESSION, MODEL> notSavedAccessions = new HashMap<ACCESSION, MODEL>();
 
@@ -56,14 +190,17 @@ class BasicAccessioningServiceSaveDelegate<MODEL, HASH, ACCESSION> {
             final List<ModelHashAccession<MODEL, HASH, ACCESSION>> partitionToSave = modelHashAccessions
                     .subList(partition.start, partition.end);
             try {
+                long start = System.nanoTime();
                 dbService.save(partitionToSave);
+                recordTransaction(partitionToSave.size(), System.nanoTime() - start);
                 partitionToSave.stream().forEach(mha -> savedAccessions.put(mha.accession(), mha.model()));
             } catch (DataIntegrityViolationException e) {
                 if (partitionToSave.size() == 1) {
                     notSavedAccessions.put(partitionToSave.get(0).accession(), partitionToSave.get(0).model());
                 } else {
+                    recordRetry();
                     int start = partition.start;
-                    int middle = (partition.end - partition.start) / 2;
+                    int middle = partition.start + (partition.end - partition.start) / 2;
                     int end = partition.end;
                     partitions.add(new Partition(start, middle));
                     partitions.add(new Partition(middle, end));
@@ -72,4 +209,73 @@ class BasicAccessioningServiceSaveDelegate<MODEL, HASH, ACCESSION> {
         }
         return new SaveResponse<>(savedAccessions, notSavedAccessions);
     }
-}
\ No newline at end of file
+
+    private SaveResponse<ACCESSION, MODEL> saveInParallelPartitions(
+            List<ModelHashAccession<MODEL, HASH, ACCESSION>> modelHashAccessions) {
+        Map<ACCESSION, MODEL> savedAccessions = new ConcurrentHashMap<>();
+        Map<ACCESSION, MODEL> notSavedAccessions = new ConcurrentHashMap<>();
+        AtomicBoolean failed = new AtomicBoolean();
+        try {
+            CompletableFuture.allOf(splitInChunks(modelHashAccessions).stream()
+                    .map(chunk -> savePartitionAsync(chunk, savedAccessions, notSavedAccessions, failed))
+                    .toArray(CompletableFuture[]::new)).join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            if (e.getCause() instanceof Error) {
+                throw (Error) e.getCause();
+            }
+            throw e;
+        }
+        return new SaveResponse<>(new HashMap<>(savedAccessions), new HashMap<>(notSavedAccessions));
+    }
+
+    /**
+     * Saves a partition in the executor. If it fails with a constraint violation, its two halves are saved
+     * concurrently once the failed transaction has finished, without blocking any thread of the executor while
+     * waiting for them. If it fails with any other exception, the partitions that start afterwards are skipped.
+     */
+    private CompletableFuture<Void> savePartitionAsync(List<ModelHashAccession<MODEL, HASH, ACCESSION>> partition,
+                                                       Map<ACCESSION, MODEL> savedAccessions,
+                                                       Map<ACCESSION, MODEL> notSavedAccessions,
+                                                       AtomicBoolean failed) {
+        return CompletableFuture.supplyAsync(() -> {
+            if (failed.get()) {
+                // The batch has already failed, so the partition is skipped
+                return true;
+            }
+            try {
+                long start = System.nanoTime();
+                dbService.save(partition);
+                recordTransaction(partition.size(), System.nanoTime() - start);
+                partition.forEach(mha -> savedAccessions.put(mha.accession(), mha.model()));
+                return true;
+            } catch (DataIntegrityViolationException e) {
+                return false;
+            } catch (RuntimeException | Error e) {
+                failed.set(true);
+                throw e;
+            }
+        }, saveExecutor).thenCompose(saved -> {
+            if (saved) {
+                return CompletableFuture.completedFuture(null);
+            }
+            if (partition.size() == 1) {
+                notSavedAccessions.put(partition.get(0).accession(), partition.get(0).model());
+                return CompletableFuture.completedFuture(null);
+            }
+            recordRetry();
+            int middle = partition.size() / 2;
+            return CompletableFuture.allOf(
+                    savePartitionAsync(partition.subList(0, middle), savedAccessions, notSavedAccessions, failed),
+                    savePartitionAsync(partition.subList(middle, partition.size()), savedAccessions,
+                            notSavedAccessions, failed));
+        });
+    }
+
+    protected DatabaseService<MODEL, HASH, ACCESSION> getDbService() {
+        return dbService;
+    }
+
+}
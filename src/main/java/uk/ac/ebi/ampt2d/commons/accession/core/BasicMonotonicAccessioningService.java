@@ -35,6 +35,14 @@ public class BasicMonotonicAccessioningService<MODEL, HASH> extends BasicAccessi
         super(accessionGenerator, dbService, summaryFunction, hashingFunction);
     }
 
+    public BasicMonotonicAccessioningService(MonotonicAccessionGenerator<MODEL> accessionGenerator,
+                                             MonotonicDatabaseService<MODEL, HASH> dbService,
+                                             Function<MODEL, String> summaryFunction,
+                                             Function<String, HASH> hashingFunction,
+                                             SaveStrategy<MODEL, HASH, Long> saveStrategy) {
+        super(accessionGenerator, dbService, summaryFunction, hashingFunction, saveStrategy);
+    }
+
     @Override
     public void afterPropertiesSet() throws Exception {
         Collection<MonotonicRange> availableRanges = getAccessionGenerator().getAvailableRanges();
@@ -0,0 +1,248 @@
+/*
+ *
+ * Copyright 2018 EMBL - European Bioinformatics Institute
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package uk.ac.ebi.ampt2d.commons.accession.core;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import uk.ac.ebi.ampt2d.commons.accession.generators.exceptions.AccessionCouldNotBeGeneratedException;
+
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Decorator of a {@link BasicAccessioningService} that coalesces concurrent calls to
+ * {@link #getOrCreateAccessions(List)} into a single batch, so that many small requests share the same database
+ * queries, accession generation and save transaction.
+ * <p>
+ * The first caller that arrives to an empty window opens it and waits until the window time has elapsed or the
+ * maximum batch size has been reached. Each caller hashes its own messages once, before joining the window, and the
+ * messages of every caller that joined it are accessioned by those hashes with a single call to the decorated service.
+ * The result is split back to each caller with the same hashes, so no message is hashed again.
+ * <p>
+ * If the accessioning of a window with several requests fails, for example because one of its messages could not be
+ * accessioned, each request of the window is retried on its own, so only the requests that fail by themselves get
+ * the exception. The window may have stored some of the accessions before failing, and the retries return them.
+ * <p>
+ * Read-only operations are passed directly to the decorated service.
+ *
+ * @param <MODEL>
+ * @param <HASH>
+ * @param <ACCESSION>
+ */
+public class BatchingAccessioningService<MODEL, HASH, ACCESSION> implements AccessioningService<MODEL, ACCESSION> {
+
+    private static final Logger logger = LoggerFactory.getLogger(BatchingAccessioningService.class);
+
+    private class Window {
+
+        private final Map<HASH, MODEL> messages = new HashMap<>();
+
+        private int numberOfRequests = 0;
+
+        private int numberOfRequestMessages = 0;
+
+        private final CompletableFuture<Map<HASH, ACCESSION>> result = new CompletableFuture<>();
+
+        public void add(Map<HASH, MODEL> requestMessages) {
+            requestMessages.forEach(messages::putIfAbsent);
+            numberOfRequests++;
+            numberOfRequestMessages += requestMessages.size();
+        }
+
+    }
+
+    private final BasicAccessioningService<MODEL, HASH, ACCESSION> accessioningService;
+
+    private final long windowMillis;
+
+    private final int maxBatchSize;
+
+    private final Object lock = new Object();
+
+    private Window currentWindow;
+
+    private final AtomicLong numberOfWindows = new AtomicLong();
+
+    private final AtomicLong numberOfRequests = new AtomicLong();
+
+    private final AtomicLong numberOfMessages = new AtomicLong();
+
+    /**
+     * @param accessioningService Service that accessions each coalesced batch
+     * @param windowMillis        Max time that the first request of a window waits for other requests to join it
+     * @param maxBatchSize        Number of messages that closes a window before its time has elapsed
+     */
+    public BatchingAccessioningService(BasicAccessioningService<MODEL, HASH, ACCESSION> accessioningService,
+                                       long windowMillis,
+                                       int maxBatchSize) {
+        this.accessioningService = accessioningService;
+        this.windowMillis = windowMillis;
+        this.maxBatchSize = maxBatchSize;
+    }
+
+    @Override
+    public Map<ACCESSION, MODEL> getOrCreateAccessions(List<? extends MODEL> messages)
+            throws AccessionCouldNotBeGeneratedException {
+        Map<HASH, MODEL> hashToMessages = accessioningService.mapHashOfMessages(messages);
+        Window window;
+        boolean isWindowOwner = false;
+        synchronized (lock) {
+            if (currentWindow == null) {
+                currentWindow = new Window();
+                isWindowOwner = true;
+            }
+            window = currentWindow;
+            window.add(hashToMessages);
+            if (window.messages.size() >= maxBatchSize) {
+                currentWindow = null;
+                lock.notifyAll();
+            }
+        }
+
+        if (isWindowOwner) {
+            waitUntilClosed(window);
+            accessionWindow(window);
+        }
+        if (hasFailed(window) && window.numberOfRequests > 1) {
+            logger.debug("Window of {} requests failed, retrying a request of {} messages on its own",
+                    window.numberOfRequests, hashToMessages.size());
+            return accessioningService.getOrCreateAccessions(hashToMessages);
+        }
+        return splitResult(hashToMessages, getResult(window));
+    }
+
+    private void waitUntilClosed(Window window) {
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(windowMillis);
+        synchronized (lock) {
+            try {
+                long remaining = deadline - System.nanoTime();
+                while (currentWindow == window && remaining > 0) {
+                    TimeUnit.NANOSECONDS.timedWait(lock, remaining);
+                    remaining = deadline - System.nanoTime();
+                }
+            } catch (InterruptedException e) {
+                // The requests that already joined the window must be served anyway, so the window is closed now
+                Thread.currentThread().interrupt();
+            } finally {
+                if (currentWindow == window) {
+                    currentWindow = null;
+                }
+            }
+        }
+    }
+
+    /**
+     * Accessions the messages of a window. The decorated service returns the same message instances that it receives,
+     * so the hash of each accession is found by the identity of its message.
+     */
+    private void accessionWindow(Window window) {
+        long start = System.currentTimeMillis();
+        try {
+            Map<MODEL, HASH> messageToHash = new IdentityHashMap<>();
+            window.messages.forEach((hash, message) -> messageToHash.put(message, hash));
+            Map<ACCESSION, MODEL> accessions = accessioningService.getOrCreateAccessions(window.messages);
+            Map<HASH, ACCESSION> hashToAccession = new HashMap<>();
+            accessions.forEach((accession, message) -> hashToAccession.put(messageToHash.get(message), accession));
+            window.result.complete(hashToAccession);
+        } catch (Throwable e) {
+            // Any failure, errors included, must complete the window, or its other requests would wait forever
+            window.result.completeExceptionally(e);
+        }
+
+        numberOfWindows.incrementAndGet();
+        numberOfRequests.addAndGet(window.numberOfRequests);
+        numberOfMessages.addAndGet(window.numberOfRequestMessages);
+        logger.debug("Window of {} requests with {} messages accessioned in {} ms", window.numberOfRequests,
+                window.messages.size(), System.currentTimeMillis() - start);
+    }
+
+    /**
+     * Waits until the window has been accessioned.
+     *
+     * @return Whether the accessioning of the window failed
+     */
+    private boolean hasFailed(Window window) {
+        try {
+            window.result.join();
+            return false;
+        } catch (CompletionException e) {
+            return true;
+        }
+    }
+
+    private Map<HASH, ACCESSION> getResult(Window window) throws AccessionCouldNotBeGeneratedException {
+        try {
+            return window.result.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof AccessionCouldNotBeGeneratedException) {
+                throw (AccessionCouldNotBeGeneratedException) e.getCause();
+            }
+            if (e.getCause() instanceof Error) {
+                throw (Error) e.getCause();
+            }
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Maps the accessions of a whole window back to the messages of one request, using the hashes of the request.
+     */
+    private Map<ACCESSION, MODEL> splitResult(Map<HASH, MODEL> hashToMessages,
+                                              Map<HASH, ACCESSION> hashToAccession) {
+        Map<ACCESSION, MODEL> accessions = new HashMap<>();
+        hashToMessages.forEach((hash, message) -> {
+            ACCESSION accession = hashToAccession.get(hash);
+            if (accession != null) {
+                accessions.put(accession, message);
+            }
+        });
+        return accessions;
+    }
+
+    @Override
+    public Map<ACCESSION, MODEL> getAccessions(List<? extends MODEL> accessionedObjects) {
+        return accessioningService.getAccessions(accessionedObjects);
+    }
+
+    @Override
+    public Map<ACCESSION, ? extends MODEL> getByAccessions(List<ACCESSION> accessions) {
+        return accessioningService.getByAccessions(accessions);
+    }
+
+    public long getNumberOfWindows() {
+        return numberOfWindows.get();
+    }
+
+    public long getNumberOfRequests() {
+        return numberOfRequests.get();
+    }
+
+    public long getNumberOfMessages() {
+        return numberOfMessages.get();
+    }
+
+}
@@ -0,0 +1,33 @@
+/*
+ *
+ * Copyright 2018 EMBL - European Bioinformatics Institute
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package uk.ac.ebi.ampt2d.commons.accession.core;
+
+/**
+ * Projection of an accessioned entity to its hashed message and accession, used by
+ * {@link AccessioningRepository#findByHashedMessageIn(java.util.Collection, Class)} to query only those two columns.
+ *
+ * @param <HASH>
+ * @param <ACCESSION>
+ */
+public interface HashedMessageAccession<HASH, ACCESSION> {
+
+    HASH getHashedMessage();
+
+    ACCESSION getAccession();
+
+}
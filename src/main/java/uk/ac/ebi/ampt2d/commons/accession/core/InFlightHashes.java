@@ -0,0 +1,107 @@
+/*
+ *
+ * Copyright 2018 EMBL - European Bioinformatics Institute
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package uk.ac.ebi.ampt2d.commons.accession.core;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Table of the hashes that are being accessioned at this moment by any caller of an accessioning service. The first
+ * caller that claims a hash owns it until it completes it with the resulting accession, and any other caller that
+ * claims the same hash in the meantime receives a future to wait for that result, instead of generating a second
+ * accession that would be rejected by the database.
+ * <p>
+ * An owner must always complete or fail its claim, otherwise the waiting callers would never be released.
+ *
+ * @param <HASH>
+ * @param <ACCESSION>
+ */
+class InFlightHashes<HASH, ACCESSION> {
+
+    public class Claim {
+
+        private final Map<HASH, CompletableFuture<ACCESSION>> ownedHashes = new HashMap<>();
+
+        private final Map<HASH, CompletableFuture<ACCESSION>> awaitedHashes = new HashMap<>();
+
+        public Collection<HASH> getOwnedHashes() {
+            return ownedHashes.keySet();
+        }
+
+        public Collection<HASH> getAwaitedHashes() {
+            return awaitedHashes.keySet();
+        }
+
+    }
+
+    private final ConcurrentHashMap<HASH, CompletableFuture<ACCESSION>> inFlight = new ConcurrentHashMap<>();
+
+    public Claim claim(Collection<HASH> hashes) {
+        Claim claim = new Claim();
+        for (HASH hash : hashes) {
+            CompletableFuture<ACCESSION> future = new CompletableFuture<>();
+            CompletableFuture<ACCESSION> existingFuture = inFlight.putIfAbsent(hash, future);
+            if (existingFuture == null) {
+                claim.ownedHashes.put(hash, future);
+            } else {
+                claim.awaitedHashes.put(hash, existingFuture);
+            }
+        }
+        return claim;
+    }
+
+    /**
+     * Releases the owned hashes of a claim, passing their accessions to the waiting callers. Owned hashes without
+     * accession are released without value, so the waiting callers resolve them by themselves.
+     */
+    public void complete(Claim claim, Map<HASH, ACCESSION> accessions) {
+        claim.ownedHashes.forEach((hash, future) -> {
+            inFlight.remove(hash, future);
+            future.complete(accessions.get(hash));
+        });
+    }
+
+    public void fail(Claim claim, Throwable throwable) {
+        claim.ownedHashes.forEach((hash, future) -> {
+            inFlight.remove(hash, future);
+            future.completeExceptionally(throwable);
+        });
+    }
+
+    /**
+     * Waits until the owners of the awaited hashes of a claim complete them.
+     *
+     * @return Accession of each awaited hash, or null if its owner could not provide one
+     */
+    public Map<HASH, ACCESSION> await(Claim claim) {
+        Map<HASH, ACCESSION> accessions = new HashMap<>();
+        claim.awaitedHashes.forEach((hash, future) -> {
+            try {
+                accessions.put(hash, future.join());
+            } catch (CompletionException e) {
+                accessions.put(hash, null);
+            }
+        });
+        return accessions;
+    }
+
+}
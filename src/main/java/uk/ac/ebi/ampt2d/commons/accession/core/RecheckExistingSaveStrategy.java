@@ -0,0 +1,103 @@
+/*
+ *
+ * Copyright 2018 EMBL - European Bioinformatics Institute
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package uk.ac.ebi.ampt2d.commons.accession.core;
+
+import uk.ac.ebi.ampt2d.commons.accession.generators.ModelHashAccession;
+import uk.ac.ebi.ampt2d.commons.accession.metrics.AccessioningMetrics;
+import uk.ac.ebi.ampt2d.commons.accession.persistence.DatabaseService;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * Save strategy that looks up the hashes of the objects immediately before storing them, and only stores the objects
+ * whose hashes are not found. This avoids most of the failed saves when other application instances are accessioning
+ * the same objects, as the time between the lookup and the save is much shorter than in
+ * {@link BasicAccessioningService}, where the accessions are generated in between. The remaining objects are stored
+ * with another save strategy, that handles the conflicts with objects stored after the lookup. The accessions found
+ * by the lookup are returned in {@link SaveResponse#getExistingAccessions()}, so they are not queried again.
+ *
+ * @param <MODEL>
+ * @param <HASH>
+ * @param <ACCESSION>
+ */
+public class RecheckExistingSaveStrategy<MODEL, HASH, ACCESSION> extends AbstractSaveStrategy<MODEL, HASH, ACCESSION> {
+
+    private final DatabaseService<MODEL, HASH, ACCESSION> dbService;
+
+    private final SaveStrategy<MODEL, HASH, ACCESSION> saveStrategy;
+
+    public RecheckExistingSaveStrategy(DatabaseService<MODEL, HASH, ACCESSION> dbService) {
+        this(dbService, new BasicAccessioningServiceSaveDelegate<>(dbService));
+    }
+
+    /**
+     * @param dbService    Service used to look up the hashes
+     * @param saveStrategy Strategy that stores the objects whose hashes are not found
+     */
+    public RecheckExistingSaveStrategy(DatabaseService<MODEL, HASH, ACCESSION> dbService,
+                                       SaveStrategy<MODEL, HASH, ACCESSION> saveStrategy) {
+        this.dbService = dbService;
+        this.saveStrategy = saveStrategy;
+    }
+
+    @Override
+    protected SaveResponse<ACCESSION, MODEL> save(
+            List<ModelHashAccession<MODEL, HASH, ACCESSION>> modelHashAccessions) {
+        Map<HASH, ACCESSION> existingAccessions = dbService.getExistingAccessions(modelHashAccessions.stream()
+                .map(ModelHashAccession::hash).collect(Collectors.toList()));
+        if (existingAccessions.isEmpty()) {
+            return saveStrategy.doSaveAccessions(modelHashAccessions);
+        }
+
+        List<ModelHashAccession<MODEL, HASH, ACCESSION>> newObjects = new ArrayList<>();
+        Map<ACCESSION, MODEL> unsavedAccessions = new HashMap<>();
+        Map<ACCESSION, ACCESSION> storedAccessions = new HashMap<>();
+        for (ModelHashAccession<MODEL, HASH, ACCESSION> object : modelHashAccessions) {
+            ACCESSION storedAccession = existingAccessions.get(object.hash());
+            if (storedAccession != null) {
+                unsavedAccessions.put(object.accession(), object.model());
+                storedAccessions.put(object.accession(), storedAccession);
+            } else {
+                newObjects.add(object);
+            }
+        }
+        if (newObjects.isEmpty()) {
+            return new SaveResponse<>(new HashMap<>(), unsavedAccessions, storedAccessions);
+        }
+        SaveResponse<ACCESSION, MODEL> response = saveStrategy.doSaveAccessions(newObjects);
+        unsavedAccessions.putAll(response.getUnsavedAccessions());
+        storedAccessions.putAll(response.getExistingAccessions());
+        return new SaveResponse<>(response.getSavedAccessions(), unsavedAccessions, storedAccessions);
+    }
+
+    @Override
+    public long getRetries() {
+        return saveStrategy.getRetries();
+    }
+
+    @Override
+    public void setMetrics(AccessioningMetrics metrics) {
+        super.setMetrics(metrics);
+        saveStrategy.setMetrics(metrics);
+    }
+
+}
@@ -17,17 +17,32 @@
  */
 package uk.ac.ebi.ampt2d.commons.accession.core;
 
+import java.util.HashMap;
 import java.util.Map;
 
 public class SaveResponse<ACCESSION, MODEL> {
 
     private final Map<ACCESSION, MODEL> savedAccessions;
     private final Map<ACCESSION, MODEL> unsavedAccessions;
+    private final Map<ACCESSION, ACCESSION> existingAccessions;
 
     public SaveResponse(Map<ACCESSION, MODEL> savedAccessions,
                         Map<ACCESSION, MODEL> unsavedAccessions) {
+        this(savedAccessions, unsavedAccessions, new HashMap<>());
+    }
+
+    /**
+     * @param savedAccessions    Accessions that have been stored
+     * @param unsavedAccessions  Accessions that have not been stored because their objects already exist
+     * @param existingAccessions Stored accession of some of the unsaved accessions, when the save strategy already
+     *                           knows it, so that it doesn't need to be looked up again
+     */
+    public SaveResponse(Map<ACCESSION, MODEL> savedAccessions,
+                        Map<ACCESSION, MODEL> unsavedAccessions,
+                        Map<ACCESSION, ACCESSION> existingAccessions) {
         this.savedAccessions = savedAccessions;
         this.unsavedAccessions = unsavedAccessions;
+        this.existingAccessions = existingAccessions;
     }
 
     public Map<ACCESSION, MODEL> getSavedAccessions() {
@@ -38,4 +53,11 @@ public class SaveResponse<ACCESSION, MODEL> {
         return unsavedAccessions;
     }
 
+    /**
+     * @return Stored accession of the unsaved accessions whose object was already found by the save strategy
+     */
+    public Map<ACCESSION, ACCESSION> getExistingAccessions() {
+        return existingAccessions;
+    }
+
 }
@@ -0,0 +1,49 @@
+/*
+ *
+ * Copyright 2018 EMBL - European Bioinformatics Institute
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package uk.ac.ebi.ampt2d.commons.accession.core;
+
+import uk.ac.ebi.ampt2d.commons.accession.generators.ModelHashAccession;
+import uk.ac.ebi.ampt2d.commons.accession.metrics.AccessioningMetrics;
+
+import java.util.List;
+
+/**
+ * Algorithm used by {@link BasicAccessioningService} to store the generated accessions. The objects that cannot be
+ * stored because their hash or accession have already been stored are reported as unsaved accessions.
+ *
+ * @param <MODEL>
+ * @param <HASH>
+ * @param <ACCESSION>
+ */
+public interface SaveStrategy<MODEL, HASH, ACCESSION> {
+
+    SaveResponse<ACCESSION, MODEL> doSaveAccessions(List<ModelHashAccession<MODEL, HASH, ACCESSION>> modelHashAccessions);
+
+    /**
+     * @return Fraction of the objects to save that could not be saved because they conflicted with stored objects
+     */
+    double getConflictRate();
+
+    /**
+     * @return Number of save operations that failed and have been retried
+     */
+    long getRetries();
+
+    void setMetrics(AccessioningMetrics metrics);
+
+}
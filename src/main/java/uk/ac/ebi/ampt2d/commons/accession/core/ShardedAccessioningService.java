@@ -0,0 +1,141 @@
+/*
+ *
+ * Copyright 2018 EMBL - European Bioinformatics Institute
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package uk.ac.ebi.ampt2d.commons.accession.core;
+
+import uk.ac.ebi.ampt2d.commons.accession.generators.exceptions.AccessionCouldNotBeGeneratedException;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.function.ToIntFunction;
+
+/**
+ * Accessioning service that splits large batches of messages in shards by the hash of the messages and accessions
+ * each shard concurrently in the executor, merging the results. Messages with the same hash always fall in the same
+ * shard, so the shards cannot conflict with each other. As each shard runs the lookup, generation and save of its
+ * accessions in its own thread and transaction, the executor should be sized according to the database connection
+ * pool.
+ * <p>
+ * Batches smaller than the min sharded batch size are accessioned in the calling thread. The exceptions raised by a
+ * shard are rethrown as they are, like when the batch is accessioned in the calling thread.
+ *
+ * @param <MODEL>
+ * @param <HASH>
+ * @param <ACCESSION>
+ */
+public class ShardedAccessioningService<MODEL, HASH, ACCESSION> implements AccessioningService<MODEL, ACCESSION> {
+
+    private final BasicAccessioningService<MODEL, HASH, ACCESSION> accessioningService;
+
+    private final Executor executor;
+
+    private final int numberOfShards;
+
+    private final int minShardedBatchSize;
+
+    private final ToIntFunction<HASH> shardFunction;
+
+    public ShardedAccessioningService(BasicAccessioningService<MODEL, HASH, ACCESSION> accessioningService,
+                                      Executor executor, int numberOfShards, int minShardedBatchSize) {
+        this(accessioningService, executor, numberOfShards, minShardedBatchSize, Object::hashCode);
+    }
+
+    /**
+     * @param shardFunction Function applied to each hash to choose its shard, like the value of a hash prefix
+     */
+    public ShardedAccessioningService(BasicAccessioningService<MODEL, HASH, ACCESSION> accessioningService,
+                                      Executor executor, int numberOfShards, int minShardedBatchSize,
+                                      ToIntFunction<HASH> shardFunction) {
+        if (numberOfShards < 1) {
+            throw new IllegalArgumentException("The number of shards must be at least 1");
+        }
+        this.accessioningService = accessioningService;
+        this.executor = executor;
+        this.numberOfShards = numberOfShards;
+        this.minShardedBatchSize = minShardedBatchSize;
+        this.shardFunction = shardFunction;
+    }
+
+    @Override
+    public Map<ACCESSION, MODEL> getOrCreateAccessions(List<? extends MODEL> messages)
+            throws AccessionCouldNotBeGeneratedException {
+        Map<HASH, MODEL> hashToMessages = accessioningService.mapHashOfMessages(messages);
+        if (numberOfShards == 1 || hashToMessages.size() < minShardedBatchSize) {
+            return accessioningService.getOrCreateAccessions(hashToMessages);
+        }
+
+        List<CompletableFuture<Map<ACCESSION, MODEL>>> futures = new ArrayList<>();
+        for (Map<HASH, MODEL> shard : splitInShards(hashToMessages)) {
+            if (!shard.isEmpty()) {
+                futures.add(CompletableFuture.supplyAsync(() -> getOrCreateShardAccessions(shard), executor));
+            }
+        }
+
+        Map<ACCESSION, MODEL> accessions = new HashMap<>();
+        try {
+            for (CompletableFuture<Map<ACCESSION, MODEL>> future : futures) {
+                accessions.putAll(future.join());
+            }
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof AccessionCouldNotBeGeneratedException) {
+                throw (AccessionCouldNotBeGeneratedException) e.getCause();
+            }
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            if (e.getCause() instanceof Error) {
+                throw (Error) e.getCause();
+            }
+            throw e;
+        }
+        return accessions;
+    }
+
+    private List<Map<HASH, MODEL>> splitInShards(Map<HASH, MODEL> hashToMessages) {
+        List<Map<HASH, MODEL>> shards = new ArrayList<>(numberOfShards);
+        for (int i = 0; i < numberOfShards; i++) {
+            shards.add(new HashMap<>());
+        }
+        hashToMessages.forEach((hash, message) ->
+                shards.get(Math.floorMod(shardFunction.applyAsInt(hash), numberOfShards)).put(hash, message));
+        return shards;
+    }
+
+    private Map<ACCESSION, MODEL> getOrCreateShardAccessions(Map<HASH, MODEL> shard) {
+        try {
+            return accessioningService.getOrCreateAccessions(shard);
+        } catch (AccessionCouldNotBeGeneratedException e) {
+            throw new CompletionException(e);
+        }
+    }
+
+    @Override
+    public Map<ACCESSION, MODEL> getAccessions(List<? extends MODEL> accessionedObjects) {
+        return accessioningService.getAccessions(accessionedObjects);
+    }
+
+    @Override
+    public Map<ACCESSION, MODEL> getByAccessions(List<ACCESSION> accessions) {
+        return accessioningService.getByAccessions(accessions);
+    }
+
+}
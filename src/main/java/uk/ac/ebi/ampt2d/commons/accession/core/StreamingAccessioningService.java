@@ -0,0 +1,92 @@
+/*
+ *
+ * Copyright 2018 EMBL - European Bioinformatics Institute
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package uk.ac.ebi.ampt2d.commons.accession.core;
+
+import uk.ac.ebi.ampt2d.commons.accession.generators.exceptions.AccessionCouldNotBeGeneratedException;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+/**
+ * Accessions an unbounded sequence of messages with an {@link AccessioningService}, splitting it in chunks of a fixed
+ * size. Only one chunk is held in memory at any time, and the accessions of each chunk are passed to a sink as soon as
+ * the chunk has been stored, so the memory used does not depend on the number of messages.
+ * <p>
+ * Repeated messages are only filtered inside each chunk. A message repeated in different chunks is returned to the
+ * sink once per chunk, always with the same accession.
+ *
+ * @param <MODEL>
+ * @param <ACCESSION>
+ */
+public class StreamingAccessioningService<MODEL, ACCESSION> {
+
+    private final AccessioningService<MODEL, ACCESSION> accessioningService;
+
+    private final int chunkSize;
+
+    public StreamingAccessioningService(AccessioningService<MODEL, ACCESSION> accessioningService, int chunkSize) {
+        if (chunkSize < 1) {
+            throw new IllegalArgumentException("Chunk size must be greater than zero");
+        }
+        this.accessioningService = accessioningService;
+        this.chunkSize = chunkSize;
+    }
+
+    /**
+     * @param messages Messages to accession, consumed one chunk at a time
+     * @param sink     Receives the accessions of each chunk after it has been stored
+     * @return Number of messages read
+     */
+    public long getOrCreateAccessions(Iterator<? extends MODEL> messages, Consumer<Map<ACCESSION, MODEL>> sink)
+            throws AccessionCouldNotBeGeneratedException {
+        long numberOfMessages = 0;
+        List<MODEL> chunk = new ArrayList<>(chunkSize);
+        while (messages.hasNext()) {
+            chunk.add(messages.next());
+            if (chunk.size() == chunkSize) {
+                sink.accept(accessioningService.getOrCreateAccessions(chunk));
+                numberOfMessages += chunk.size();
+                chunk = new ArrayList<>(chunkSize);
+            }
+        }
+        if (!chunk.isEmpty()) {
+            sink.accept(accessioningService.getOrCreateAccessions(chunk));
+            numberOfMessages += chunk.size();
+        }
+        return numberOfMessages;
+    }
+
+    /**
+     * Accessions a stream of messages. The stream is not closed by this method.
+     *
+     * @see #getOrCreateAccessions(Iterator, Consumer)
+     */
+    public long getOrCreateAccessions(Stream<? extends MODEL> messages, Consumer<Map<ACCESSION, MODEL>> sink)
+            throws AccessionCouldNotBeGeneratedException {
+        return getOrCreateAccessions(messages.iterator(), sink);
+    }
+
+    public int getChunkSize() {
+        return chunkSize;
+    }
+
+}
@@ -0,0 +1,28 @@
+/*
+ *
+ * Copyright 2018 EMBL - European Bioinformatics Institute
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package uk.ac.ebi.ampt2d.commons.accession.core.exceptions;
+
+public class HashMismatchException extends RuntimeException {
+
+    private static final long serialVersionUID = 1L;
+
+    public HashMismatchException(Object suppliedHash, Object computedHash) {
+        super("Supplied hash '" + suppliedHash + "' does not match the hash of its message '" + computedHash + "'");
+    }
+
+}
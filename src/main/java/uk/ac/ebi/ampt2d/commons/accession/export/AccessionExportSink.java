@@ -0,0 +1,47 @@
+/*
+ *
+ * Copyright 2018 EMBL - European Bioinformatics Institute
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package uk.ac.ebi.ampt2d.commons.accession.export;
+
+import uk.ac.ebi.ampt2d.commons.accession.generators.ModelHashAccession;
+import uk.ac.ebi.ampt2d.commons.accession.persistence.ExportableDatabaseService;
+
+import java.io.IOException;
+
+/**
+ * Destination of the objects exported by an {@link ExportableDatabaseService}, which are written one by one in
+ * accession order.
+ *
+ * @param <MODEL>
+ * @param <HASH>
+ * @param <ACCESSION>
+ */
+@FunctionalInterface
+public interface AccessionExportSink<MODEL, HASH, ACCESSION> {
+
+    void write(ModelHashAccession<MODEL, HASH, ACCESSION> object) throws IOException;
+
+    /**
+     * Called after each page of objects has been written, so that the sink can flush them and the export can be
+     * resumed after the last accession of the page.
+     *
+     * @param lastAccession Last accession written
+     */
+    default void endPage(ACCESSION lastAccession) throws IOException {
+    }
+
+}
@@ -0,0 +1,92 @@
+/*
+ *
+ * Copyright 2018 EMBL - European Bioinformatics Institute
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package uk.ac.ebi.ampt2d.commons.accession.export;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import uk.ac.ebi.ampt2d.commons.accession.generators.ModelHashAccession;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * Export sink that writes each object as a line of newline delimited JSON, with the fields "accession", "hash" and
+ * "model". Integers and booleans are written as JSON numbers and booleans, and any other value, including decimal
+ * numbers, as a JSON string. The lines are written with a Jackson {@link JsonGenerator}, which escapes the strings.
+ *
+ * @param <MODEL>
+ * @param <HASH>
+ * @param <ACCESSION>
+ */
+public class NdjsonAccessionExportSink<MODEL, HASH, ACCESSION> implements AccessionExportSink<MODEL, HASH, ACCESSION> {
+
+    private static final JsonFactory JSON_FACTORY = new JsonFactory()
+            .disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+
+    private final JsonGenerator generator;
+
+    private final Function<MODEL, Map<String, ?>> modelFields;
+
+    /**
+     * @param writer      Writer of the lines, which is flushed after each page but not closed
+     * @param modelFields Function that returns the fields of a model, in the order they are written
+     */
+    public NdjsonAccessionExportSink(Writer writer, Function<MODEL, Map<String, ?>> modelFields) throws IOException {
+        this.generator = JSON_FACTORY.createGenerator(writer);
+        this.generator.setRootValueSeparator(null);
+        this.modelFields = modelFields;
+    }
+
+    @Override
+    public void write(ModelHashAccession<MODEL, HASH, ACCESSION> object) throws IOException {
+        generator.writeStartObject();
+        generator.writeFieldName("accession");
+        writeValue(object.accession());
+        generator.writeFieldName("hash");
+        writeValue(object.hash());
+        generator.writeObjectFieldStart("model");
+        for (Map.Entry<String, ?> field : modelFields.apply(object.model()).entrySet()) {
+            generator.writeFieldName(field.getKey());
+            writeValue(field.getValue());
+        }
+        generator.writeEndObject();
+        generator.writeEndObject();
+        generator.writeRaw('\n');
+    }
+
+    private void writeValue(Object value) throws IOException {
+        if (value == null) {
+            generator.writeNull();
+        } else if (value instanceof Boolean) {
+            generator.writeBoolean((Boolean) value);
+        } else if (value instanceof Integer || value instanceof Long || value instanceof Short ||
+                value instanceof Byte) {
+            generator.writeNumber(((Number) value).longValue());
+        } else {
+            generator.writeString(value.toString());
+        }
+    }
+
+    @Override
+    public void endPage(ACCESSION lastAccession) throws IOException {
+        generator.flush();
+    }
+
+}
@@ -0,0 +1,97 @@
+/*
+ *
+ * Copyright 2018 EMBL - European Bioinformatics Institute
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package uk.ac.ebi.ampt2d.commons.accession.export;
+
+import uk.ac.ebi.ampt2d.commons.accession.generators.ModelHashAccession;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * Export sink that writes each object as a line of tab separated values: the accession, the hash and the values of the
+ * model. Backslashes, tabs and line breaks inside the values are escaped with a backslash, and null values are written
+ * as "\N".
+ *
+ * @param <MODEL>
+ * @param <HASH>
+ * @param <ACCESSION>
+ */
+public class TsvAccessionExportSink<MODEL, HASH, ACCESSION> implements AccessionExportSink<MODEL, HASH, ACCESSION> {
+
+    private static final String NULL_VALUE = "\\N";
+
+    private final Writer writer;
+
+    private final Function<MODEL, List<?>> modelValues;
+
+    /**
+     * @param writer      Writer of the lines, which is flushed after each page but not closed
+     * @param modelValues Function that returns the values of the columns of a model
+     */
+    public TsvAccessionExportSink(Writer writer, Function<MODEL, List<?>> modelValues) {
+        this.writer = writer;
+        this.modelValues = modelValues;
+    }
+
+    @Override
+    public void write(ModelHashAccession<MODEL, HASH, ACCESSION> object) throws IOException {
+        writeValue(object.accession());
+        writer.write('\t');
+        writeValue(object.hash());
+        for (Object value : modelValues.apply(object.model())) {
+            writer.write('\t');
+            writeValue(value);
+        }
+        writer.write('\n');
+    }
+
+    private void writeValue(Object value) throws IOException {
+        if (value == null) {
+            writer.write(NULL_VALUE);
+            return;
+        }
+        String text = value.toString();
+        for (int i = 0; i < text.length(); i++) {
+            char character = text.charAt(i);
+            switch (character) {
+                case '\\':
+                    writer.write("\\\\");
+                    break;
+                case '\t':
+                    writer.write("\\t");
+                    break;
+                case '\n':
+                    writer.write("\\n");
+                    break;
+                case '\r':
+                    writer.write("\\r");
+                    break;
+                default:
+                    writer.write(character);
+            }
+        }
+    }
+
+    @Override
+    public void endPage(ACCESSION lastAccession) throws IOException {
+        writer.flush();
+    }
+
+}
@@ -0,0 +1,33 @@
+/*
+ *
+ * Copyright 2018 EMBL - European Bioinformatics Institute
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package uk.ac.ebi.ampt2d.commons.accession.hashing;
+
+import java.util.function.Function;
+
+/**
+ * Hashing function that returns the SHA-1 hash of a summary in its binary representation. The hexadecimal
+ * representation of the returned hashes is the same returned by {@link SHA1HashingFunction}.
+ */
+public class SHA1BinaryHashingFunction implements Function<String, SHA1Hash> {
+
+    @Override
+    public SHA1Hash apply(String summary) {
+        return SHA1Hash.fromBytes(SHA1HashingFunction.toSHA1(summary.getBytes()));
+    }
+
+}
@@ -0,0 +1,163 @@
+/*
+ *
+ * Copyright 2018 EMBL - European Bioinformatics Institute
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package uk.ac.ebi.ampt2d.commons.accession.hashing;
+
+import java.io.Serializable;
+
+/**
+ * Fixed-width binary representation of a SHA-1 hash. The 20 bytes of the hash are kept in two longs and an int, which
+ * takes less than half the memory of its hexadecimal string and is compared and hashed without iterating over
+ * characters.
+ */
+public final class SHA1Hash implements Comparable<SHA1Hash>, Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    public static final int LENGTH = 20;
+
+    private static final char[] HEX_DIGITS = "0123456789ABCDEF".toCharArray();
+
+    private final long high;
+
+    private final long middle;
+
+    private final int low;
+
+    private SHA1Hash(long high, long middle, int low) {
+        this.high = high;
+        this.middle = middle;
+        this.low = low;
+    }
+
+    public static SHA1Hash fromBytes(byte[] bytes) {
+        if (bytes.length != LENGTH) {
+            throw new IllegalArgumentException("A SHA-1 hash has " + LENGTH + " bytes, found " + bytes.length);
+        }
+        return new SHA1Hash(readLong(bytes, 0), readLong(bytes, 8), (int) readBytes(bytes, 16, 4));
+    }
+
+    /**
+     * @param hex Hexadecimal representation of the hash, in upper or lower case
+     */
+    public static SHA1Hash fromHex(String hex) {
+        if (hex.length() != LENGTH * 2) {
+            throw new IllegalArgumentException("A SHA-1 hash has " + LENGTH * 2 + " hexadecimal digits, found " +
+                    hex.length());
+        }
+        byte[] bytes = new byte[LENGTH];
+        for (int i = 0; i < LENGTH; i++) {
+            int highDigit = Character.digit(hex.charAt(i * 2), 16);
+            int lowDigit = Character.digit(hex.charAt(i * 2 + 1), 16);
+            if (highDigit < 0 || lowDigit < 0) {
+                throw new IllegalArgumentException("Invalid hexadecimal SHA-1 hash: " + hex);
+            }
+            bytes[i] = (byte) ((highDigit << 4) | lowDigit);
+        }
+        return fromBytes(bytes);
+    }
+
+    private static long readLong(byte[] bytes, int offset) {
+        return readBytes(bytes, offset, 8);
+    }
+
+    private static long readBytes(byte[] bytes, int offset, int length) {
+        long value = 0;
+        for (int i = offset; i < offset + length; i++) {
+            value = (value << 8) | (bytes[i] & 0xFF);
+        }
+        return value;
+    }
+
+    public byte[] toBytes() {
+        byte[] bytes = new byte[LENGTH];
+        writeBytes(bytes, 0, high, 8);
+        writeBytes(bytes, 8, middle, 8);
+        writeBytes(bytes, 16, low, 4);
+        return bytes;
+    }
+
+    private static void writeBytes(byte[] bytes, int offset, long value, int length) {
+        for (int i = offset + length - 1; i >= offset; i--) {
+            bytes[i] = (byte) value;
+            value >>>= 8;
+        }
+    }
+
+    /**
+     * @return Upper case hexadecimal representation of the hash, like the one returned by {@link SHA1HashingFunction}
+     */
+    public String toHex() {
+        byte[] bytes = toBytes();
+        char[] hex = new char[LENGTH * 2];
+        for (int i = 0; i < LENGTH; i++) {
+            hex[i * 2] = HEX_DIGITS[(bytes[i] >> 4) & 0xF];
+            hex[i * 2 + 1] = HEX_DIGITS[bytes[i] & 0xF];
+        }
+        return new String(hex);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (o == null || getClass() != o.getClass()) {
+            return false;
+        }
+        SHA1Hash sha1Hash = (SHA1Hash) o;
+        return high == sha1Hash.high && middle == sha1Hash.middle && low == sha1Hash.low;
+    }
+
+    /**
+     * The bits of a SHA-1 hash are uniformly distributed, so any of them can be used as hash code.
+     */
+    @Override
+    public int hashCode() {
+        return getLeadingInt();
+    }
+
+    /**
+     * @return The first four bytes of the hash, which are the same in every run of the application, for example to
+     * partition the hashes
+     */
+    public int getLeadingInt() {
+        return (int) (high >>> 32);
+    }
+
+    /**
+     * Compares the hashes as unsigned byte sequences, which is the order of their binary and hexadecimal
+     * representations.
+     */
+    @Override
+    public int compareTo(SHA1Hash other) {
+        int comparison = Long.compareUnsigned(high, other.high);
+        if (comparison == 0) {
+            comparison = Long.compareUnsigned(middle, other.middle);
+        }
+        if (comparison == 0) {
+            comparison = Integer.compareUnsigned(low, other.low);
+        }
+        return comparison;
+    }
+
+    @Override
+    public String toString() {
+        return toHex();
+    }
+
+}
@@ -38,7 +38,7 @@ public class SHA1HashingFunction implements Function<String, String> {
         return DatatypeConverter.printHexBinary(toSHA1(nameBytes));
     }
 
-    private static byte[] toSHA1(byte[] bytes) {
+    static byte[] toSHA1(byte[] bytes) {
         MessageDigest md = null;
         try {
             md = MessageDigest.getInstance("SHA-1");
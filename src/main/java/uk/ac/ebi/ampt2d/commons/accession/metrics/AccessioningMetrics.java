@@ -0,0 +1,74 @@
+/*
+ *
+ * Copyright 2018 EMBL - European Bioinformatics Institute
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package uk.ac.ebi.ampt2d.commons.accession.metrics;
+
+/**
+ * Registry of the timers and counters recorded by the accessioning pipeline. Implementations publish them to a
+ * monitoring system, so that the stage where a slow batch spent its time can be identified in production.
+ */
+public interface AccessioningMetrics {
+
+    String HASHING = "hashing";
+
+    String LOOKUP = "lookup";
+
+    String GENERATION = "generation";
+
+    String SAVE = "save";
+
+    String POST_SAVE = "postSave";
+
+    String CONFLICT_RESOLUTION = "conflictResolution";
+
+    String BATCH_SIZE = "batch.size";
+
+    String EXISTING_MESSAGES = "batch.existing";
+
+    String NEW_MESSAGES = "batch.new";
+
+    String CONFLICTS = "conflicts";
+
+    String RETRIES = "retries";
+
+    String SAVE_FAILURES = "save.failures";
+
+    /**
+     * Records the time spent in a stage of the pipeline.
+     *
+     * @param stage        Name of the stage
+     * @param elapsedNanos Elapsed time in nanoseconds
+     */
+    void recordTime(String stage, long elapsedNanos);
+
+    /**
+     * Records a value measured for each batch, like its size.
+     *
+     * @param name  Name of the value
+     * @param value Value measured for the current batch
+     */
+    void recordValue(String name, long value);
+
+    /**
+     * Increments a counter of events, like conflicts or retries.
+     *
+     * @param name  Name of the counter
+     * @param delta Number of events
+     */
+    void increment(String name, long delta);
+
+}
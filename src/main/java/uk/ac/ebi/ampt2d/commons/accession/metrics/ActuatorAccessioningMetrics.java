@@ -0,0 +1,74 @@
+/*
+ *
+ * Copyright 2018 EMBL - European Bioinformatics Institute
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package uk.ac.ebi.ampt2d.commons.accession.metrics;
+
+import org.springframework.boot.actuate.metrics.GaugeService;
+import org.springframework.boot.actuate.metrics.writer.Delta;
+import org.springframework.boot.actuate.metrics.writer.MetricWriter;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Publishes the accessioning metrics through the Spring Boot actuator, so they are exposed by the metrics endpoint.
+ *
+ * Stage times are submitted to the {@link GaugeService} as "timer.{prefix}.{stage}" gauges in milliseconds and batch
+ * values as "histogram.{prefix}.{name}" gauges. When the Dropwizard metrics library is on the classpath, these
+ * prefixes make the actuator aggregate the measures into timers and histograms. Events are written to the
+ * {@link MetricWriter}, for example an
+ * {@link org.springframework.boot.actuate.metrics.repository.InMemoryMetricRepository} bean, as
+ * "counter.{prefix}.{name}" counters, which are incremented by the whole delta in a single call.
+ *
+ * Requires the optional spring-boot-actuator dependency.
+ */
+public class ActuatorAccessioningMetrics implements AccessioningMetrics {
+
+    public static final String DEFAULT_PREFIX = "accessioning";
+
+    private final GaugeService gaugeService;
+
+    private final MetricWriter metricWriter;
+
+    private final String prefix;
+
+    public ActuatorAccessioningMetrics(GaugeService gaugeService, MetricWriter metricWriter) {
+        this(gaugeService, metricWriter, DEFAULT_PREFIX);
+    }
+
+    public ActuatorAccessioningMetrics(GaugeService gaugeService, MetricWriter metricWriter, String prefix) {
+        this.gaugeService = gaugeService;
+        this.metricWriter = metricWriter;
+        this.prefix = prefix;
+    }
+
+    @Override
+    public void recordTime(String stage, long elapsedNanos) {
+        gaugeService.submit("timer." + prefix + "." + stage,
+                (double) elapsedNanos / TimeUnit.MILLISECONDS.toNanos(1));
+    }
+
+    @Override
+    public void recordValue(String name, long value) {
+        gaugeService.submit("histogram." + prefix + "." + name, value);
+    }
+
+    @Override
+    public void increment(String name, long delta) {
+        metricWriter.increment(new Delta<>("counter." + prefix + "." + name, delta));
+    }
+
+}
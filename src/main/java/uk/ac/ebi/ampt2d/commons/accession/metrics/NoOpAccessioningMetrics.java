@@ -0,0 +1,39 @@
+/*
+ *
+ * Copyright 2018 EMBL - European Bioinformatics Institute
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package uk.ac.ebi.ampt2d.commons.accession.metrics;
+
+/**
+ * Metrics registry that discards all the measures. This is the default registry of the accessioning services.
+ */
+public class NoOpAccessioningMetrics implements AccessioningMetrics {
+
+    public static final NoOpAccessioningMetrics INSTANCE = new NoOpAccessioningMetrics();
+
+    @Override
+    public void recordTime(String stage, long elapsedNanos) {
+    }
+
+    @Override
+    public void recordValue(String name, long value) {
+    }
+
+    @Override
+    public void increment(String name, long delta) {
+    }
+
+}
@@ -17,11 +17,20 @@
  */
 package uk.ac.ebi.ampt2d.commons.accession.persistence;
 
+import org.springframework.beans.BeanUtils;
+import org.springframework.core.GenericTypeResolver;
+import org.springframework.dao.DataAccessException;
+import org.springframework.orm.jpa.vendor.HibernateJpaDialect;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.util.ClassUtils;
+import org.springframework.util.ReflectionUtils;
 import uk.ac.ebi.ampt2d.commons.accession.core.AccessioningRepository;
+import uk.ac.ebi.ampt2d.commons.accession.core.HashedMessageAccession;
 import uk.ac.ebi.ampt2d.commons.accession.generators.ModelHashAccession;
 
+import javax.persistence.EntityManager;
 import java.io.Serializable;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashMap;
 import java.util.List;
@@ -35,6 +44,22 @@ import java.util.stream.Collectors;
  * {@link AccessioningRepository}, a function to generate the entities from the triple model/hash/accession, a function
  * to get the accession from the entity and a function to get the hashed representation of the message from the entity.
  *
+ * The existing accessions are looked up with a {@link HashedMessageAccession} projection, which only reads the hash and
+ * accession columns, if the entity has the "hashedMessage" and "accession" properties. Otherwise, for example when the
+ * id of the entity has another name, the whole entities are read and mapped with the functions that get their
+ * accession and hashed message.
+ *
+ * When an {@link EntityManager} and a write batch size are provided, the entities are saved in write-only mode: they
+ * are persisted directly, and the persistence context is flushed every time that number of entities has been
+ * persisted and the flushed entities are detached, so Hibernate neither keeps nor dirty-checks more than a batch of
+ * them at a time. The other entities managed by the current transaction are flushed too, but stay managed. The
+ * inserts are only sent in JDBC batches if the entities don't use identity generated ids and the application enables
+ * the Hibernate batching, which this library does not set, for example with:
+ * <pre>
+ * spring.jpa.properties.hibernate.jdbc.batch_size=100
+ * spring.jpa.properties.hibernate.order_inserts=true
+ * </pre>
+ *
  * @param <MODEL>
  * @param <ENTITY>
  * @param <HASH>
@@ -51,15 +76,69 @@ public class BasicSpringDataRepositoryDatabaseService<MODEL, ENTITY extends MODE
 
     private final Function<ENTITY, HASH> getHashedMessageFunction;
 
+    private final EntityManager entityManager;
+
+    private final int writeBatchSize;
+
+    private final HibernateJpaDialect jpaDialect;
+
+    private final boolean projectedLookup;
 
     public BasicSpringDataRepositoryDatabaseService(AccessioningRepository<ENTITY, HASH, ACCESSION> repository,
                                                     Function<ModelHashAccession<MODEL, HASH, ACCESSION>, ENTITY> toEntityFunction,
                                                     Function<ENTITY, ACCESSION> getAccessionFunction,
                                                     Function<ENTITY, HASH> getHashedMessageFunction) {
+        this(repository, toEntityFunction, getAccessionFunction, getHashedMessageFunction, null, 0);
+    }
+
+    /**
+     * Saves the entities in write-only mode. Each flush of the persistence context also flushes the pending changes of
+     * the current transaction, and the saved entities are detached from it, so they are not the instances returned by
+     * later queries in the same transaction.
+     *
+     * @param entityManager  Shared entity manager of the transactions in which the entities are saved
+     * @param writeBatchSize Number of entities persisted between each flush of the persistence context
+     */
+    public BasicSpringDataRepositoryDatabaseService(AccessioningRepository<ENTITY, HASH, ACCESSION> repository,
+                                                    Function<ModelHashAccession<MODEL, HASH, ACCESSION>, ENTITY> toEntityFunction,
+                                                    Function<ENTITY, ACCESSION> getAccessionFunction,
+                                                    Function<ENTITY, HASH> getHashedMessageFunction,
+                                                    EntityManager entityManager,
+                                                    int writeBatchSize) {
+        if (entityManager != null && writeBatchSize < 1) {
+            throw new IllegalArgumentException("The write batch size must be greater than 0");
+        }
         this.repository = repository;
         this.toEntityFunction = toEntityFunction;
         this.getAccessionFunction = getAccessionFunction;
         this.getHashedMessageFunction = getHashedMessageFunction;
+        this.entityManager = entityManager;
+        this.writeBatchSize = writeBatchSize;
+        this.jpaDialect = entityManager != null ? new HibernateJpaDialect() : null;
+        this.projectedLookup = hasHashedMessageAccessionProperties(repository);
+    }
+
+    /**
+     * Resolves the entity class from the repository interface, if possible, to check the properties required by the
+     * projection.
+     */
+    private static boolean hasHashedMessageAccessionProperties(Object repository) {
+        for (Class<?> repositoryInterface : ClassUtils.getAllInterfaces(repository)) {
+            if (AccessioningRepository.class.isAssignableFrom(repositoryInterface)) {
+                Class<?>[] typeArguments = GenericTypeResolver.resolveTypeArguments(repositoryInterface,
+                        AccessioningRepository.class);
+                if (typeArguments != null && typeArguments[0] != null) {
+                    Class<?> entityClass = typeArguments[0];
+                    return hasProperty(entityClass, "hashedMessage") && hasProperty(entityClass, "accession");
+                }
+            }
+        }
+        return false;
+    }
+
+    private static boolean hasProperty(Class<?> entityClass, String property) {
+        return BeanUtils.getPropertyDescriptor(entityClass, property) != null
+                || ReflectionUtils.findField(entityClass, property) != null;
     }
 
     @Override
@@ -69,22 +148,61 @@ public class BasicSpringDataRepositoryDatabaseService<MODEL, ENTITY extends MODE
     }
 
     @Override
+    @SuppressWarnings("unchecked")
     public Map<HASH, ACCESSION> getExistingAccessions(Collection<HASH> hashes) {
-        return repository.findByHashedMessageIn(hashes).stream()
-                .collect(Collectors.toMap(getHashedMessageFunction, getAccessionFunction));
+        if (!projectedLookup) {
+            return repository.findByHashedMessageIn(hashes).stream()
+                    .collect(Collectors.toMap(getHashedMessageFunction, getAccessionFunction));
+        }
+        Collection<HashedMessageAccession<HASH, ACCESSION>> hashedMessageAccessions =
+                repository.findByHashedMessageIn(hashes,
+                        (Class<HashedMessageAccession<HASH, ACCESSION>>) (Class<?>) HashedMessageAccession.class);
+        return hashedMessageAccessions.stream()
+                .collect(Collectors.toMap(HashedMessageAccession::getHashedMessage,
+                        HashedMessageAccession::getAccession));
     }
 
     @Override
     @Transactional
     public void save(List<ModelHashAccession<MODEL, HASH, ACCESSION>> objects) {
-        HashMap<ACCESSION, MODEL> savedAccessions = new HashMap<>();
-        HashMap<ACCESSION, MODEL> unsavedAccessions = new HashMap<>();
+        if (entityManager != null) {
+            persistInBatches(objects);
+            return;
+        }
 
         Set<ENTITY> entitySet = objects.stream()
                 .map(toEntityFunction).collect(Collectors.toSet());
         repository.save(entitySet);
     }
 
+    private void persistInBatches(List<ModelHashAccession<MODEL, HASH, ACCESSION>> objects) {
+        try {
+            List<ENTITY> batch = new ArrayList<>(writeBatchSize);
+            for (ModelHashAccession<MODEL, HASH, ACCESSION> object : objects) {
+                ENTITY entity = toEntityFunction.apply(object);
+                entityManager.persist(entity);
+                batch.add(entity);
+                if (batch.size() == writeBatchSize) {
+                    flushAndDetach(batch);
+                }
+            }
+            flushAndDetach(batch);
+        } catch (RuntimeException e) {
+            DataAccessException translatedException = jpaDialect.translateExceptionIfPossible(e);
+            throw translatedException != null ? translatedException : e;
+        }
+    }
+
+    /**
+     * Only the saved entities are detached, clearing the persistence context would detach the entities of the caller
+     * too.
+     */
+    private void flushAndDetach(List<ENTITY> batch) {
+        entityManager.flush();
+        batch.forEach(entityManager::detach);
+        batch.clear();
+    }
+
     @Override
     public Map<ACCESSION, MODEL> findAllAccessionMappingsByAccessions(List<ACCESSION> accessions) {
         Map<ACCESSION, MODEL> result = new HashMap<>();
@@ -0,0 +1,226 @@
+/*
+ *
+ * Copyright 2018 EMBL - European Bioinformatics Institute
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package uk.ac.ebi.ampt2d.commons.accession.persistence;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import uk.ac.ebi.ampt2d.commons.accession.core.SaveResponse;
+import uk.ac.ebi.ampt2d.commons.accession.generators.ModelHashAccession;
+import uk.ac.ebi.ampt2d.commons.accession.utils.BloomFilter;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Decorator of a {@link DatabaseService} that keeps a {@link BloomFilter} of all the persisted hashes, so that the
+ * existence checks done before saving new objects only reach the database for the hashes that might exist. When most
+ * of the accessioned objects are new, most of those queries are skipped.
+ * <p>
+ * The filter is built streaming all the persisted hashes when the bean is initialised, or when {@link #rebuild()} is
+ * called, and it is sized from the number of persisted hashes at that moment. With a {@link
+ * uk.ac.ebi.ampt2d.commons.accession.persistence.jdbc.JdbcDatabaseService}, the hashes can be streamed from the
+ * accession table with its {@code streamHashes} and {@code countHashes} methods. Until it has been built, all the
+ * queries are sent to the database. Hashes saved or inserted through this service are added to the filter, but hashes
+ * saved by other application instances are not, so the filter should be rebuilt periodically.
+ * <p>
+ * Only {@link #getExistingAccessions(Collection)} is filtered, as it is the check done before saving. A hash missed by
+ * the filter is not lost: the object is considered new and its save is rejected by the database constraints, like it
+ * happens when two instances accession the same object at the same time. The accessions of those hashes are then
+ * looked up with {@link #getConflictingAccessions(Collection)}, which is never filtered, and the hashes are added to
+ * the filter. The reads of the stored objects, {@link #findAllAccessionsByHash(Collection)}, are never filtered
+ * either, so they always return the objects stored by other instances.
+ * <p>
+ * Hashes saved in a transaction that has not committed yet are not visible to a rebuild, so they are kept apart until
+ * the transaction completes and added to any filter built in the meantime.
+ *
+ * @param <MODEL>
+ * @param <HASH>
+ * @param <ACCESSION>
+ */
+public class BloomFilterDatabaseService<MODEL, HASH, ACCESSION>
+        implements InsertIfAbsentDatabaseService<MODEL, HASH, ACCESSION>, InitializingBean {
+
+    private static final Logger logger = LoggerFactory.getLogger(BloomFilterDatabaseService.class);
+
+    /**
+     * The filter is sized to hold this many times the persisted hashes, so that it keeps its false positive
+     * probability while the table grows until the next rebuild.
+     */
+    private static final int CAPACITY_FACTOR = 2;
+
+    private static final int MIN_EXPECTED_INSERTIONS = 1000;
+
+    private final DatabaseService<MODEL, HASH, ACCESSION> dbService;
+
+    private final Supplier<Stream<HASH>> persistedHashesSupplier;
+
+    private final LongSupplier numberOfPersistedHashesSupplier;
+
+    private final double falsePositiveProbability;
+
+    private volatile BloomFilter<HASH> filter;
+
+    private volatile BloomFilter<HASH> filterInConstruction;
+
+    private final Set<HASH> uncommittedHashes = ConcurrentHashMap.newKeySet();
+
+    /**
+     * @param dbService                       Decorated database service
+     * @param persistedHashesSupplier         Stream of all the hashes in the database, it will be closed after use
+     * @param numberOfPersistedHashesSupplier Number of hashes in the database
+     * @param falsePositiveProbability        Probability of querying the database for a hash that does not exist
+     */
+    public BloomFilterDatabaseService(DatabaseService<MODEL, HASH, ACCESSION> dbService,
+                                      Supplier<Stream<HASH>> persistedHashesSupplier,
+                                      LongSupplier numberOfPersistedHashesSupplier,
+                                      double falsePositiveProbability) {
+        this.dbService = dbService;
+        this.persistedHashesSupplier = persistedHashesSupplier;
+        this.numberOfPersistedHashesSupplier = numberOfPersistedHashesSupplier;
+        this.falsePositiveProbability = falsePositiveProbability;
+    }
+
+    @Override
+    public void afterPropertiesSet() {
+        rebuild();
+    }
+
+    /**
+     * Builds a new filter sized from the current number of hashes in the database and replaces the current one.
+     * Hashes saved while the filter is being built are added to both filters.
+     */
+    public synchronized void rebuild() {
+        long start = System.currentTimeMillis();
+        long expectedInsertions = Math.max(MIN_EXPECTED_INSERTIONS,
+                numberOfPersistedHashesSupplier.getAsLong() * CAPACITY_FACTOR);
+        BloomFilter<HASH> newFilter = BloomFilter.ofStringRepresentation(expectedInsertions,
+                falsePositiveProbability);
+        filterInConstruction = newFilter;
+        uncommittedHashes.forEach(newFilter::add);
+        try (Stream<HASH> persistedHashes = persistedHashesSupplier.get()) {
+            persistedHashes.forEach(newFilter::add);
+            filter = newFilter;
+        } finally {
+            filterInConstruction = null;
+        }
+        logger.info("Bloom filter of {} bits built for {} expected hashes in {} ms", newFilter.getNumberOfBits(),
+                expectedInsertions, System.currentTimeMillis() - start);
+    }
+
+    @Override
+    public Map<ACCESSION, MODEL> findAllAccessionsByHash(Collection<HASH> hashes) {
+        return dbService.findAllAccessionsByHash(hashes);
+    }
+
+    @Override
+    public Map<HASH, ACCESSION> getExistingAccessions(Collection<HASH> hashes) {
+        Collection<HASH> candidateHashes = filterCandidates(hashes);
+        if (candidateHashes.isEmpty()) {
+            return new HashMap<>();
+        }
+        return dbService.getExistingAccessions(candidateHashes);
+    }
+
+    @Override
+    public Map<HASH, ACCESSION> getConflictingAccessions(Collection<HASH> hashes) {
+        Map<HASH, ACCESSION> conflictingAccessions = dbService.getConflictingAccessions(hashes);
+        addToFilters(conflictingAccessions.keySet());
+        return conflictingAccessions;
+    }
+
+    private Collection<HASH> filterCandidates(Collection<HASH> hashes) {
+        BloomFilter<HASH> currentFilter = filter;
+        if (currentFilter == null) {
+            return hashes;
+        }
+        return hashes.stream().filter(currentFilter::mightContain).collect(Collectors.toList());
+    }
+
+    @Override
+    public void save(List<ModelHashAccession<MODEL, HASH, ACCESSION>> objects) {
+        dbService.save(objects);
+        addSavedHashes(objects);
+    }
+
+    /**
+     * The hashes of the skipped objects are added too, as most of them are already stored.
+     */
+    @Override
+    public SaveResponse<ACCESSION, MODEL> insertIfAbsent(List<ModelHashAccession<MODEL, HASH, ACCESSION>> objects) {
+        SaveResponse<ACCESSION, MODEL> response = InsertIfAbsentDatabaseService.asInsertIfAbsent(dbService)
+                .insertIfAbsent(objects);
+        addSavedHashes(objects);
+        return response;
+    }
+
+    @Override
+    public boolean supportsInsertIfAbsent() {
+        return InsertIfAbsentDatabaseService.canInsertIfAbsent(dbService);
+    }
+
+    private void addSavedHashes(List<ModelHashAccession<MODEL, HASH, ACCESSION>> objects) {
+        List<HASH> hashes = objects.stream().map(ModelHashAccession::hash).collect(Collectors.toList());
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            // Registered before adding them to the filters, so that a rebuild that starts in between still sees them
+            uncommittedHashes.addAll(hashes);
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+                @Override
+                public void afterCompletion(int status) {
+                    uncommittedHashes.removeAll(hashes);
+                }
+            });
+        }
+        addToFilters(hashes);
+    }
+
+    private void addToFilters(Collection<HASH> hashes) {
+        BloomFilter<HASH> newFilter = filterInConstruction;
+        if (newFilter != null) {
+            hashes.forEach(newFilter::add);
+        }
+        BloomFilter<HASH> currentFilter = filter;
+        if (currentFilter != null) {
+            hashes.forEach(currentFilter::add);
+        }
+    }
+
+    @Override
+    public Map<ACCESSION, MODEL> findAllAccessionMappingsByAccessions(List<ACCESSION> accessions) {
+        return dbService.findAllAccessionMappingsByAccessions(accessions);
+    }
+
+    protected DatabaseService<MODEL, HASH, ACCESSION> getDbService() {
+        return dbService;
+    }
+
+    public boolean isBuilt() {
+        return filter != null;
+    }
+
+}
@@ -0,0 +1,220 @@
+/*
+ *
+ * Copyright 2018 EMBL - European Bioinformatics Institute
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package uk.ac.ebi.ampt2d.commons.accession.persistence;
+
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import uk.ac.ebi.ampt2d.commons.accession.core.SaveResponse;
+import uk.ac.ebi.ampt2d.commons.accession.generators.ModelHashAccession;
+import uk.ac.ebi.ampt2d.commons.accession.utils.LruCache;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.function.ToLongFunction;
+import java.util.stream.Collectors;
+
+/**
+ * Decorator of a {@link DatabaseService} that keeps a bounded cache of the hash to accession mappings. As an accession
+ * never changes once it has been assigned to a hash, the mappings are never invalidated, only evicted when the cache
+ * is full.
+ * <p>
+ * The cache is filled with the results of {@link #getExistingAccessions(Collection)} and with the objects stored by
+ * {@link #save(List)} or inserted by {@link #insertIfAbsent(List)}. If the save is part of a larger transaction, the
+ * objects are cached only after it commits.
+ * <p>
+ * Optionally, it keeps a second cache of the accession to model mappings returned by
+ * {@link #findAllAccessionMappingsByAccessions(List)}, bounded by the total weight of the cached models, so that the
+ * most requested accessions are served without querying the database. Only the accessions that are not cached are
+ * queried.
+ *
+ * @param <MODEL>
+ * @param <HASH>
+ * @param <ACCESSION>
+ */
+public class CachingDatabaseService<MODEL, HASH, ACCESSION>
+        implements InsertIfAbsentDatabaseService<MODEL, HASH, ACCESSION> {
+
+    private final DatabaseService<MODEL, HASH, ACCESSION> dbService;
+
+    private final LruCache<HASH, ACCESSION> hashToAccessionCache;
+
+    private final LruCache<ACCESSION, MODEL> accessionToModelCache;
+
+    public CachingDatabaseService(DatabaseService<MODEL, HASH, ACCESSION> dbService, int maxCachedHashes) {
+        this.dbService = dbService;
+        this.hashToAccessionCache = new LruCache<>(maxCachedHashes);
+        this.accessionToModelCache = null;
+    }
+
+    /**
+     * @param dbService             Decorated database service
+     * @param maxCachedHashes       Max number of cached hash to accession mappings
+     * @param maxCachedModelsWeight Max total weight of the cached models
+     * @param modelWeigher          Weight of a model, for example an estimation of its size in memory, or 1 to bound
+     *                              the number of cached models
+     */
+    public CachingDatabaseService(DatabaseService<MODEL, HASH, ACCESSION> dbService, int maxCachedHashes,
+                                  long maxCachedModelsWeight, ToLongFunction<? super MODEL> modelWeigher) {
+        this.dbService = dbService;
+        this.hashToAccessionCache = new LruCache<>(maxCachedHashes);
+        this.accessionToModelCache = new LruCache<>(maxCachedModelsWeight, modelWeigher);
+    }
+
+    @Override
+    public Map<ACCESSION, MODEL> findAllAccessionsByHash(Collection<HASH> hashes) {
+        return dbService.findAllAccessionsByHash(hashes);
+    }
+
+    @Override
+    public Map<HASH, ACCESSION> getExistingAccessions(Collection<HASH> hashes) {
+        return getCachedOrStoredAccessions(hashes, dbService::getExistingAccessions);
+    }
+
+    /**
+     * The cached mappings never change, so only the hashes that are not cached need to reach the database.
+     */
+    @Override
+    public Map<HASH, ACCESSION> getConflictingAccessions(Collection<HASH> hashes) {
+        return getCachedOrStoredAccessions(hashes, dbService::getConflictingAccessions);
+    }
+
+    private Map<HASH, ACCESSION> getCachedOrStoredAccessions(
+            Collection<HASH> hashes, Function<Collection<HASH>, Map<HASH, ACCESSION>> lookup) {
+        Map<HASH, ACCESSION> existingAccessions = new HashMap<>();
+        List<HASH> notCachedHashes = new ArrayList<>();
+        for (HASH hash : hashes) {
+            ACCESSION accession = hashToAccessionCache.get(hash);
+            if (accession != null) {
+                existingAccessions.put(hash, accession);
+            } else {
+                notCachedHashes.add(hash);
+            }
+        }
+
+        if (!notCachedHashes.isEmpty()) {
+            Map<HASH, ACCESSION> storedAccessions = lookup.apply(notCachedHashes);
+            hashToAccessionCache.putAll(storedAccessions);
+            existingAccessions.putAll(storedAccessions);
+        }
+        return existingAccessions;
+    }
+
+    @Override
+    public void save(List<ModelHashAccession<MODEL, HASH, ACCESSION>> objects) {
+        dbService.save(objects);
+        cacheAfterCommit(objects);
+    }
+
+    @Override
+    public SaveResponse<ACCESSION, MODEL> insertIfAbsent(List<ModelHashAccession<MODEL, HASH, ACCESSION>> objects) {
+        SaveResponse<ACCESSION, MODEL> response = InsertIfAbsentDatabaseService.asInsertIfAbsent(dbService)
+                .insertIfAbsent(objects);
+        Map<ACCESSION, MODEL> savedAccessions = response.getSavedAccessions();
+        cacheAfterCommit(objects.stream().filter(mha -> savedAccessions.containsKey(mha.accession()))
+                .collect(Collectors.toList()));
+        return response;
+    }
+
+    @Override
+    public boolean supportsInsertIfAbsent() {
+        return InsertIfAbsentDatabaseService.canInsertIfAbsent(dbService);
+    }
+
+    private void cacheAfterCommit(List<ModelHashAccession<MODEL, HASH, ACCESSION>> objects) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+                @Override
+                public void afterCommit() {
+                    cacheSavedObjects(objects);
+                }
+            });
+        } else {
+            cacheSavedObjects(objects);
+        }
+    }
+
+    private void cacheSavedObjects(List<ModelHashAccession<MODEL, HASH, ACCESSION>> objects) {
+        objects.forEach(mha -> hashToAccessionCache.put(mha.hash(), mha.accession()));
+    }
+
+    @Override
+    public Map<ACCESSION, MODEL> findAllAccessionMappingsByAccessions(List<ACCESSION> accessions) {
+        if (accessionToModelCache == null) {
+            return dbService.findAllAccessionMappingsByAccessions(accessions);
+        }
+
+        Map<ACCESSION, MODEL> accessionToModels = new HashMap<>();
+        List<ACCESSION> notCachedAccessions = new ArrayList<>();
+        for (ACCESSION accession : accessions) {
+            MODEL model = accessionToModelCache.get(accession);
+            if (model != null) {
+                accessionToModels.put(accession, model);
+            } else {
+                notCachedAccessions.add(accession);
+            }
+        }
+
+        if (!notCachedAccessions.isEmpty()) {
+            Map<ACCESSION, MODEL> storedModels = dbService.findAllAccessionMappingsByAccessions(notCachedAccessions);
+            accessionToModelCache.putAll(storedModels);
+            accessionToModels.putAll(storedModels);
+        }
+        return accessionToModels;
+    }
+
+    protected DatabaseService<MODEL, HASH, ACCESSION> getDbService() {
+        return dbService;
+    }
+
+    public int getCachedHashes() {
+        return hashToAccessionCache.size();
+    }
+
+    public long getHits() {
+        return hashToAccessionCache.getHits();
+    }
+
+    public long getMisses() {
+        return hashToAccessionCache.getMisses();
+    }
+
+    public long getEvictions() {
+        return hashToAccessionCache.getEvictions();
+    }
+
+    public int getCachedModels() {
+        return accessionToModelCache != null ? accessionToModelCache.size() : 0;
+    }
+
+    public long getModelHits() {
+        return accessionToModelCache != null ? accessionToModelCache.getHits() : 0;
+    }
+
+    public long getModelMisses() {
+        return accessionToModelCache != null ? accessionToModelCache.getMisses() : 0;
+    }
+
+    public long getModelEvictions() {
+        return accessionToModelCache != null ? accessionToModelCache.getEvictions() : 0;
+    }
+
+}
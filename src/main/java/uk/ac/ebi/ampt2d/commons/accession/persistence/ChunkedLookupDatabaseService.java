@@ -0,0 +1,175 @@
+/*
+ *
+ * Copyright 2018 EMBL - European Bioinformatics Institute
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package uk.ac.ebi.ampt2d.commons.accession.persistence;
+
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import uk.ac.ebi.ampt2d.commons.accession.core.SaveResponse;
+import uk.ac.ebi.ampt2d.commons.accession.generators.ModelHashAccession;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.function.Function;
+
+/**
+ * Decorator of a {@link DatabaseService} that splits the queries by a large collection of hashes or accessions into
+ * chunks of bounded size, so that the IN lists of the queries stay below the parameter limits of the drivers.
+ * <p>
+ * To allow the database and the driver to reuse the prepared statements, each chunk is padded up to a canonical size
+ * (a power of two, up to the max chunk size) by repeating its last value, which does not change the result of the
+ * query. If an executor is provided, the chunks are queried concurrently in it, and so using different connections;
+ * the executor should be bounded according to the database connection pool. Those connections are outside of the
+ * transaction of the caller, and would not see its uncommitted writes, so the chunks are queried sequentially when
+ * there is an active transaction in the calling thread.
+ *
+ * @param <MODEL>
+ * @param <HASH>
+ * @param <ACCESSION>
+ */
+public class ChunkedLookupDatabaseService<MODEL, HASH, ACCESSION>
+        implements InsertIfAbsentDatabaseService<MODEL, HASH, ACCESSION> {
+
+    private static final int MIN_PADDED_SIZE = 8;
+
+    private final DatabaseService<MODEL, HASH, ACCESSION> dbService;
+
+    private final int maxChunkSize;
+
+    private final Executor executor;
+
+    public ChunkedLookupDatabaseService(DatabaseService<MODEL, HASH, ACCESSION> dbService, int maxChunkSize) {
+        this(dbService, maxChunkSize, null);
+    }
+
+    /**
+     * @param dbService    Decorated database service
+     * @param maxChunkSize Max number of values in each query
+     * @param executor     Executor where the chunks are queried concurrently, when not called in a transaction
+     */
+    public ChunkedLookupDatabaseService(DatabaseService<MODEL, HASH, ACCESSION> dbService, int maxChunkSize,
+                                        Executor executor) {
+        if (maxChunkSize < 1) {
+            throw new IllegalArgumentException("The max chunk size must be at least 1");
+        }
+        this.dbService = dbService;
+        this.maxChunkSize = maxChunkSize;
+        this.executor = executor;
+    }
+
+    @Override
+    public Map<ACCESSION, MODEL> findAllAccessionsByHash(Collection<HASH> hashes) {
+        return queryInChunks(hashes, dbService::findAllAccessionsByHash);
+    }
+
+    @Override
+    public Map<HASH, ACCESSION> getExistingAccessions(Collection<HASH> hashes) {
+        return queryInChunks(hashes, dbService::getExistingAccessions);
+    }
+
+    @Override
+    public Map<HASH, ACCESSION> getConflictingAccessions(Collection<HASH> hashes) {
+        return queryInChunks(hashes, dbService::getConflictingAccessions);
+    }
+
+    @Override
+    public void save(List<ModelHashAccession<MODEL, HASH, ACCESSION>> objects) {
+        dbService.save(objects);
+    }
+
+    @Override
+    public SaveResponse<ACCESSION, MODEL> insertIfAbsent(List<ModelHashAccession<MODEL, HASH, ACCESSION>> objects) {
+        return InsertIfAbsentDatabaseService.asInsertIfAbsent(dbService).insertIfAbsent(objects);
+    }
+
+    @Override
+    public boolean supportsInsertIfAbsent() {
+        return InsertIfAbsentDatabaseService.canInsertIfAbsent(dbService);
+    }
+
+    @Override
+    public Map<ACCESSION, MODEL> findAllAccessionMappingsByAccessions(List<ACCESSION> accessions) {
+        return queryInChunks(accessions, dbService::findAllAccessionMappingsByAccessions);
+    }
+
+    private <T, K, V> Map<K, V> queryInChunks(Collection<T> values, Function<List<T>, Map<K, V>> query) {
+        if (values.isEmpty()) {
+            return query.apply(new ArrayList<>());
+        }
+        List<List<T>> chunks = splitInPaddedChunks(values);
+        Map<K, V> result = new HashMap<>();
+        if (executor == null || chunks.size() == 1
+                || TransactionSynchronizationManager.isActualTransactionActive()) {
+            chunks.forEach(chunk -> result.putAll(query.apply(chunk)));
+            return result;
+        }
+        List<CompletableFuture<Map<K, V>>> futures = new ArrayList<>(chunks.size());
+        for (List<T> chunk : chunks) {
+            futures.add(CompletableFuture.supplyAsync(() -> query.apply(chunk), executor));
+        }
+        try {
+            futures.forEach(future -> result.putAll(future.join()));
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            if (e.getCause() instanceof Error) {
+                throw (Error) e.getCause();
+            }
+            throw e;
+        }
+        return result;
+    }
+
+    private <T> List<List<T>> splitInPaddedChunks(Collection<T> values) {
+        List<List<T>> chunks = new ArrayList<>();
+        List<T> chunk = new ArrayList<>(maxChunkSize);
+        for (T value : values) {
+            chunk.add(value);
+            if (chunk.size() == maxChunkSize) {
+                chunks.add(chunk);
+                chunk = new ArrayList<>(maxChunkSize);
+            }
+        }
+        if (!chunk.isEmpty()) {
+            T lastValue = chunk.get(chunk.size() - 1);
+            int paddedSize = getPaddedSize(chunk.size());
+            while (chunk.size() < paddedSize) {
+                chunk.add(lastValue);
+            }
+            chunks.add(chunk);
+        }
+        return chunks;
+    }
+
+    private int getPaddedSize(int size) {
+        if (size <= MIN_PADDED_SIZE) {
+            return Math.min(MIN_PADDED_SIZE, maxChunkSize);
+        }
+        return Math.min(Integer.highestOneBit(size - 1) << 1, maxChunkSize);
+    }
+
+    protected DatabaseService<MODEL, HASH, ACCESSION> getDbService() {
+        return dbService;
+    }
+
+}
@@ -38,6 +38,16 @@ public interface DatabaseService<MODEL, HASH, ACCESSION> {
 
     Map<HASH, ACCESSION> getExistingAccessions(Collection<HASH> hashes);
 
+    /**
+     * Looks up the accessions of the hashes that could not be saved because they were already stored, for example by
+     * another application instance. Unlike {@link #getExistingAccessions(Collection)}, the lookup must always reach
+     * the database where the objects are saved, so decorators that skip hashes or read from other sources must not
+     * apply to it.
+     */
+    default Map<HASH, ACCESSION> getConflictingAccessions(Collection<HASH> hashes) {
+        return getExistingAccessions(hashes);
+    }
+
     @Transactional
     void save(List<ModelHashAccession<MODEL, HASH, ACCESSION>> objects);
 
@@ -0,0 +1,45 @@
+/*
+ *
+ * Copyright 2018 EMBL - European Bioinformatics Institute
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package uk.ac.ebi.ampt2d.commons.accession.persistence;
+
+import uk.ac.ebi.ampt2d.commons.accession.export.AccessionExportSink;
+
+import java.io.IOException;
+
+/**
+ * Database service that can export all the stored objects, streaming them in accession order to a sink instead of
+ * loading them in memory.
+ *
+ * @param <MODEL>
+ * @param <HASH>
+ * @param <ACCESSION>
+ */
+public interface ExportableDatabaseService<MODEL, HASH, ACCESSION> extends DatabaseService<MODEL, HASH, ACCESSION> {
+
+    /**
+     * Writes to the sink the stored objects whose accessions are greater than the given one, in accession order. An
+     * interrupted export can be resumed by passing the last accession written by the previous one.
+     *
+     * @param fromAccession Last accession already exported, or null to export all the objects
+     * @param sink          Destination of the objects
+     * @return The last exported accession, or the given one if there were no more objects to export
+     * @throws IOException If the sink fails to write an object
+     */
+    ACCESSION export(ACCESSION fromAccession, AccessionExportSink<MODEL, HASH, ACCESSION> sink) throws IOException;
+
+}
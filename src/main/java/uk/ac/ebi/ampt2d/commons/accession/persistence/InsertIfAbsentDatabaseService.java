@@ -0,0 +1,80 @@
+/*
+ *
+ * Copyright 2018 EMBL - European Bioinformatics Institute
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package uk.ac.ebi.ampt2d.commons.accession.persistence;
+
+import org.springframework.transaction.annotation.Transactional;
+import uk.ac.ebi.ampt2d.commons.accession.core.SaveResponse;
+import uk.ac.ebi.ampt2d.commons.accession.generators.ModelHashAccession;
+
+import java.util.List;
+
+/**
+ * Database service that can store a batch of objects skipping, instead of failing on, the objects whose hash or
+ * accession are already stored.
+ * <p>
+ * The decorators of this library implement this interface and forward the inserts to the service they decorate, so
+ * that they keep track of the inserted objects like they do with the saved ones. Whether a decorator can actually
+ * insert depends on the decorated service, as told by {@link #supportsInsertIfAbsent()}.
+ *
+ * @param <MODEL>
+ * @param <HASH>
+ * @param <ACCESSION>
+ */
+public interface InsertIfAbsentDatabaseService<MODEL, HASH, ACCESSION> extends DatabaseService<MODEL, HASH, ACCESSION> {
+
+    /**
+     * Stores the objects whose hash and accession are not already stored.
+     *
+     * @param objects
+     * @return The stored objects as saved accessions and the skipped ones as unsaved accessions
+     */
+    @Transactional
+    SaveResponse<ACCESSION, MODEL> insertIfAbsent(List<ModelHashAccession<MODEL, HASH, ACCESSION>> objects);
+
+    /**
+     * @return Whether {@link #insertIfAbsent(List)} can be called, which for a decorator depends on the decorated
+     * service
+     */
+    default boolean supportsInsertIfAbsent() {
+        return true;
+    }
+
+    /**
+     * @param dbService
+     * @return Whether the service supports {@link #insertIfAbsent(List)}
+     */
+    static boolean canInsertIfAbsent(DatabaseService<?, ?, ?> dbService) {
+        return dbService instanceof InsertIfAbsentDatabaseService
+                && ((InsertIfAbsentDatabaseService<?, ?, ?>) dbService).supportsInsertIfAbsent();
+    }
+
+    /**
+     * @param dbService
+     * @return The service as an {@link InsertIfAbsentDatabaseService}
+     * @throws UnsupportedOperationException if the service does not support {@link #insertIfAbsent(List)}
+     */
+    static <MODEL, HASH, ACCESSION> InsertIfAbsentDatabaseService<MODEL, HASH, ACCESSION> asInsertIfAbsent(
+            DatabaseService<MODEL, HASH, ACCESSION> dbService) {
+        if (!canInsertIfAbsent(dbService)) {
+            throw new UnsupportedOperationException(dbService.getClass().getSimpleName()
+                    + " does not support inserting if absent");
+        }
+        return (InsertIfAbsentDatabaseService<MODEL, HASH, ACCESSION>) dbService;
+    }
+
+}
@@ -0,0 +1,171 @@
+/*
+ *
+ * Copyright 2018 EMBL - European Bioinformatics Institute
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package uk.ac.ebi.ampt2d.commons.accession.persistence;
+
+import uk.ac.ebi.ampt2d.commons.accession.core.SaveResponse;
+import uk.ac.ebi.ampt2d.commons.accession.generators.ModelHashAccession;
+import uk.ac.ebi.ampt2d.commons.accession.utils.LruCache;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Decorator of a {@link DatabaseService} that sends the read-only queries to a pool of read replicas, in round-robin,
+ * and the saves to the primary database service.
+ * <p>
+ * The replicas may lag behind the primary, so the re-check of the conflicting hashes after a failed save,
+ * {@link #getConflictingAccessions(Collection)}, is always sent to the primary. Besides, the hashes and accessions of
+ * the objects passed to {@link #save(List)} or {@link #insertIfAbsent(List)} are remembered in a bounded cache, and
+ * the queries for them are sent to the primary too, so that the queries for objects recently saved by this service
+ * read their own writes. Any other hash or accession is queried in a replica.
+ *
+ * @param <MODEL>
+ * @param <HASH>
+ * @param <ACCESSION>
+ */
+public class ReadReplicaDatabaseService<MODEL, HASH, ACCESSION>
+        implements InsertIfAbsentDatabaseService<MODEL, HASH, ACCESSION> {
+
+    private final DatabaseService<MODEL, HASH, ACCESSION> dbService;
+
+    private final List<DatabaseService<MODEL, HASH, ACCESSION>> replicas;
+
+    private final AtomicInteger nextReplica;
+
+    private final LruCache<HASH, Boolean> recentlySavedHashes;
+
+    private final LruCache<ACCESSION, Boolean> recentlySavedAccessions;
+
+    /**
+     * @param dbService               Database service of the primary database, that receives the saves
+     * @param replica                 Database service of the read replica
+     * @param maxRecentlySavedObjects Max number of saved objects whose queries are still sent to the primary
+     */
+    public ReadReplicaDatabaseService(DatabaseService<MODEL, HASH, ACCESSION> dbService,
+                                      DatabaseService<MODEL, HASH, ACCESSION> replica, int maxRecentlySavedObjects) {
+        this(dbService, Collections.singletonList(replica), maxRecentlySavedObjects);
+    }
+
+    /**
+     * @param dbService               Database service of the primary database, that receives the saves
+     * @param replicas                Database services of the read replicas
+     * @param maxRecentlySavedObjects Max number of saved objects whose queries are still sent to the primary
+     */
+    public ReadReplicaDatabaseService(DatabaseService<MODEL, HASH, ACCESSION> dbService,
+                                      List<? extends DatabaseService<MODEL, HASH, ACCESSION>> replicas,
+                                      int maxRecentlySavedObjects) {
+        if (replicas.isEmpty()) {
+            throw new IllegalArgumentException("At least one read replica is required");
+        }
+        this.dbService = dbService;
+        this.replicas = new ArrayList<>(replicas);
+        this.nextReplica = new AtomicInteger();
+        this.recentlySavedHashes = new LruCache<>(maxRecentlySavedObjects);
+        this.recentlySavedAccessions = new LruCache<>(maxRecentlySavedObjects);
+    }
+
+    @Override
+    public Map<ACCESSION, MODEL> findAllAccessionsByHash(Collection<HASH> hashes) {
+        return route(hashes, recentlySavedHashes, DatabaseService::findAllAccessionsByHash);
+    }
+
+    @Override
+    public Map<HASH, ACCESSION> getExistingAccessions(Collection<HASH> hashes) {
+        return route(hashes, recentlySavedHashes, DatabaseService::getExistingAccessions);
+    }
+
+    @Override
+    public Map<HASH, ACCESSION> getConflictingAccessions(Collection<HASH> hashes) {
+        return dbService.getConflictingAccessions(hashes);
+    }
+
+    @Override
+    public void save(List<ModelHashAccession<MODEL, HASH, ACCESSION>> objects) {
+        rememberSavedObjects(objects);
+        dbService.save(objects);
+    }
+
+    @Override
+    public SaveResponse<ACCESSION, MODEL> insertIfAbsent(List<ModelHashAccession<MODEL, HASH, ACCESSION>> objects) {
+        InsertIfAbsentDatabaseService<MODEL, HASH, ACCESSION> primary =
+                InsertIfAbsentDatabaseService.asInsertIfAbsent(dbService);
+        rememberSavedObjects(objects);
+        return primary.insertIfAbsent(objects);
+    }
+
+    @Override
+    public boolean supportsInsertIfAbsent() {
+        return InsertIfAbsentDatabaseService.canInsertIfAbsent(dbService);
+    }
+
+    private void rememberSavedObjects(List<ModelHashAccession<MODEL, HASH, ACCESSION>> objects) {
+        for (ModelHashAccession<MODEL, HASH, ACCESSION> object : objects) {
+            recentlySavedHashes.put(object.hash(), Boolean.TRUE);
+            recentlySavedAccessions.put(object.accession(), Boolean.TRUE);
+        }
+    }
+
+    @Override
+    public Map<ACCESSION, MODEL> findAllAccessionMappingsByAccessions(List<ACCESSION> accessions) {
+        return route(accessions, recentlySavedAccessions,
+                (databaseService, values) -> databaseService.findAllAccessionMappingsByAccessions(
+                        new ArrayList<>(values)));
+    }
+
+    private <KEY, K, V> Map<K, V> route(Collection<KEY> keys, LruCache<KEY, Boolean> recentlySavedKeys,
+                                        Query<MODEL, HASH, ACCESSION, KEY, K, V> query) {
+        List<KEY> primaryKeys = new ArrayList<>();
+        List<KEY> replicaKeys = new ArrayList<>();
+        for (KEY key : keys) {
+            if (recentlySavedKeys.get(key) != null) {
+                primaryKeys.add(key);
+            } else {
+                replicaKeys.add(key);
+            }
+        }
+
+        Map<K, V> result = new HashMap<>();
+        if (!replicaKeys.isEmpty()) {
+            result.putAll(query.apply(getReplica(), replicaKeys));
+        }
+        if (!primaryKeys.isEmpty()) {
+            result.putAll(query.apply(dbService, primaryKeys));
+        }
+        return result;
+    }
+
+    private DatabaseService<MODEL, HASH, ACCESSION> getReplica() {
+        return replicas.get(Math.floorMod(nextReplica.getAndIncrement(), replicas.size()));
+    }
+
+    protected DatabaseService<MODEL, HASH, ACCESSION> getDbService() {
+        return dbService;
+    }
+
+    private interface Query<MODEL, HASH, ACCESSION, KEY, K, V> {
+
+        Map<K, V> apply(DatabaseService<MODEL, HASH, ACCESSION> databaseService, Collection<KEY> keys);
+
+    }
+
+}
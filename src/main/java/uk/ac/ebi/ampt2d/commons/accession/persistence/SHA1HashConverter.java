@@ -0,0 +1,42 @@
+/*
+ *
+ * Copyright 2018 EMBL - European Bioinformatics Institute
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package uk.ac.ebi.ampt2d.commons.accession.persistence;
+
+import uk.ac.ebi.ampt2d.commons.accession.hashing.SHA1Hash;
+
+import javax.persistence.AttributeConverter;
+import javax.persistence.Converter;
+
+/**
+ * Stores a {@link SHA1Hash} in a binary column of 20 bytes, half the size of its hexadecimal representation. To be
+ * used in the hashed message property of the entities, with {@code @Convert(converter = SHA1HashConverter.class)}.
+ */
+@Converter
+public class SHA1HashConverter implements AttributeConverter<SHA1Hash, byte[]> {
+
+    @Override
+    public byte[] convertToDatabaseColumn(SHA1Hash hash) {
+        return hash == null ? null : hash.toBytes();
+    }
+
+    @Override
+    public SHA1Hash convertToEntityAttribute(byte[] bytes) {
+        return bytes == null ? null : SHA1Hash.fromBytes(bytes);
+    }
+
+}
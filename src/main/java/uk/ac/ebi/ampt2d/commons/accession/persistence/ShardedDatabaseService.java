@@ -0,0 +1,301 @@
+/*
+ *
+ * Copyright 2018 EMBL - European Bioinformatics Institute
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package uk.ac.ebi.ampt2d.commons.accession.persistence;
+
+import uk.ac.ebi.ampt2d.commons.accession.core.BasicAccessioningServiceSaveDelegate;
+import uk.ac.ebi.ampt2d.commons.accession.core.SaveResponse;
+import uk.ac.ebi.ampt2d.commons.accession.core.SaveStrategy;
+import uk.ac.ebi.ampt2d.commons.accession.generators.ModelHashAccession;
+import uk.ac.ebi.ampt2d.commons.accession.hashing.SHA1Hash;
+import uk.ac.ebi.ampt2d.commons.accession.utils.LruCache;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+import java.util.function.IntFunction;
+import java.util.function.Supplier;
+import java.util.function.ToIntFunction;
+import java.util.stream.Stream;
+
+/**
+ * Implementation of {@link DatabaseService} that partitions the objects across several database services, usually
+ * each one on its own data source, by a function of their hashes. The function must return the same value for a hash
+ * in every run of the application, which is not the case of the identity hash code of objects, so it must be provided
+ * explicitly; {@link #ofStrings()} and {@link #ofSHA1Hashes()} return stable functions of the usual types of hashes.
+ * The queries by hash and the saves are split per shard and, if an executor is provided, run concurrently in it.
+ * <p>
+ * The shard of an accession cannot be derived from the accession itself, so the shards of the accessions saved or
+ * found by this service are remembered in a bounded directory, and the queries by accession are routed to the shard
+ * found in the directory or sent to every shard otherwise.
+ * <p>
+ * The saves of different shards are independent transactions, so a failed {@link #save(List)} may have stored the
+ * objects of other shards. To avoid reporting those objects as not saved, the accessioning services store the objects
+ * through {@link #insertIfAbsent(List)}, which saves each shard with its own {@link SaveStrategy} and reports exactly
+ * which objects have been stored. By default each shard is saved with a {@link BasicAccessioningServiceSaveDelegate},
+ * and the save strategy, save executor and transaction size configured in the accessioning service don't apply to
+ * the shards: they must be configured in the strategies returned by the factory passed to the constructor.
+ *
+ * @param <MODEL>
+ * @param <HASH>
+ * @param <ACCESSION>
+ */
+public class ShardedDatabaseService<MODEL, HASH, ACCESSION> implements InsertIfAbsentDatabaseService<MODEL, HASH,
+        ACCESSION> {
+
+    private static final int DEFAULT_MAX_DIRECTORY_SIZE = 100000;
+
+    private final List<DatabaseService<MODEL, HASH, ACCESSION>> shards;
+
+    private final List<SaveStrategy<MODEL, HASH, ACCESSION>> shardSaveStrategies;
+
+    private final Executor executor;
+
+    private final ToIntFunction<HASH> shardFunction;
+
+    private final LruCache<ACCESSION, Integer> accessionShardDirectory;
+
+    public ShardedDatabaseService(List<? extends DatabaseService<MODEL, HASH, ACCESSION>> shards,
+                                  ToIntFunction<HASH> shardFunction) {
+        this(shards, null, shardFunction);
+    }
+
+    public ShardedDatabaseService(List<? extends DatabaseService<MODEL, HASH, ACCESSION>> shards, Executor executor,
+                                  ToIntFunction<HASH> shardFunction) {
+        this(shards, executor, shardFunction, DEFAULT_MAX_DIRECTORY_SIZE);
+    }
+
+    public ShardedDatabaseService(List<? extends DatabaseService<MODEL, HASH, ACCESSION>> shards, Executor executor,
+                                  ToIntFunction<HASH> shardFunction, int maxDirectorySize) {
+        this(shards, executor, shardFunction, maxDirectorySize, BasicAccessioningServiceSaveDelegate::new);
+    }
+
+    /**
+     * @param shards                   Database services of the shards
+     * @param executor                 Executor where the shards are queried and saved concurrently
+     * @param shardFunction            Function of the hash whose value, modulo the number of shards, selects the shard
+     *                                 of an object. It must return the same value for a hash in every run of the
+     *                                 application
+     * @param maxDirectorySize         Max number of accessions whose shard is remembered
+     * @param shardSaveStrategyFactory Creates the save strategy of each shard, used by {@link #insertIfAbsent(List)}
+     */
+    public ShardedDatabaseService(List<? extends DatabaseService<MODEL, HASH, ACCESSION>> shards, Executor executor,
+                                  ToIntFunction<HASH> shardFunction, int maxDirectorySize,
+                                  Function<DatabaseService<MODEL, HASH, ACCESSION>, SaveStrategy<MODEL, HASH,
+                                          ACCESSION>> shardSaveStrategyFactory) {
+        if (shards.isEmpty()) {
+            throw new IllegalArgumentException("At least one shard is required");
+        }
+        this.shards = new ArrayList<>(shards);
+        this.shardSaveStrategies = new ArrayList<>(shards.size());
+        for (DatabaseService<MODEL, HASH, ACCESSION> shard : shards) {
+            shardSaveStrategies.add(shardSaveStrategyFactory.apply(shard));
+        }
+        this.executor = executor;
+        this.shardFunction = shardFunction;
+        this.accessionShardDirectory = new LruCache<>(maxDirectorySize);
+    }
+
+    /**
+     * @return Shard function of string hashes, like the hexadecimal SHA-1 hashes. The hash code of a string is
+     * specified by {@link String#hashCode()}, so it is the same in every run
+     */
+    public static ToIntFunction<String> ofStrings() {
+        return String::hashCode;
+    }
+
+    /**
+     * @return Shard function of binary SHA-1 hashes, that takes the leading bytes of the hash
+     */
+    public static ToIntFunction<SHA1Hash> ofSHA1Hashes() {
+        return SHA1Hash::getLeadingInt;
+    }
+
+    @Override
+    public Map<ACCESSION, MODEL> findAllAccessionsByHash(Collection<HASH> hashes) {
+        Map<ACCESSION, MODEL> result = new HashMap<>();
+        runInShards(splitByShard(hashes, this::getShard), DatabaseService::findAllAccessionsByHash)
+                .forEach((shard, shardResult) -> {
+                    shardResult.keySet().forEach(accession -> accessionShardDirectory.put(accession, shard));
+                    result.putAll(shardResult);
+                });
+        return result;
+    }
+
+    @Override
+    public Map<HASH, ACCESSION> getExistingAccessions(Collection<HASH> hashes) {
+        Map<HASH, ACCESSION> result = new HashMap<>();
+        runInShards(splitByShard(hashes, this::getShard), DatabaseService::getExistingAccessions).values()
+                .forEach(result::putAll);
+        return result;
+    }
+
+    @Override
+    public Map<HASH, ACCESSION> getConflictingAccessions(Collection<HASH> hashes) {
+        Map<HASH, ACCESSION> result = new HashMap<>();
+        runInShards(splitByShard(hashes, this::getShard), DatabaseService::getConflictingAccessions).values()
+                .forEach(result::putAll);
+        return result;
+    }
+
+    /**
+     * Saves the objects of each shard in a separate transaction. If any of them fails, the objects of the other shards
+     * may have been stored.
+     */
+    @Override
+    public void save(List<ModelHashAccession<MODEL, HASH, ACCESSION>> objects) {
+        runInShards(splitByShard(objects, object -> getShard(object.hash())), (shard, shardObjects) -> {
+            shard.save(shardObjects);
+            return null;
+        });
+        registerAccessions(objects.stream());
+    }
+
+    @Override
+    public SaveResponse<ACCESSION, MODEL> insertIfAbsent(List<ModelHashAccession<MODEL, HASH, ACCESSION>> objects) {
+        Map<Integer, SaveResponse<ACCESSION, MODEL>> responses = runInShards(
+                splitByShard(objects, object -> getShard(object.hash())),
+                shardSaveStrategies::get,
+                SaveStrategy::doSaveAccessions);
+
+        Map<ACCESSION, MODEL> savedAccessions = new HashMap<>();
+        Map<ACCESSION, MODEL> unsavedAccessions = new HashMap<>();
+        Map<ACCESSION, ACCESSION> existingAccessions = new HashMap<>();
+        for (SaveResponse<ACCESSION, MODEL> response : responses.values()) {
+            savedAccessions.putAll(response.getSavedAccessions());
+            unsavedAccessions.putAll(response.getUnsavedAccessions());
+            existingAccessions.putAll(response.getExistingAccessions());
+        }
+        registerAccessions(objects.stream().filter(object -> savedAccessions.containsKey(object.accession())));
+        return new SaveResponse<>(savedAccessions, unsavedAccessions, existingAccessions);
+    }
+
+    @Override
+    public Map<ACCESSION, MODEL> findAllAccessionMappingsByAccessions(List<ACCESSION> accessions) {
+        List<ACCESSION> unknownAccessions = new ArrayList<>();
+        Map<Integer, List<ACCESSION>> accessionsByShard = new HashMap<>();
+        for (ACCESSION accession : accessions) {
+            Integer shard = accessionShardDirectory.get(accession);
+            if (shard == null) {
+                unknownAccessions.add(accession);
+            } else {
+                accessionsByShard.computeIfAbsent(shard, key -> new ArrayList<>()).add(accession);
+            }
+        }
+
+        Map<ACCESSION, MODEL> result = new HashMap<>();
+        runInShards(accessionsByShard, DatabaseService::findAllAccessionMappingsByAccessions).values()
+                .forEach(result::putAll);
+        if (!unknownAccessions.isEmpty()) {
+            runInAllShards(shard -> shard.findAllAccessionMappingsByAccessions(unknownAccessions))
+                    .forEach((shard, shardResult) -> {
+                        shardResult.keySet().forEach(accession -> accessionShardDirectory.put(accession, shard));
+                        result.putAll(shardResult);
+                    });
+        }
+        return result;
+    }
+
+    private int getShard(HASH hash) {
+        return Math.floorMod(shardFunction.applyAsInt(hash), shards.size());
+    }
+
+    private void registerAccessions(Stream<ModelHashAccession<MODEL, HASH, ACCESSION>> objects) {
+        objects.forEach(object -> accessionShardDirectory.put(object.accession(), getShard(object.hash())));
+    }
+
+    private static <T> Map<Integer, List<T>> splitByShard(Collection<T> values, ToIntFunction<T> shardFunction) {
+        Map<Integer, List<T>> valuesByShard = new HashMap<>();
+        for (T value : values) {
+            valuesByShard.computeIfAbsent(shardFunction.applyAsInt(value), shard -> new ArrayList<>()).add(value);
+        }
+        return valuesByShard;
+    }
+
+    /**
+     * Runs the operation in every shard, and returns the result of each shard.
+     */
+    protected <R> Map<Integer, R> runInAllShards(Function<DatabaseService<MODEL, HASH, ACCESSION>, R> operation) {
+        Map<Integer, List<Object>> allShards = new HashMap<>();
+        for (int shard = 0; shard < shards.size(); shard++) {
+            allShards.put(shard, null);
+        }
+        return runInShards(allShards, (shard, values) -> operation.apply(shard));
+    }
+
+    /**
+     * Runs the operation in each shard with its values, and returns the result of each shard.
+     */
+    protected <T, R> Map<Integer, R> runInShards(Map<Integer, List<T>> valuesByShard,
+                                                 BiFunction<DatabaseService<MODEL, HASH, ACCESSION>, List<T>, R>
+                                                         operation) {
+        return runInShards(valuesByShard, shards::get, operation);
+    }
+
+    /**
+     * Waits for the operations of all the shards before throwing the exception of any failed one, so that no operation
+     * is still running when the caller handles the failure.
+     */
+    private <S, T, R> Map<Integer, R> runInShards(Map<Integer, List<T>> valuesByShard, IntFunction<S> getShard,
+                                                  BiFunction<S, List<T>, R> operation) {
+        Map<Integer, CompletableFuture<R>> futures = new HashMap<>();
+        for (Map.Entry<Integer, List<T>> entry : valuesByShard.entrySet()) {
+            S shard = getShard.apply(entry.getKey());
+            futures.put(entry.getKey(), supply(() -> operation.apply(shard, entry.getValue())));
+        }
+        Map<Integer, R> results = new HashMap<>();
+        RuntimeException exception = null;
+        for (Map.Entry<Integer, CompletableFuture<R>> entry : futures.entrySet()) {
+            try {
+                results.put(entry.getKey(), entry.getValue().join());
+            } catch (CompletionException e) {
+                if (exception == null) {
+                    exception = e.getCause() instanceof RuntimeException ? (RuntimeException) e.getCause() : e;
+                }
+            }
+        }
+        if (exception != null) {
+            throw exception;
+        }
+        return results;
+    }
+
+    private <R> CompletableFuture<R> supply(Supplier<R> supplier) {
+        if (executor == null || shards.size() == 1) {
+            CompletableFuture<R> future = new CompletableFuture<>();
+            try {
+                future.complete(supplier.get());
+            } catch (RuntimeException e) {
+                future.completeExceptionally(e);
+            }
+            return future;
+        }
+        return CompletableFuture.supplyAsync(supplier, executor);
+    }
+
+    protected List<DatabaseService<MODEL, HASH, ACCESSION>> getShards() {
+        return shards;
+    }
+
+}
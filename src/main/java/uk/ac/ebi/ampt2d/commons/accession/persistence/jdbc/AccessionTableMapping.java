@@ -0,0 +1,114 @@
+/*
+ *
+ * Copyright 2018 EMBL - European Bioinformatics Institute
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package uk.ac.ebi.ampt2d.commons.accession.persistence.jdbc;
+
+import org.springframework.jdbc.core.RowMapper;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * Mapping of the objects accessioned by a service to the columns of the table where they are stored.
+ *
+ * @param <MODEL>
+ */
+public class AccessionTableMapping<MODEL> {
+
+    private final String tableName;
+
+    private final String accessionColumn;
+
+    private final String hashColumn;
+
+    private final List<String> modelColumns;
+
+    private final Function<MODEL, Object[]> modelValuesFunction;
+
+    private final RowMapper<? extends MODEL> modelMapper;
+
+    /**
+     * Mapping that can only be used to store the objects.
+     *
+     * @param tableName           Table where the objects are stored
+     * @param accessionColumn     Column of the accessions
+     * @param hashColumn          Column of the hashed messages
+     * @param modelColumns        Columns of the model properties
+     * @param modelValuesFunction Function that returns the values of a model, in the order of the model columns
+     */
+    public AccessionTableMapping(String tableName, String accessionColumn, String hashColumn,
+                                 List<String> modelColumns, Function<MODEL, Object[]> modelValuesFunction) {
+        this(tableName, accessionColumn, hashColumn, modelColumns, modelValuesFunction, null);
+    }
+
+    /**
+     * @param tableName           Table where the objects are stored
+     * @param accessionColumn     Column of the accessions
+     * @param hashColumn          Column of the hashed messages
+     * @param modelColumns        Columns of the model properties
+     * @param modelValuesFunction Function that returns the values of a model, in the order of the model columns
+     * @param modelMapper         Mapper that reads a model from the model columns of a row
+     */
+    public AccessionTableMapping(String tableName, String accessionColumn, String hashColumn,
+                                 List<String> modelColumns, Function<MODEL, Object[]> modelValuesFunction,
+                                 RowMapper<? extends MODEL> modelMapper) {
+        this.tableName = tableName;
+        this.accessionColumn = accessionColumn;
+        this.hashColumn = hashColumn;
+        this.modelColumns = Collections.unmodifiableList(new ArrayList<>(modelColumns));
+        this.modelValuesFunction = modelValuesFunction;
+        this.modelMapper = modelMapper;
+    }
+
+    public String getTableName() {
+        return tableName;
+    }
+
+    public String getAccessionColumn() {
+        return accessionColumn;
+    }
+
+    public String getHashColumn() {
+        return hashColumn;
+    }
+
+    public List<String> getModelColumns() {
+        return modelColumns;
+    }
+
+    public Object[] getModelValues(MODEL model) {
+        return modelValuesFunction.apply(model);
+    }
+
+    public RowMapper<? extends MODEL> getModelMapper() {
+        return modelMapper;
+    }
+
+    /**
+     * @return Accession, hash and model columns, in this order
+     */
+    public List<String> getColumns() {
+        List<String> columns = new ArrayList<>();
+        columns.add(accessionColumn);
+        columns.add(hashColumn);
+        columns.addAll(modelColumns);
+        return columns;
+    }
+
+}
@@ -0,0 +1,72 @@
+/*
+ *
+ * Copyright 2018 EMBL - European Bioinformatics Institute
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package uk.ac.ebi.ampt2d.commons.accession.persistence.jdbc;
+
+import org.springframework.jdbc.support.JdbcUtils;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+/**
+ * Converts the hashes or accessions to the values bound in the JDBC statements, and reads them from the columns of a
+ * result set.
+ *
+ * @param <T>
+ */
+public interface JdbcColumnConverter<T> {
+
+    Object toColumnValue(T value);
+
+    T fromColumnValue(ResultSet resultSet, String column) throws SQLException;
+
+    /**
+     * @return Converter that binds the values without conversion, and reads the objects returned by the JDBC driver
+     */
+    static <T> JdbcColumnConverter<T> identity() {
+        return new JdbcColumnConverter<T>() {
+            @Override
+            public Object toColumnValue(T value) {
+                return value;
+            }
+
+            @Override
+            @SuppressWarnings("unchecked")
+            public T fromColumnValue(ResultSet resultSet, String column) throws SQLException {
+                return (T) resultSet.getObject(column);
+            }
+        };
+    }
+
+    /**
+     * @return Converter of the types supported by the JDBC driver, that are bound and read without conversion
+     */
+    static <T> JdbcColumnConverter<T> of(Class<T> type) {
+        return new JdbcColumnConverter<T>() {
+            @Override
+            public Object toColumnValue(T value) {
+                return value;
+            }
+
+            @Override
+            public T fromColumnValue(ResultSet resultSet, String column) throws SQLException {
+                return type.cast(JdbcUtils.getResultSetValue(resultSet, resultSet.findColumn(column), type));
+            }
+        };
+    }
+
+}
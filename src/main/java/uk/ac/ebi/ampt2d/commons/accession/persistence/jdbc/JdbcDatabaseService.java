@@ -0,0 +1,372 @@
+/*
+ *
+ * Copyright 2018 EMBL - European Bioinformatics Institute
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package uk.ac.ebi.ampt2d.commons.accession.persistence.jdbc;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceUtils;
+import org.springframework.jdbc.support.JdbcUtils;
+import org.springframework.transaction.annotation.Transactional;
+import uk.ac.ebi.ampt2d.commons.accession.export.AccessionExportSink;
+import uk.ac.ebi.ampt2d.commons.accession.generators.ModelHashAccession;
+import uk.ac.ebi.ampt2d.commons.accession.persistence.DatabaseService;
+import uk.ac.ebi.ampt2d.commons.accession.persistence.ExportableDatabaseService;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Implementation of {@link DatabaseService} that uses plain JDBC statements instead of JPA entities, driven by an
+ * {@link AccessionTableMapping}. The objects are stored with batched multi-row inserts, so there is no persistence
+ * context nor dirty checking that grows with the size of the batch, which makes it suitable for bulk loads.
+ * <p>
+ * Each insert statement stores up to a configurable number of rows, using the multi-row "INSERT ... VALUES (...),
+ * (...)" syntax supported by H2, PostgreSQL and MySQL among others. With one row per statement, the rows are sent as a
+ * plain JDBC batch, which is supported by every database.
+ * <p>
+ * Hashes and accessions of types not supported by the JDBC driver, like {@link
+ * uk.ac.ebi.ampt2d.commons.accession.hashing.SHA1Hash}, are stored with a {@link JdbcColumnConverter}.
+ * <p>
+ * The table is exported with keyset pagination: each page is a query of the rows with an accession greater than the
+ * last one exported, in accession order, limited to the page size. So every page is read with the accession index and
+ * only one page is held by the driver at a time. The rows are fetched from the cursor in blocks of the fetch size; note
+ * that some drivers, like PostgreSQL, only use the fetch size inside a transaction, and otherwise read the whole page.
+ * <p>
+ * All the stored hashes can be streamed with {@link #streamHashes()}, for example to build the filter of a {@link
+ * uk.ac.ebi.ampt2d.commons.accession.persistence.BloomFilterDatabaseService}. They are read from a single cursor in
+ * blocks of the export fetch size, with the same caveat about transactions.
+ *
+ * @param <MODEL>
+ * @param <HASH>
+ * @param <ACCESSION>
+ */
+public class JdbcDatabaseService<MODEL, HASH, ACCESSION>
+        implements ExportableDatabaseService<MODEL, HASH, ACCESSION> {
+
+    public static final int DEFAULT_ROWS_PER_STATEMENT = 100;
+
+    public static final int DEFAULT_EXPORT_PAGE_SIZE = 10000;
+
+    public static final int DEFAULT_EXPORT_FETCH_SIZE = 1000;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    private final NamedParameterJdbcTemplate namedParameterJdbcTemplate;
+
+    private final AccessionTableMapping<MODEL> tableMapping;
+
+    private final JdbcColumnConverter<HASH> hashConverter;
+
+    private final JdbcColumnConverter<ACCESSION> accessionConverter;
+
+    private final int rowsPerStatement;
+
+    private int exportPageSize;
+
+    private int exportFetchSize;
+
+    public JdbcDatabaseService(JdbcTemplate jdbcTemplate, AccessionTableMapping<MODEL> tableMapping,
+                               Class<HASH> hashType, Class<ACCESSION> accessionType) {
+        this(jdbcTemplate, tableMapping, hashType, accessionType, DEFAULT_ROWS_PER_STATEMENT);
+    }
+
+    /**
+     * @param jdbcTemplate     Template of the database where the objects are stored
+     * @param tableMapping     Mapping of the objects to the table where they are stored
+     * @param hashType         Type of the hashes, used to read them from the hash column
+     * @param accessionType    Type of the accessions, used to read them from the accession column
+     * @param rowsPerStatement Max number of rows stored by each insert statement
+     */
+    public JdbcDatabaseService(JdbcTemplate jdbcTemplate, AccessionTableMapping<MODEL> tableMapping,
+                               Class<HASH> hashType, Class<ACCESSION> accessionType, int rowsPerStatement) {
+        this(jdbcTemplate, tableMapping, JdbcColumnConverter.of(hashType), JdbcColumnConverter.of(accessionType),
+                rowsPerStatement);
+    }
+
+    /**
+     * @param jdbcTemplate       Template of the database where the objects are stored
+     * @param tableMapping       Mapping of the objects to the table where they are stored
+     * @param hashConverter      Converter of the hashes to the values of the hash column
+     * @param accessionConverter Converter of the accessions to the values of the accession column
+     * @param rowsPerStatement   Max number of rows stored by each insert statement
+     */
+    public JdbcDatabaseService(JdbcTemplate jdbcTemplate, AccessionTableMapping<MODEL> tableMapping,
+                               JdbcColumnConverter<HASH> hashConverter,
+                               JdbcColumnConverter<ACCESSION> accessionConverter, int rowsPerStatement) {
+        if (tableMapping.getModelMapper() == null) {
+            throw new IllegalArgumentException("The table mapping must provide a mapper of the models");
+        }
+        if (rowsPerStatement < 1) {
+            throw new IllegalArgumentException("Each statement must store at least one row");
+        }
+        this.jdbcTemplate = jdbcTemplate;
+        this.namedParameterJdbcTemplate = new NamedParameterJdbcTemplate(jdbcTemplate);
+        this.tableMapping = tableMapping;
+        this.hashConverter = hashConverter;
+        this.accessionConverter = accessionConverter;
+        this.rowsPerStatement = rowsPerStatement;
+        this.exportPageSize = DEFAULT_EXPORT_PAGE_SIZE;
+        this.exportFetchSize = DEFAULT_EXPORT_FETCH_SIZE;
+    }
+
+    /**
+     * @param exportPageSize Max number of rows read by each query of an export
+     */
+    public void setExportPageSize(int exportPageSize) {
+        if (exportPageSize < 1) {
+            throw new IllegalArgumentException("The export page size must be at least 1");
+        }
+        this.exportPageSize = exportPageSize;
+    }
+
+    /**
+     * @param exportFetchSize Number of rows fetched from the cursor at a time while exporting
+     */
+    public void setExportFetchSize(int exportFetchSize) {
+        if (exportFetchSize < 1) {
+            throw new IllegalArgumentException("The export fetch size must be at least 1");
+        }
+        this.exportFetchSize = exportFetchSize;
+    }
+
+    @Override
+    public Map<ACCESSION, MODEL> findAllAccessionsByHash(Collection<HASH> hashes) {
+        return findAll(tableMapping.getHashColumn(), toColumnValues(hashes, hashConverter));
+    }
+
+    @Override
+    public Map<HASH, ACCESSION> getExistingAccessions(Collection<HASH> hashes) {
+        Map<HASH, ACCESSION> hashToAccession = new HashMap<>();
+        if (hashes.isEmpty()) {
+            return hashToAccession;
+        }
+        namedParameterJdbcTemplate.query(
+                "SELECT " + tableMapping.getAccessionColumn() + ", " + tableMapping.getHashColumn() +
+                        " FROM " + tableMapping.getTableName() +
+                        " WHERE " + tableMapping.getHashColumn() + " IN (:values)",
+                new MapSqlParameterSource("values", toColumnValues(hashes, hashConverter)),
+                (RowCallbackHandler) resultSet -> hashToAccession.put(getHash(resultSet), getAccession(resultSet)));
+        return hashToAccession;
+    }
+
+    /**
+     * Streams the hashes of all the stored objects from a single query. The stream holds a connection and a cursor
+     * until it is closed, so it must always be closed, for example in a try-with-resources block.
+     */
+    public Stream<HASH> streamHashes() {
+        Connection connection = DataSourceUtils.getConnection(jdbcTemplate.getDataSource());
+        PreparedStatement statement = null;
+        ResultSet resultSet = null;
+        try {
+            statement = connection.prepareStatement("SELECT " + tableMapping.getHashColumn() + " FROM " +
+                    tableMapping.getTableName());
+            statement.setFetchSize(exportFetchSize);
+            resultSet = statement.executeQuery();
+        } catch (SQLException e) {
+            closeQuery(connection, statement, resultSet);
+            throw jdbcTemplate.getExceptionTranslator().translate("streamHashes", null, e);
+        }
+        PreparedStatement openStatement = statement;
+        ResultSet openResultSet = resultSet;
+        return StreamSupport.stream(new Spliterators.AbstractSpliterator<HASH>(Long.MAX_VALUE,
+                Spliterator.NONNULL) {
+            @Override
+            public boolean tryAdvance(Consumer<? super HASH> action) {
+                try {
+                    if (!openResultSet.next()) {
+                        return false;
+                    }
+                    action.accept(getHash(openResultSet));
+                    return true;
+                } catch (SQLException e) {
+                    throw jdbcTemplate.getExceptionTranslator().translate("streamHashes", null, e);
+                }
+            }
+        }, false).onClose(() -> closeQuery(connection, openStatement, openResultSet));
+    }
+
+    private void closeQuery(Connection connection, PreparedStatement statement, ResultSet resultSet) {
+        JdbcUtils.closeResultSet(resultSet);
+        JdbcUtils.closeStatement(statement);
+        DataSourceUtils.releaseConnection(connection, jdbcTemplate.getDataSource());
+    }
+
+    /**
+     * @return Number of stored objects, which is the number of hashes returned by {@link #streamHashes()}
+     */
+    public long countHashes() {
+        return jdbcTemplate.queryForObject("SELECT COUNT(*) FROM " + tableMapping.getTableName(), Long.class);
+    }
+
+    @Override
+    @Transactional
+    public void save(List<ModelHashAccession<MODEL, HASH, ACCESSION>> objects) {
+        int fullStatements = objects.size() / rowsPerStatement;
+        if (fullStatements > 0) {
+            List<Object[]> parameters = new ArrayList<>(fullStatements);
+            for (int i = 0; i < fullStatements; i++) {
+                parameters.add(getInsertParameters(objects.subList(i * rowsPerStatement,
+                        (i + 1) * rowsPerStatement)));
+            }
+            jdbcTemplate.batchUpdate(getInsertStatement(rowsPerStatement), parameters);
+        }
+        int remainingRows = objects.size() - fullStatements * rowsPerStatement;
+        if (remainingRows > 0) {
+            jdbcTemplate.update(getInsertStatement(remainingRows),
+                    getInsertParameters(objects.subList(objects.size() - remainingRows, objects.size())));
+        }
+    }
+
+    @Override
+    public Map<ACCESSION, MODEL> findAllAccessionMappingsByAccessions(List<ACCESSION> accessions) {
+        return findAll(tableMapping.getAccessionColumn(), toColumnValues(accessions, accessionConverter));
+    }
+
+    @Override
+    public ACCESSION export(ACCESSION fromAccession, AccessionExportSink<MODEL, HASH, ACCESSION> sink)
+            throws IOException {
+        ACCESSION lastAccession = fromAccession;
+        ExportedPage page;
+        do {
+            page = exportPage(lastAccession, sink);
+            if (page.rows > 0) {
+                lastAccession = page.lastAccession;
+                sink.endPage(lastAccession);
+            }
+        } while (page.rows == exportPageSize);
+        return lastAccession;
+    }
+
+    private ExportedPage exportPage(ACCESSION fromAccession, AccessionExportSink<MODEL, HASH, ACCESSION> sink)
+            throws IOException {
+        String accessionColumn = tableMapping.getAccessionColumn();
+        String query = "SELECT " + String.join(", ", tableMapping.getColumns()) + " FROM " +
+                tableMapping.getTableName() + (fromAccession == null ? "" : " WHERE " + accessionColumn + " > ?") +
+                " ORDER BY " + accessionColumn;
+        ExportedPage page = new ExportedPage();
+        try {
+            jdbcTemplate.query(connection -> {
+                PreparedStatement statement = connection.prepareStatement(query);
+                statement.setMaxRows(exportPageSize);
+                statement.setFetchSize(Math.min(exportFetchSize, exportPageSize));
+                if (fromAccession != null) {
+                    statement.setObject(1, accessionConverter.toColumnValue(fromAccession));
+                }
+                return statement;
+            }, (RowCallbackHandler) resultSet -> {
+                ACCESSION accession = getAccession(resultSet);
+                MODEL model = tableMapping.getModelMapper().mapRow(resultSet, page.rows);
+                try {
+                    sink.write(ModelHashAccession.of(model, getHash(resultSet), accession));
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+                page.lastAccession = accession;
+                page.rows++;
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        return page;
+    }
+
+    private <T> List<Object> toColumnValues(Collection<T> values, JdbcColumnConverter<T> converter) {
+        return values.stream().map(converter::toColumnValue).collect(Collectors.toList());
+    }
+
+    private Map<ACCESSION, MODEL> findAll(String column, Collection<?> values) {
+        Map<ACCESSION, MODEL> accessionToModel = new HashMap<>();
+        if (values.isEmpty()) {
+            return accessionToModel;
+        }
+        namedParameterJdbcTemplate.query(
+                "SELECT " + String.join(", ", tableMapping.getColumns()) +
+                        " FROM " + tableMapping.getTableName() + " WHERE " + column + " IN (:values)",
+                new MapSqlParameterSource("values", values),
+                (RowCallbackHandler) resultSet -> accessionToModel.put(getAccession(resultSet),
+                        tableMapping.getModelMapper().mapRow(resultSet, resultSet.getRow())));
+        return accessionToModel;
+    }
+
+    private String getInsertStatement(int rows) {
+        List<String> columns = tableMapping.getColumns();
+        String row = "(" + columns.stream().map(column -> "?").collect(Collectors.joining(", ")) + ")";
+        List<String> rowPlaceholders = new ArrayList<>(rows);
+        for (int i = 0; i < rows; i++) {
+            rowPlaceholders.add(row);
+        }
+        return "INSERT INTO " + tableMapping.getTableName() + " (" + String.join(", ", columns) + ") VALUES " +
+                String.join(", ", rowPlaceholders);
+    }
+
+    private Object[] getInsertParameters(List<ModelHashAccession<MODEL, HASH, ACCESSION>> objects) {
+        int columns = tableMapping.getColumns().size();
+        Object[] parameters = new Object[objects.size() * columns];
+        int i = 0;
+        for (ModelHashAccession<MODEL, HASH, ACCESSION> object : objects) {
+            parameters[i] = accessionConverter.toColumnValue(object.accession());
+            parameters[i + 1] = hashConverter.toColumnValue(object.hash());
+            Object[] modelValues = tableMapping.getModelValues(object.model());
+            System.arraycopy(modelValues, 0, parameters, i + 2, modelValues.length);
+            i += columns;
+        }
+        return parameters;
+    }
+
+    protected HASH getHash(ResultSet resultSet) throws SQLException {
+        return hashConverter.fromColumnValue(resultSet, tableMapping.getHashColumn());
+    }
+
+    protected ACCESSION getAccession(ResultSet resultSet) throws SQLException {
+        return accessionConverter.fromColumnValue(resultSet, tableMapping.getAccessionColumn());
+    }
+
+    protected JdbcTemplate getJdbcTemplate() {
+        return jdbcTemplate;
+    }
+
+    protected AccessionTableMapping<MODEL> getTableMapping() {
+        return tableMapping;
+    }
+
+    private class ExportedPage {
+
+        private ACCESSION lastAccession;
+
+        private int rows;
+
+    }
+
+}
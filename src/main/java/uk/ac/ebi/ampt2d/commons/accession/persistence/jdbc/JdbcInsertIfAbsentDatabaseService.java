@@ -0,0 +1,196 @@
+/*
+ *
+ * Copyright 2018 EMBL - European Bioinformatics Institute
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package uk.ac.ebi.ampt2d.commons.accession.persistence.jdbc;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.annotation.Transactional;
+import uk.ac.ebi.ampt2d.commons.accession.core.SaveResponse;
+import uk.ac.ebi.ampt2d.commons.accession.generators.ModelHashAccession;
+import uk.ac.ebi.ampt2d.commons.accession.persistence.DatabaseService;
+import uk.ac.ebi.ampt2d.commons.accession.persistence.InsertIfAbsentDatabaseService;
+
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * Decorator of a {@link DatabaseService} that stores the objects with a single batched JDBC statement that only
+ * inserts each row if neither its hash nor its accession are already stored. The update count of each row tells
+ * whether it has been inserted or skipped, so a batch with existing objects is stored in one transaction without
+ * failing on the unique constraints of the table.
+ * <p>
+ * The default statement is an "INSERT ... SELECT ?, ? WHERE NOT EXISTS (...)", which has only been tested with H2.
+ * Databases that reject a SELECT without a FROM clause, like MySQL or Oracle, need the clause returned by
+ * {@link #getSelectFromClause()}, for example " FROM DUAL". Subclasses can also override
+ * {@link #getInsertIfAbsentStatement()} and {@link #getInsertIfAbsentParameters(ModelHashAccession)} to use a database
+ * specific statement, like "INSERT ... ON CONFLICT DO NOTHING" in PostgreSQL.
+ * <p>
+ * A concurrent insert of the same hash can still make the statement fail with a constraint violation, in which case
+ * the caller should fall back to {@link #save(List)}.
+ * <p>
+ * The caching, bloom filter, chunked lookup and read replica decorators forward the inserts, so this service should be
+ * decorated by them and not the other way round, otherwise they would not see the inserted objects.
+ *
+ * @param <MODEL>
+ * @param <HASH>
+ * @param <ACCESSION>
+ */
+public class JdbcInsertIfAbsentDatabaseService<MODEL, HASH, ACCESSION>
+        implements InsertIfAbsentDatabaseService<MODEL, HASH, ACCESSION> {
+
+    private final DatabaseService<MODEL, HASH, ACCESSION> dbService;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    private final AccessionTableMapping<MODEL> tableMapping;
+
+    private final JdbcColumnConverter<HASH> hashConverter;
+
+    private final JdbcColumnConverter<ACCESSION> accessionConverter;
+
+    public JdbcInsertIfAbsentDatabaseService(DatabaseService<MODEL, HASH, ACCESSION> dbService,
+                                             JdbcTemplate jdbcTemplate,
+                                             AccessionTableMapping<MODEL> tableMapping) {
+        this(dbService, jdbcTemplate, tableMapping, JdbcColumnConverter.identity(), JdbcColumnConverter.identity());
+    }
+
+    public JdbcInsertIfAbsentDatabaseService(DatabaseService<MODEL, HASH, ACCESSION> dbService,
+                                             JdbcTemplate jdbcTemplate,
+                                             AccessionTableMapping<MODEL> tableMapping,
+                                             JdbcColumnConverter<HASH> hashConverter,
+                                             JdbcColumnConverter<ACCESSION> accessionConverter) {
+        this.dbService = dbService;
+        this.jdbcTemplate = jdbcTemplate;
+        this.tableMapping = tableMapping;
+        this.hashConverter = hashConverter;
+        this.accessionConverter = accessionConverter;
+    }
+
+    protected String getInsertIfAbsentStatement() {
+        List<String> columns = tableMapping.getColumns();
+        return "INSERT INTO " + tableMapping.getTableName() + " (" + String.join(", ", columns) + ") " +
+                "SELECT " + columns.stream().map(column -> "?").collect(Collectors.joining(", ")) +
+                getSelectFromClause() + " WHERE NOT EXISTS (SELECT 1 FROM " + tableMapping.getTableName() + " " +
+                "WHERE " + tableMapping.getHashColumn() + " = ? OR " + tableMapping.getAccessionColumn() + " = ?)";
+    }
+
+    /**
+     * @return Clause appended to the select of the inserted values, empty by default, or " FROM DUAL" for databases
+     * that require a FROM clause in every select
+     */
+    protected String getSelectFromClause() {
+        return "";
+    }
+
+    protected AccessionTableMapping<MODEL> getTableMapping() {
+        return tableMapping;
+    }
+
+    protected Object[] getInsertIfAbsentParameters(ModelHashAccession<MODEL, HASH, ACCESSION> object) {
+        Object[] modelValues = tableMapping.getModelValues(object.model());
+        Object[] parameters = new Object[modelValues.length + 4];
+        Object accession = accessionConverter.toColumnValue(object.accession());
+        Object hash = hashConverter.toColumnValue(object.hash());
+        parameters[0] = accession;
+        parameters[1] = hash;
+        System.arraycopy(modelValues, 0, parameters, 2, modelValues.length);
+        parameters[modelValues.length + 2] = hash;
+        parameters[modelValues.length + 3] = accession;
+        return parameters;
+    }
+
+    @Override
+    @Transactional
+    public SaveResponse<ACCESSION, MODEL> insertIfAbsent(List<ModelHashAccession<MODEL, HASH, ACCESSION>> objects) {
+        Map<ACCESSION, MODEL> savedAccessions = new HashMap<>();
+        Map<ACCESSION, MODEL> unsavedAccessions = new HashMap<>();
+        if (objects.isEmpty()) {
+            return new SaveResponse<>(savedAccessions, unsavedAccessions);
+        }
+
+        int[] updateCounts = jdbcTemplate.batchUpdate(getInsertIfAbsentStatement(), objects.stream()
+                .map(this::getInsertIfAbsentParameters).collect(Collectors.toList()));
+        List<ModelHashAccession<MODEL, HASH, ACCESSION>> unknownObjects = new ArrayList<>();
+        for (int i = 0; i < objects.size(); i++) {
+            ModelHashAccession<MODEL, HASH, ACCESSION> object = objects.get(i);
+            if (updateCounts[i] == Statement.SUCCESS_NO_INFO) {
+                unknownObjects.add(object);
+            } else if (updateCounts[i] > 0) {
+                savedAccessions.put(object.accession(), object.model());
+            } else {
+                unsavedAccessions.put(object.accession(), object.model());
+            }
+        }
+        if (!unknownObjects.isEmpty()) {
+            resolveUnknownObjects(unknownObjects, savedAccessions, unsavedAccessions);
+        }
+        return new SaveResponse<>(savedAccessions, unsavedAccessions);
+    }
+
+    /**
+     * Some drivers do not report the update count of each row of a batch. Those rows are considered inserted if
+     * their hash is stored with their accession.
+     */
+    private void resolveUnknownObjects(List<ModelHashAccession<MODEL, HASH, ACCESSION>> unknownObjects,
+                                       Map<ACCESSION, MODEL> savedAccessions,
+                                       Map<ACCESSION, MODEL> unsavedAccessions) {
+        Map<HASH, ACCESSION> storedAccessions = dbService.getConflictingAccessions(unknownObjects.stream()
+                .map(ModelHashAccession::hash).collect(Collectors.toList()));
+        for (ModelHashAccession<MODEL, HASH, ACCESSION> object : unknownObjects) {
+            if (object.accession().equals(storedAccessions.get(object.hash()))) {
+                savedAccessions.put(object.accession(), object.model());
+            } else {
+                unsavedAccessions.put(object.accession(), object.model());
+            }
+        }
+    }
+
+    @Override
+    public Map<ACCESSION, MODEL> findAllAccessionsByHash(Collection<HASH> hashes) {
+        return dbService.findAllAccessionsByHash(hashes);
+    }
+
+    @Override
+    public Map<HASH, ACCESSION> getExistingAccessions(Collection<HASH> hashes) {
+        return dbService.getExistingAccessions(hashes);
+    }
+
+    @Override
+    public Map<HASH, ACCESSION> getConflictingAccessions(Collection<HASH> hashes) {
+        return dbService.getConflictingAccessions(hashes);
+    }
+
+    @Override
+    public void save(List<ModelHashAccession<MODEL, HASH, ACCESSION>> objects) {
+        dbService.save(objects);
+    }
+
+    @Override
+    public Map<ACCESSION, MODEL> findAllAccessionMappingsByAccessions(List<ACCESSION> accessions) {
+        return dbService.findAllAccessionMappingsByAccessions(accessions);
+    }
+
+    protected DatabaseService<MODEL, HASH, ACCESSION> getDbService() {
+        return dbService;
+    }
+
+}
@@ -0,0 +1,41 @@
+/*
+ *
+ * Copyright 2018 EMBL - European Bioinformatics Institute
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package uk.ac.ebi.ampt2d.commons.accession.persistence.jdbc;
+
+import uk.ac.ebi.ampt2d.commons.accession.hashing.SHA1Hash;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+/**
+ * Stores a {@link SHA1Hash} in a binary column of 20 bytes.
+ */
+public class SHA1HashColumnConverter implements JdbcColumnConverter<SHA1Hash> {
+
+    @Override
+    public Object toColumnValue(SHA1Hash hash) {
+        return hash == null ? null : hash.toBytes();
+    }
+
+    @Override
+    public SHA1Hash fromColumnValue(ResultSet resultSet, String column) throws SQLException {
+        byte[] bytes = resultSet.getBytes(column);
+        return bytes == null ? null : SHA1Hash.fromBytes(bytes);
+    }
+
+}
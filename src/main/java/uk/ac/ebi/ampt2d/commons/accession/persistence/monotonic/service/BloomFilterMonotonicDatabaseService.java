@@ -0,0 +1,55 @@
+/*
+ *
+ * Copyright 2018 EMBL - European Bioinformatics Institute
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package uk.ac.ebi.ampt2d.commons.accession.persistence.monotonic.service;
+
+import uk.ac.ebi.ampt2d.commons.accession.generators.monotonic.MonotonicRange;
+import uk.ac.ebi.ampt2d.commons.accession.persistence.BloomFilterDatabaseService;
+
+import java.util.Collection;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+
+/**
+ * Extension of the {@link BloomFilterDatabaseService} for the {@link MonotonicDatabaseService}. Range queries are
+ * always sent to the database.
+ *
+ * @param <MODEL>
+ * @param <HASH>
+ */
+public class BloomFilterMonotonicDatabaseService<MODEL, HASH> extends BloomFilterDatabaseService<MODEL, HASH, Long>
+        implements MonotonicDatabaseService<MODEL, HASH> {
+
+    public BloomFilterMonotonicDatabaseService(MonotonicDatabaseService<MODEL, HASH> dbService,
+                                               Supplier<Stream<HASH>> persistedHashesSupplier,
+                                               LongSupplier numberOfPersistedHashesSupplier,
+                                               double falsePositiveProbability) {
+        super(dbService, persistedHashesSupplier, numberOfPersistedHashesSupplier, falsePositiveProbability);
+    }
+
+    @Override
+    public long[] getAccessionsInRanges(Collection<MonotonicRange> ranges) {
+        return getDbService().getAccessionsInRanges(ranges);
+    }
+
+    @Override
+    protected MonotonicDatabaseService<MODEL, HASH> getDbService() {
+        return (MonotonicDatabaseService<MODEL, HASH>) super.getDbService();
+    }
+
+}
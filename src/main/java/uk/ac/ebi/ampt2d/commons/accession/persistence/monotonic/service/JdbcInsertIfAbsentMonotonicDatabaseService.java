@@ -0,0 +1,60 @@
+/*
+ *
+ * Copyright 2018 EMBL - European Bioinformatics Institute
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package uk.ac.ebi.ampt2d.commons.accession.persistence.monotonic.service;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import uk.ac.ebi.ampt2d.commons.accession.generators.monotonic.MonotonicRange;
+import uk.ac.ebi.ampt2d.commons.accession.persistence.jdbc.AccessionTableMapping;
+import uk.ac.ebi.ampt2d.commons.accession.persistence.jdbc.JdbcColumnConverter;
+import uk.ac.ebi.ampt2d.commons.accession.persistence.jdbc.JdbcInsertIfAbsentDatabaseService;
+
+import java.util.Collection;
+
+/**
+ * Extension of the {@link JdbcInsertIfAbsentDatabaseService} for the {@link MonotonicDatabaseService}.
+ *
+ * @param <MODEL>
+ * @param <HASH>
+ */
+public class JdbcInsertIfAbsentMonotonicDatabaseService<MODEL, HASH>
+        extends JdbcInsertIfAbsentDatabaseService<MODEL, HASH, Long> implements MonotonicDatabaseService<MODEL, HASH> {
+
+    public JdbcInsertIfAbsentMonotonicDatabaseService(MonotonicDatabaseService<MODEL, HASH> dbService,
+                                                      JdbcTemplate jdbcTemplate,
+                                                      AccessionTableMapping<MODEL> tableMapping) {
+        super(dbService, jdbcTemplate, tableMapping);
+    }
+
+    public JdbcInsertIfAbsentMonotonicDatabaseService(MonotonicDatabaseService<MODEL, HASH> dbService,
+                                                      JdbcTemplate jdbcTemplate,
+                                                      AccessionTableMapping<MODEL> tableMapping,
+                                                      JdbcColumnConverter<HASH> hashConverter) {
+        super(dbService, jdbcTemplate, tableMapping, hashConverter, JdbcColumnConverter.identity());
+    }
+
+    @Override
+    public long[] getAccessionsInRanges(Collection<MonotonicRange> ranges) {
+        return getDbService().getAccessionsInRanges(ranges);
+    }
+
+    @Override
+    protected MonotonicDatabaseService<MODEL, HASH> getDbService() {
+        return (MonotonicDatabaseService<MODEL, HASH>) super.getDbService();
+    }
+
+}
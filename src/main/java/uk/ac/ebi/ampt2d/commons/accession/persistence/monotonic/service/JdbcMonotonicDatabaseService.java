@@ -0,0 +1,65 @@
+/*
+ *
+ * Copyright 2018 EMBL - European Bioinformatics Institute
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package uk.ac.ebi.ampt2d.commons.accession.persistence.monotonic.service;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import uk.ac.ebi.ampt2d.commons.accession.generators.monotonic.MonotonicRange;
+import uk.ac.ebi.ampt2d.commons.accession.persistence.jdbc.AccessionTableMapping;
+import uk.ac.ebi.ampt2d.commons.accession.persistence.jdbc.JdbcColumnConverter;
+import uk.ac.ebi.ampt2d.commons.accession.persistence.jdbc.JdbcDatabaseService;
+
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Extension of the {@link JdbcDatabaseService} for the {@link MonotonicDatabaseService}.
+ *
+ * @param <MODEL>
+ * @param <HASH>
+ */
+public class JdbcMonotonicDatabaseService<MODEL, HASH> extends JdbcDatabaseService<MODEL, HASH, Long>
+        implements MonotonicDatabaseService<MODEL, HASH> {
+
+    public JdbcMonotonicDatabaseService(JdbcTemplate jdbcTemplate, AccessionTableMapping<MODEL> tableMapping,
+                                        Class<HASH> hashType) {
+        super(jdbcTemplate, tableMapping, hashType, Long.class);
+    }
+
+    public JdbcMonotonicDatabaseService(JdbcTemplate jdbcTemplate, AccessionTableMapping<MODEL> tableMapping,
+                                        Class<HASH> hashType, int rowsPerStatement) {
+        super(jdbcTemplate, tableMapping, hashType, Long.class, rowsPerStatement);
+    }
+
+    public JdbcMonotonicDatabaseService(JdbcTemplate jdbcTemplate, AccessionTableMapping<MODEL> tableMapping,
+                                        JdbcColumnConverter<HASH> hashConverter, int rowsPerStatement) {
+        super(jdbcTemplate, tableMapping, hashConverter, JdbcColumnConverter.of(Long.class), rowsPerStatement);
+    }
+
+    @Override
+    public long[] getAccessionsInRanges(Collection<MonotonicRange> ranges) {
+        String accessionColumn = getTableMapping().getAccessionColumn();
+        String query = "SELECT " + accessionColumn + " FROM " + getTableMapping().getTableName() +
+                " WHERE " + accessionColumn + " BETWEEN ? AND ? ORDER BY " + accessionColumn;
+        return ranges.stream()
+                .map(range -> getJdbcTemplate().queryForList(query, Long.class, range.getStart(), range.getEnd()))
+                .flatMap(List::stream)
+                .mapToLong(Long::longValue)
+                .toArray();
+    }
+
+}
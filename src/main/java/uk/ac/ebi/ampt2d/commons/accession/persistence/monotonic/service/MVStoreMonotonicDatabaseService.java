@@ -0,0 +1,67 @@
+/*
+ *
+ * Copyright 2018 EMBL - European Bioinformatics Institute
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package uk.ac.ebi.ampt2d.commons.accession.persistence.monotonic.service;
+
+import org.h2.mvstore.MVMap;
+import org.h2.mvstore.MVStore;
+import uk.ac.ebi.ampt2d.commons.accession.generators.monotonic.MonotonicRange;
+import uk.ac.ebi.ampt2d.commons.accession.persistence.mvstore.MVStoreDatabaseService;
+
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.function.Function;
+import java.util.stream.LongStream;
+
+/**
+ * Extension of the {@link MVStoreDatabaseService} for the {@link MonotonicDatabaseService}. The accessions are the
+ * ordered keys of the store, so each range is read with a scan that starts at the first accession of the range.
+ *
+ * @param <MODEL>
+ * @param <HASH>
+ */
+public class MVStoreMonotonicDatabaseService<MODEL, HASH> extends MVStoreDatabaseService<MODEL, HASH, Long>
+        implements MonotonicDatabaseService<MODEL, HASH> {
+
+    public MVStoreMonotonicDatabaseService(MVStore store, Function<MODEL, ?> toStoredModel,
+                                           Function<Object, MODEL> fromStoredModel) {
+        super(store, toStoredModel, fromStoredModel);
+    }
+
+    public MVStoreMonotonicDatabaseService(MVStore store, String name, Function<MODEL, ?> toStoredModel,
+                                           Function<Object, MODEL> fromStoredModel) {
+        super(store, name, toStoredModel, fromStoredModel);
+    }
+
+    @Override
+    public long[] getAccessionsInRanges(Collection<MonotonicRange> ranges) {
+        MVMap<Long, Object> accessionToModel = getAccessionToModelMap();
+        LongStream.Builder accessions = LongStream.builder();
+        for (MonotonicRange range : ranges) {
+            Iterator<Long> iterator = accessionToModel.keyIterator(range.getStart());
+            while (iterator.hasNext()) {
+                long accession = iterator.next();
+                if (accession > range.getEnd()) {
+                    break;
+                }
+                accessions.add(accession);
+            }
+        }
+        return accessions.build().toArray();
+    }
+
+}
@@ -0,0 +1,79 @@
+/*
+ *
+ * Copyright 2018 EMBL - European Bioinformatics Institute
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package uk.ac.ebi.ampt2d.commons.accession.persistence.monotonic.service;
+
+import uk.ac.ebi.ampt2d.commons.accession.core.SaveStrategy;
+import uk.ac.ebi.ampt2d.commons.accession.generators.monotonic.MonotonicRange;
+import uk.ac.ebi.ampt2d.commons.accession.persistence.DatabaseService;
+import uk.ac.ebi.ampt2d.commons.accession.persistence.ShardedDatabaseService;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.function.Function;
+import java.util.function.ToIntFunction;
+
+/**
+ * Extension of the {@link ShardedDatabaseService} for the {@link MonotonicDatabaseService}. The objects are partitioned
+ * by hash, and their accessions are taken from the blocks of a single monotonic generator, which are not owned by any
+ * shard. So the accessions of a range may be in any shard, and range queries are sent to every shard. For the same
+ * reason, the queries of accessions whose shard is not remembered in the directory are sent to every shard too.
+ * Range queries are only run when the generator recovers its blocks at startup, so they are not in the hot path.
+ *
+ * @param <MODEL>
+ * @param <HASH>
+ */
+public class ShardedMonotonicDatabaseService<MODEL, HASH> extends ShardedDatabaseService<MODEL, HASH, Long>
+        implements MonotonicDatabaseService<MODEL, HASH> {
+
+    public ShardedMonotonicDatabaseService(List<? extends MonotonicDatabaseService<MODEL, HASH>> shards,
+                                           ToIntFunction<HASH> shardFunction) {
+        super(shards, shardFunction);
+    }
+
+    public ShardedMonotonicDatabaseService(List<? extends MonotonicDatabaseService<MODEL, HASH>> shards,
+                                           Executor executor, ToIntFunction<HASH> shardFunction) {
+        super(shards, executor, shardFunction);
+    }
+
+    public ShardedMonotonicDatabaseService(List<? extends MonotonicDatabaseService<MODEL, HASH>> shards,
+                                           Executor executor, ToIntFunction<HASH> shardFunction,
+                                           int maxDirectorySize) {
+        super(shards, executor, shardFunction, maxDirectorySize);
+    }
+
+    public ShardedMonotonicDatabaseService(List<? extends MonotonicDatabaseService<MODEL, HASH>> shards,
+                                           Executor executor, ToIntFunction<HASH> shardFunction,
+                                           int maxDirectorySize,
+                                           Function<DatabaseService<MODEL, HASH, Long>, SaveStrategy<MODEL, HASH,
+                                                   Long>> shardSaveStrategyFactory) {
+        super(shards, executor, shardFunction, maxDirectorySize, shardSaveStrategyFactory);
+    }
+
+    @Override
+    public long[] getAccessionsInRanges(Collection<MonotonicRange> ranges) {
+        long[] accessions = runInAllShards(shard -> ((MonotonicDatabaseService<MODEL, HASH>) shard)
+                .getAccessionsInRanges(ranges)).values().stream()
+                .flatMapToLong(Arrays::stream)
+                .toArray();
+        Arrays.sort(accessions);
+        return accessions;
+    }
+
+}
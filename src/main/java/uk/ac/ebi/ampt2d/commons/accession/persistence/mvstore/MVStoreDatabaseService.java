@@ -0,0 +1,171 @@
+/*
+ *
+ * Copyright 2018 EMBL - European Bioinformatics Institute
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package uk.ac.ebi.ampt2d.commons.accession.persistence.mvstore;
+
+import org.h2.mvstore.MVMap;
+import org.h2.mvstore.MVStore;
+import org.springframework.dao.DataIntegrityViolationException;
+import uk.ac.ebi.ampt2d.commons.accession.generators.ModelHashAccession;
+import uk.ac.ebi.ampt2d.commons.accession.persistence.DatabaseService;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+
+/**
+ * Implementation of {@link DatabaseService} on an embedded H2 {@link MVStore}, for accessioning in a single process
+ * without the round trips to a relational database. It keeps two maps in the store, one from the hashes to the
+ * accessions and another from the accessions to the models.
+ * <p>
+ * Each save is checked against the stored hashes and accessions and committed as a new version of the store, so it is
+ * either fully persisted or not at all. For this to hold after a crash, the store must be opened with the auto commit
+ * disabled. As the commits and rollbacks apply to the whole store, the saves of all the services that share a store
+ * are serialized on it, while the lookups don't take any lock. The store is neither opened nor closed by this
+ * service.
+ * <p>
+ * The hashes and accessions are stored as they are, so they must be types supported by MVStore, like strings, numbers
+ * or serializable objects. The models are stored through the provided conversion functions.
+ *
+ * @param <MODEL>
+ * @param <HASH>
+ * @param <ACCESSION>
+ */
+public class MVStoreDatabaseService<MODEL, HASH, ACCESSION> implements DatabaseService<MODEL, HASH, ACCESSION> {
+
+    private static final String DEFAULT_NAME = "accessions";
+
+    private final MVStore store;
+
+    private final MVMap<HASH, ACCESSION> hashToAccession;
+
+    private final MVMap<ACCESSION, Object> accessionToModel;
+
+    private final Function<MODEL, ?> toStoredModel;
+
+    private final Function<Object, MODEL> fromStoredModel;
+
+    /**
+     * @param store           Open store where the maps are created, with the auto commit disabled
+     * @param toStoredModel   Function to convert a model to a value supported by MVStore
+     * @param fromStoredModel Function to convert a stored value back to the model
+     */
+    public MVStoreDatabaseService(MVStore store, Function<MODEL, ?> toStoredModel,
+                                  Function<Object, MODEL> fromStoredModel) {
+        this(store, DEFAULT_NAME, toStoredModel, fromStoredModel);
+    }
+
+    /**
+     * @param store           Open store where the maps are created, with the auto commit disabled
+     * @param name            Prefix of the names of the maps, to keep several categories of accessions in a store
+     * @param toStoredModel   Function to convert a model to a value supported by MVStore
+     * @param fromStoredModel Function to convert a stored value back to the model
+     */
+    public MVStoreDatabaseService(MVStore store, String name, Function<MODEL, ?> toStoredModel,
+                                  Function<Object, MODEL> fromStoredModel) {
+        if (store.getAutoCommitDelay() > 0) {
+            throw new IllegalArgumentException("The store must be opened with the auto commit disabled");
+        }
+        this.store = store;
+        synchronized (store) {
+            this.hashToAccession = store.openMap(name + ".hashToAccession");
+            this.accessionToModel = store.openMap(name + ".accessionToModel");
+            // A rollback closes the maps created after the last commit
+            store.commit();
+        }
+        this.toStoredModel = toStoredModel;
+        this.fromStoredModel = fromStoredModel;
+    }
+
+    @Override
+    public Map<ACCESSION, MODEL> findAllAccessionsByHash(Collection<HASH> hashes) {
+        Map<ACCESSION, MODEL> result = new HashMap<>();
+        for (HASH hash : hashes) {
+            ACCESSION accession = hashToAccession.get(hash);
+            if (accession != null) {
+                Object storedModel = accessionToModel.get(accession);
+                if (storedModel != null) {
+                    result.put(accession, fromStoredModel.apply(storedModel));
+                }
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public Map<HASH, ACCESSION> getExistingAccessions(Collection<HASH> hashes) {
+        Map<HASH, ACCESSION> result = new HashMap<>();
+        for (HASH hash : hashes) {
+            ACCESSION accession = hashToAccession.get(hash);
+            if (accession != null) {
+                result.put(hash, accession);
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public void save(List<ModelHashAccession<MODEL, HASH, ACCESSION>> objects) {
+        synchronized (store) {
+            checkUnique(objects);
+            try {
+                for (ModelHashAccession<MODEL, HASH, ACCESSION> object : objects) {
+                    hashToAccession.put(object.hash(), object.accession());
+                    accessionToModel.put(object.accession(), toStoredModel.apply(object.model()));
+                }
+                store.commit();
+            } catch (RuntimeException e) {
+                store.rollback();
+                throw e;
+            }
+        }
+    }
+
+    private void checkUnique(List<ModelHashAccession<MODEL, HASH, ACCESSION>> objects) {
+        Set<HASH> hashes = new HashSet<>();
+        Set<ACCESSION> accessions = new HashSet<>();
+        for (ModelHashAccession<MODEL, HASH, ACCESSION> object : objects) {
+            if (!hashes.add(object.hash()) || hashToAccession.containsKey(object.hash())) {
+                throw new DataIntegrityViolationException("Hash " + object.hash() + " is already stored");
+            }
+            if (!accessions.add(object.accession()) || accessionToModel.containsKey(object.accession())) {
+                throw new DataIntegrityViolationException("Accession " + object.accession() + " is already stored");
+            }
+        }
+    }
+
+    @Override
+    public Map<ACCESSION, MODEL> findAllAccessionMappingsByAccessions(List<ACCESSION> accessions) {
+        Map<ACCESSION, MODEL> result = new HashMap<>();
+        for (ACCESSION accession : accessions) {
+            Object storedModel = accessionToModel.get(accession);
+            if (storedModel != null) {
+                result.put(accession, fromStoredModel.apply(storedModel));
+            }
+        }
+        return result;
+    }
+
+    protected MVMap<ACCESSION, Object> getAccessionToModelMap() {
+        return accessionToModel;
+    }
+
+}
@@ -0,0 +1,135 @@
+/*
+ *
+ * Copyright 2018 EMBL - European Bioinformatics Institute
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package uk.ac.ebi.ampt2d.commons.accession.utils;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.ToLongFunction;
+
+/**
+ * Thread safe probabilistic set that answers if an element might have been added to it. It never gives false
+ * negatives, and gives false positives with the probability it has been sized for, as long as the number of
+ * elements added does not exceed the expected insertions.
+ * <p>
+ * The bit positions of each element are derived from a single 64 bit hash of it, split into two 32 bit values and
+ * combined with double hashing.
+ *
+ * @param <T>
+ */
+public class BloomFilter<T> {
+
+    private final AtomicLongArray bits;
+
+    private final long numberOfBits;
+
+    private final int numberOfHashFunctions;
+
+    private final ToLongFunction<T> hashFunction;
+
+    /**
+     * @param expectedInsertions       Number of elements the filter is sized for
+     * @param falsePositiveProbability False positive probability when the filter holds the expected insertions
+     * @param hashFunction             64 bit hash of the elements
+     */
+    public BloomFilter(long expectedInsertions, double falsePositiveProbability, ToLongFunction<T> hashFunction) {
+        if (falsePositiveProbability <= 0 || falsePositiveProbability >= 1) {
+            throw new IllegalArgumentException("The false positive probability must be between 0 and 1");
+        }
+        long insertions = Math.max(1, expectedInsertions);
+        long optimalBits = (long) Math.ceil(-insertions * Math.log(falsePositiveProbability) /
+                (Math.log(2) * Math.log(2)));
+        this.bits = new AtomicLongArray(Math.toIntExact((optimalBits + Long.SIZE - 1) / Long.SIZE));
+        this.numberOfBits = (long) bits.length() * Long.SIZE;
+        this.numberOfHashFunctions = Math.max(1, (int) Math.round((double) numberOfBits / insertions * Math.log(2)));
+        this.hashFunction = hashFunction;
+    }
+
+    /**
+     * Filter that hashes the string representation of the elements.
+     */
+    public static <T> BloomFilter<T> ofStringRepresentation(long expectedInsertions,
+                                                            double falsePositiveProbability) {
+        return new BloomFilter<>(expectedInsertions, falsePositiveProbability,
+                element -> hash64(element.toString().getBytes(StandardCharsets.UTF_8)));
+    }
+
+    public void add(T element) {
+        long hash = hashFunction.applyAsLong(element);
+        int hash1 = (int) hash;
+        int hash2 = (int) (hash >>> 32);
+        for (int i = 1; i <= numberOfHashFunctions; i++) {
+            setBit(bitIndex(hash1, hash2, i));
+        }
+    }
+
+    public boolean mightContain(T element) {
+        long hash = hashFunction.applyAsLong(element);
+        int hash1 = (int) hash;
+        int hash2 = (int) (hash >>> 32);
+        for (int i = 1; i <= numberOfHashFunctions; i++) {
+            if (!getBit(bitIndex(hash1, hash2, i))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private long bitIndex(int hash1, int hash2, int i) {
+        long combinedHash = (long) hash1 + (long) i * hash2;
+        return Math.floorMod(combinedHash, numberOfBits);
+    }
+
+    private void setBit(long bitIndex) {
+        int wordIndex = (int) (bitIndex >>> 6);
+        long mask = 1L << bitIndex;
+        long word = bits.get(wordIndex);
+        while ((word & mask) == 0 && !bits.compareAndSet(wordIndex, word, word | mask)) {
+            word = bits.get(wordIndex);
+        }
+    }
+
+    private boolean getBit(long bitIndex) {
+        return (bits.get((int) (bitIndex >>> 6)) & (1L << bitIndex)) != 0;
+    }
+
+    public long getNumberOfBits() {
+        return numberOfBits;
+    }
+
+    public int getNumberOfHashFunctions() {
+        return numberOfHashFunctions;
+    }
+
+    /**
+     * 64 bit FNV-1a hash with a final avalanche step, so that both halves of the result are well distributed.
+     */
+    public static long hash64(byte[] bytes) {
+        long hash = 0xcbf29ce484222325L;
+        for (byte b : bytes) {
+            hash ^= b & 0xff;
+            hash *= 0x100000001b3L;
+        }
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb9fe1a85ec53L;
+        hash ^= hash >>> 33;
+        return hash;
+    }
+
+}
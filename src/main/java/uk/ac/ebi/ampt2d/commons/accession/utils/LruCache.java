@@ -0,0 +1,127 @@
+/*
+ *
+ * Copyright 2018 EMBL - European Bioinformatics Institute
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package uk.ac.ebi.ampt2d.commons.accession.utils;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.ToLongFunction;
+
+/**
+ * Thread safe map bounded to a max total weight of its values, that evicts the least recently used entries when the
+ * limit is exceeded. By default each value weighs one, so the max weight is the max number of entries. It keeps count
+ * of the hits, misses and evictions since its creation.
+ *
+ * @param <K>
+ * @param <V>
+ */
+public class LruCache<K, V> {
+
+    private final long maxWeight;
+
+    private final ToLongFunction<? super V> weigher;
+
+    private final LinkedHashMap<K, V> entries;
+
+    private long weight;
+
+    private long hits;
+
+    private long misses;
+
+    private long evictions;
+
+    public LruCache(int maxSize) {
+        this(maxSize, value -> 1);
+    }
+
+    /**
+     * @param maxWeight Max total weight of the cached values
+     * @param weigher   Weight of a value, for example an estimation of its size in memory
+     */
+    public LruCache(long maxWeight, ToLongFunction<? super V> weigher) {
+        this.maxWeight = maxWeight;
+        this.weigher = weigher;
+        this.entries = new LinkedHashMap<>(16, 0.75f, true);
+    }
+
+    /**
+     * @return Cached value or null if the key is not in the cache
+     */
+    public synchronized V get(K key) {
+        V value = entries.get(key);
+        if (value != null) {
+            hits++;
+        } else {
+            misses++;
+        }
+        return value;
+    }
+
+    public synchronized void put(K key, V value) {
+        doPut(key, value);
+        evictExceedingWeight();
+    }
+
+    public synchronized void putAll(Map<? extends K, ? extends V> values) {
+        values.forEach(this::doPut);
+        evictExceedingWeight();
+    }
+
+    private void doPut(K key, V value) {
+        V previousValue = entries.put(key, value);
+        weight += weigher.applyAsLong(value);
+        if (previousValue != null) {
+            weight -= weigher.applyAsLong(previousValue);
+        }
+    }
+
+    private void evictExceedingWeight() {
+        Iterator<V> leastRecentlyUsed = entries.values().iterator();
+        while (weight > maxWeight && leastRecentlyUsed.hasNext()) {
+            weight -= weigher.applyAsLong(leastRecentlyUsed.next());
+            leastRecentlyUsed.remove();
+            evictions++;
+        }
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    public synchronized long getWeight() {
+        return weight;
+    }
+
+    public long getMaxWeight() {
+        return maxWeight;
+    }
+
+    public synchronized long getHits() {
+        return hits;
+    }
+
+    public synchronized long getMisses() {
+        return misses;
+    }
+
+    public synchronized long getEvictions() {
+        return evictions;
+    }
+
+}
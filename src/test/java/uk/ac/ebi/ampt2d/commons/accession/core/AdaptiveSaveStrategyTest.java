@@ -0,0 +1,68 @@
+/*
+ *
+ * Copyright 2018 EMBL - European Bioinformatics Institute
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package uk.ac.ebi.ampt2d.commons.accession.core;
+
+import org.junit.Test;
+import uk.ac.ebi.ampt2d.test.TestModel;
+import uk.ac.ebi.ampt2d.test.service.TestInMemoryDatabaseService;
+
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static uk.ac.ebi.ampt2d.test.service.TestInMemoryDatabaseService.getObjects;
+
+public class AdaptiveSaveStrategyTest {
+
+    @Test
+    public void testSwitchesToOneByOneWithManyConflicts() {
+        TestInMemoryDatabaseService dbService = new TestInMemoryDatabaseService();
+        AdaptiveSaveStrategy<TestModel, String, String> strategy = new AdaptiveSaveStrategy<>(dbService, 0.2, 0.5);
+        strategy.doSaveAccessions(getObjects("existing", 0, 16, 2));
+        assertFalse(strategy.isSavingOneByOne());
+
+        SaveResponse<String, TestModel> response = strategy.doSaveAccessions(getObjects("existing", 0, 16, 1));
+        assertEquals(8, response.getSavedAccessions().size());
+        assertEquals(8, response.getUnsavedAccessions().size());
+        assertTrue(strategy.isSavingOneByOne());
+        assertEquals(0.25, strategy.getRecentConflictRate(), 0.0001);
+
+        int savesBefore = dbService.getSaves();
+        response = strategy.doSaveAccessions(getObjects("one-by-one", 0, 16, 1));
+        assertEquals(16, response.getSavedAccessions().size());
+        assertEquals(16, dbService.getSaves() - savesBefore);
+        assertFalse(strategy.isSavingOneByOne());
+        assertEquals(8.0 / 40, strategy.getConflictRate(), 0.0001);
+    }
+
+    @Test
+    public void testBisectionWithFewConflicts() {
+        TestInMemoryDatabaseService dbService = new TestInMemoryDatabaseService();
+        AdaptiveSaveStrategy<TestModel, String, String> strategy = new AdaptiveSaveStrategy<>(dbService, 0.5);
+        strategy.doSaveAccessions(getObjects("bisection", 0, 1, 1));
+
+        SaveResponse<String, TestModel> response = strategy.doSaveAccessions(getObjects("bisection", 0, 16, 1));
+
+        assertEquals(15, response.getSavedAccessions().size());
+        assertEquals(1, response.getUnsavedAccessions().size());
+        assertFalse(strategy.isSavingOneByOne());
+        assertTrue(dbService.getSaves() < 16);
+        assertEquals(4, strategy.getRetries());
+    }
+
+}
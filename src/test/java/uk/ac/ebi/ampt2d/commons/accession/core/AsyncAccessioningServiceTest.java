@@ -0,0 +1,111 @@
+/*
+ *
+ * Copyright 2018 EMBL - European Bioinformatics Institute
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package uk.ac.ebi.ampt2d.commons.accession.core;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import uk.ac.ebi.ampt2d.commons.accession.generators.SingleAccessionGenerator;
+import uk.ac.ebi.ampt2d.commons.accession.hashing.SHA1HashingFunction;
+import uk.ac.ebi.ampt2d.test.TestModel;
+import uk.ac.ebi.ampt2d.test.service.TestInMemoryDatabaseService;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.junit.Assert.assertEquals;
+
+public class AsyncAccessioningServiceTest {
+
+    private ExecutorService hashingExecutor;
+
+    private ExecutorService databaseExecutor;
+
+    private AsyncAccessioningService<TestModel, String, String> service;
+
+    @Before
+    public void setUp() {
+        hashingExecutor = Executors.newFixedThreadPool(2);
+        databaseExecutor = Executors.newFixedThreadPool(2);
+        service = new AsyncAccessioningService<>(
+                new BasicAccessioningService<>(
+                        SingleAccessionGenerator.ofHashAccessionGenerator(TestModel::getSomething, s -> "id-" + s),
+                        new TestInMemoryDatabaseService(),
+                        TestModel::getSomething,
+                        new SHA1HashingFunction()),
+                hashingExecutor,
+                databaseExecutor);
+    }
+
+    @After
+    public void tearDown() {
+        hashingExecutor.shutdown();
+        databaseExecutor.shutdown();
+    }
+
+    @Test
+    public void testGetOrCreateAccessions() throws Exception {
+        Map<String, TestModel> accessions = service.getOrCreateAccessions(Arrays.asList(
+                TestModel.of("async-test-1"),
+                TestModel.of("async-test-2"),
+                TestModel.of("async-test-2"))).get();
+
+        assertEquals(2, accessions.size());
+        assertEquals("async-test-1", accessions.get("id-async-test-1").getSomething());
+    }
+
+    @Test
+    public void testPipelineOfBatches() throws Exception {
+        List<CompletableFuture<Map<String, TestModel>>> futures = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            futures.add(service.getOrCreateAccessions(Arrays.asList(
+                    TestModel.of("async-test-" + i),
+                    TestModel.of("async-test-" + (i + 1)))));
+        }
+        CompletableFuture.allOf(futures.toArray(new CompletableFuture<?>[0])).get();
+
+        for (CompletableFuture<Map<String, TestModel>> future : futures) {
+            assertEquals(2, future.get().size());
+        }
+        assertEquals(11, service.getAccessions(getModels(0, 11)).get().size());
+    }
+
+    @Test
+    public void testGetAccessionsAndGetByAccessions() throws Exception {
+        service.getOrCreateAccessions(Arrays.asList(TestModel.of("async-test-1"))).get();
+
+        assertEquals(1, service.getAccessions(Arrays.asList(
+                TestModel.of("async-test-1"),
+                TestModel.of("async-test-2"))).get().size());
+        assertEquals(1, service.getByAccessions(Arrays.asList("id-async-test-1", "id-async-test-2")).get().size());
+    }
+
+    private List<TestModel> getModels(int from, int to) {
+        List<TestModel> models = new ArrayList<>();
+        for (int i = from; i < to; i++) {
+            models.add(TestModel.of("async-test-" + i));
+        }
+        return models;
+    }
+
+}
@@ -0,0 +1,135 @@
+/*
+ *
+ * Copyright 2018 EMBL - European Bioinformatics Institute
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package uk.ac.ebi.ampt2d.commons.accession.core;
+
+import org.junit.Test;
+import uk.ac.ebi.ampt2d.commons.accession.generators.ModelHashAccession;
+import uk.ac.ebi.ampt2d.commons.accession.generators.SingleAccessionGenerator;
+import uk.ac.ebi.ampt2d.commons.accession.generators.exceptions.AccessionCouldNotBeGeneratedException;
+import uk.ac.ebi.ampt2d.commons.accession.metrics.AccessioningMetrics;
+import uk.ac.ebi.ampt2d.test.TestModel;
+import uk.ac.ebi.ampt2d.test.service.TestInMemoryDatabaseService;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests the resolution of messages that another application instance accessions between the lookup of existing
+ * accessions and the save of the new ones.
+ */
+public class BasicAccessioningServiceConflictTest {
+
+    /**
+     * Database that hides the objects saved by "another instance" in the first lookup, as if they had been saved
+     * just after it.
+     */
+    private static class ConcurrentlySavedDatabaseService extends TestInMemoryDatabaseService {
+
+        private final AtomicInteger existingAccessionQueries = new AtomicInteger();
+
+        private final AtomicInteger findAllAccessionsByHashQueries = new AtomicInteger();
+
+        @Override
+        public synchronized Map<String, String> getExistingAccessions(Collection<String> hashes) {
+            if (existingAccessionQueries.getAndIncrement() == 0) {
+                return new HashMap<>();
+            }
+            return super.getExistingAccessions(hashes);
+        }
+
+        @Override
+        public synchronized Map<String, TestModel> findAllAccessionsByHash(Collection<String> hashes) {
+            findAllAccessionsByHashQueries.incrementAndGet();
+            return super.findAllAccessionsByHash(hashes);
+        }
+    }
+
+    @Test
+    public void testConflictsAreResolvedByHash() throws AccessionCouldNotBeGeneratedException {
+        ConcurrentlySavedDatabaseService dbService = new ConcurrentlySavedDatabaseService();
+        dbService.save(Arrays.asList(ModelHashAccession.of(TestModel.of("conflict-test-2"), "conflict-test-2",
+                "id-other-instance")));
+        BasicAccessioningService<TestModel, String, String> accessioningService = new BasicAccessioningService<>(
+                SingleAccessionGenerator.ofHashAccessionGenerator(TestModel::getSomething, s -> "id-" + s),
+                dbService,
+                TestModel::getSomething,
+                s -> s);
+
+        TestModel conflictingMessage = TestModel.of("conflict-test-2");
+        Map<String, TestModel> accessions = accessioningService.getOrCreateAccessions(Arrays.asList(
+                TestModel.of("conflict-test-1"),
+                conflictingMessage,
+                TestModel.of("conflict-test-3")));
+
+        assertEquals(3, accessions.size());
+        assertSame(conflictingMessage, accessions.get("id-other-instance"));
+        assertEquals(2, dbService.existingAccessionQueries.get());
+        assertEquals(0, dbService.findAllAccessionsByHashQueries.get());
+    }
+
+    @Test
+    public void testConflictsAreRecordedInMetrics() throws AccessionCouldNotBeGeneratedException {
+        ConcurrentlySavedDatabaseService dbService = new ConcurrentlySavedDatabaseService();
+        dbService.save(Arrays.asList(ModelHashAccession.of(TestModel.of("conflict-test-2"), "conflict-test-2",
+                "id-other-instance")));
+        BasicAccessioningService<TestModel, String, String> accessioningService = new BasicAccessioningService<>(
+                SingleAccessionGenerator.ofHashAccessionGenerator(TestModel::getSomething, s -> "id-" + s),
+                dbService,
+                TestModel::getSomething,
+                s -> s);
+        Map<String, Long> values = new ConcurrentHashMap<>();
+        Map<String, Long> times = new ConcurrentHashMap<>();
+        accessioningService.setMetrics(new AccessioningMetrics() {
+            @Override
+            public void recordTime(String stage, long elapsedNanos) {
+                times.merge(stage, elapsedNanos, Long::sum);
+            }
+
+            @Override
+            public void recordValue(String name, long value) {
+                values.put(name, value);
+            }
+
+            @Override
+            public void increment(String name, long delta) {
+                values.merge(name, delta, Long::sum);
+            }
+        });
+
+        accessioningService.getOrCreateAccessions(Arrays.asList(TestModel.of("conflict-test-1"),
+                TestModel.of("conflict-test-2"), TestModel.of("conflict-test-3")));
+
+        assertEquals(3L, (long) values.get(AccessioningMetrics.BATCH_SIZE));
+        assertEquals(0L, (long) values.get(AccessioningMetrics.EXISTING_MESSAGES));
+        assertEquals(3L, (long) values.get(AccessioningMetrics.NEW_MESSAGES));
+        assertEquals(1L, (long) values.get(AccessioningMetrics.CONFLICTS));
+        assertTrue(values.get(AccessioningMetrics.SAVE_FAILURES) > 0);
+        assertTrue(times.keySet().containsAll(Arrays.asList(AccessioningMetrics.HASHING, AccessioningMetrics.LOOKUP,
+                AccessioningMetrics.GENERATION, AccessioningMetrics.SAVE, AccessioningMetrics.POST_SAVE,
+                AccessioningMetrics.CONFLICT_RESOLUTION)));
+    }
+
+}
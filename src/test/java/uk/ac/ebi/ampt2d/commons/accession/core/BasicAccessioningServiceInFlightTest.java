@@ -0,0 +1,154 @@
+/*
+ *
+ * Copyright 2018 EMBL - European Bioinformatics Institute
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package uk.ac.ebi.ampt2d.commons.accession.core;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import uk.ac.ebi.ampt2d.commons.accession.generators.SingleAccessionGenerator;
+import uk.ac.ebi.ampt2d.test.TestModel;
+import uk.ac.ebi.ampt2d.test.service.TestInMemoryDatabaseService;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Tests two concurrent calls of the same accessioning service that share some of their messages.
+ */
+public class BasicAccessioningServiceInFlightTest {
+
+    private static final long TIMEOUT_SECONDS = 10;
+
+    /**
+     * Database whose first lookup waits until a second lookup starts, so that the second call claims its hashes while
+     * the first one still owns the shared ones.
+     */
+    private static class OverlappingLookupsDatabaseService extends TestInMemoryDatabaseService {
+
+        private final AtomicInteger lookups = new AtomicInteger();
+
+        private final CountDownLatch firstLookupStarted = new CountDownLatch(1);
+
+        private final CountDownLatch secondLookupStarted = new CountDownLatch(1);
+
+        @Override
+        public Map<String, String> getExistingAccessions(Collection<String> hashes) {
+            if (lookups.incrementAndGet() == 1) {
+                firstLookupStarted.countDown();
+                try {
+                    secondLookupStarted.await(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            } else {
+                secondLookupStarted.countDown();
+            }
+            return super.getExistingAccessions(hashes);
+        }
+    }
+
+    private OverlappingLookupsDatabaseService dbService;
+
+    private Map<String, AtomicInteger> generatedAccessions;
+
+    private ExecutorService executor;
+
+    @Before
+    public void setUp() {
+        dbService = new OverlappingLookupsDatabaseService();
+        generatedAccessions = new ConcurrentHashMap<>();
+        executor = Executors.newFixedThreadPool(2);
+    }
+
+    @After
+    public void tearDown() {
+        executor.shutdownNow();
+    }
+
+    private BasicAccessioningService<TestModel, String, String> getService(Function<String, String> accessionFunction) {
+        return new BasicAccessioningService<>(
+                SingleAccessionGenerator.ofHashAccessionGenerator(TestModel::getSomething, hash -> {
+                    generatedAccessions.computeIfAbsent(hash, key -> new AtomicInteger()).incrementAndGet();
+                    return accessionFunction.apply(hash);
+                }),
+                dbService,
+                TestModel::getSomething,
+                s -> s);
+    }
+
+    @Test
+    public void testSharedMessagesAreAccessionedOnce() throws Exception {
+        BasicAccessioningService<TestModel, String, String> service = getService(hash -> "id-" + hash);
+
+        Future<Map<String, TestModel>> first = executor.submit(() -> service.getOrCreateAccessions(Arrays.asList(
+                TestModel.of("shared"), TestModel.of("first"))));
+        assertTrue(dbService.firstLookupStarted.await(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+        Future<Map<String, TestModel>> second = executor.submit(() -> service.getOrCreateAccessions(Arrays.asList(
+                TestModel.of("shared"), TestModel.of("second"))));
+
+        Map<String, TestModel> firstAccessions = first.get(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        Map<String, TestModel> secondAccessions = second.get(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+
+        assertEquals(firstAccessions.keySet(), new HashSet<>(Arrays.asList("id-shared", "id-first")));
+        assertEquals(secondAccessions.keySet(), new HashSet<>(Arrays.asList("id-shared", "id-second")));
+        assertEquals(1, generatedAccessions.get("shared").get());
+    }
+
+    @Test
+    public void testErrorOfTheOwnerReleasesTheSharedMessages() throws Exception {
+        AtomicBoolean failed = new AtomicBoolean();
+        BasicAccessioningService<TestModel, String, String> service = getService(hash -> {
+            if (hash.equals("shared") && failed.compareAndSet(false, true)) {
+                throw new AssertionError("Generator failure");
+            }
+            return "id-" + hash;
+        });
+
+        Future<Map<String, TestModel>> first = executor.submit(() -> service.getOrCreateAccessions(Arrays.asList(
+                TestModel.of("shared"))));
+        assertTrue(dbService.firstLookupStarted.await(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+        Future<Map<String, TestModel>> second = executor.submit(() -> service.getOrCreateAccessions(Arrays.asList(
+                TestModel.of("shared"), TestModel.of("second"))));
+
+        try {
+            first.get(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+            fail("The first call should have failed");
+        } catch (ExecutionException e) {
+            assertTrue(e.getCause() instanceof AssertionError);
+        }
+        Map<String, TestModel> secondAccessions = second.get(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        assertEquals(secondAccessions.keySet(), new HashSet<>(Arrays.asList("id-shared", "id-second")));
+    }
+
+}
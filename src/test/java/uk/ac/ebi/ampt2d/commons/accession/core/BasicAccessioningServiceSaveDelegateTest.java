@@ -25,6 +25,7 @@ import org.springframework.test.annotation.Commit;
 import org.springframework.test.context.ContextConfiguration;
 import org.springframework.test.context.junit4.SpringRunner;
 import org.springframework.test.context.transaction.TestTransaction;
+import uk.ac.ebi.ampt2d.commons.accession.generators.ModelHashAccession;
 import uk.ac.ebi.ampt2d.commons.accession.generators.SingleAccessionGenerator;
 import uk.ac.ebi.ampt2d.commons.accession.generators.exceptions.AccessionCouldNotBeGeneratedException;
 import uk.ac.ebi.ampt2d.commons.accession.hashing.SHA1HashingFunction;
@@ -33,11 +34,25 @@ import uk.ac.ebi.ampt2d.test.TestModel;
 import uk.ac.ebi.ampt2d.test.configuration.TestDatabaseServiceTestConfiguration;
 import uk.ac.ebi.ampt2d.test.persistence.TestEntity;
 import uk.ac.ebi.ampt2d.test.persistence.TestRepository;
+import uk.ac.ebi.ampt2d.test.service.TestInMemoryDatabaseService;
 
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static uk.ac.ebi.ampt2d.test.service.TestInMemoryDatabaseService.getObjects;
 
 @RunWith(SpringRunner.class)
 @DataJpaTest
@@ -99,6 +114,113 @@ public class BasicAccessioningServiceSaveDelegateTest {
         TestTransaction.end();
     }
 
+    @Test
+    public void testSavePartitionsInParallel() {
+        Set<String> savingThreads = ConcurrentHashMap.newKeySet();
+        TestInMemoryDatabaseService inMemoryDatabaseService = new TestInMemoryDatabaseService() {
+            @Override
+            public void save(List<ModelHashAccession<TestModel, String, String>> objects) {
+                savingThreads.add(Thread.currentThread().getName());
+                super.save(objects);
+            }
+        };
+        inMemoryDatabaseService.save(Arrays.asList(
+                ModelHashAccession.of(TestModel.of("test-3"), "h3", "a-other-3"),
+                ModelHashAccession.of(TestModel.of("test-60"), "h-other-60", "a60")));
+        savingThreads.clear();
+        List<ModelHashAccession<TestModel, String, String>> objects = getObjects(0, 100);
+
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            BasicAccessioningServiceSaveDelegate<TestModel, String, String> delegate =
+                    new BasicAccessioningServiceSaveDelegate<>(inMemoryDatabaseService, executor);
+            SaveResponse<String, TestModel> response = delegate.doSaveAccessions(objects);
+
+            assertEquals(98, response.getSavedAccessions().size());
+            assertEquals(2, response.getUnsavedAccessions().size());
+            assertTrue(response.getUnsavedAccessions().keySet().containsAll(Arrays.asList("a3", "a60")));
+            assertTrue(delegate.getRetries() > 0);
+            assertFalse(savingThreads.contains(Thread.currentThread().getName()));
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void testParallelSaveFailureSkipsTheRemainingPartitions() {
+        AtomicInteger saves = new AtomicInteger();
+        TestInMemoryDatabaseService failingDatabaseService = new TestInMemoryDatabaseService() {
+            @Override
+            public void save(List<ModelHashAccession<TestModel, String, String>> objects) {
+                saves.incrementAndGet();
+                throw new OutOfMemoryError("Test error");
+            }
+        };
+
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            BasicAccessioningServiceSaveDelegate<TestModel, String, String> delegate =
+                    new BasicAccessioningServiceSaveDelegate<>(failingDatabaseService, executor);
+            delegate.setMaxRowsPerTransaction(10);
+            delegate.doSaveAccessions(getObjects(0, 100));
+            fail("The error should have been rethrown");
+        } catch (OutOfMemoryError e) {
+            assertEquals("Test error", e.getMessage());
+            assertEquals(1, saves.get());
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void testSaveInChunksOfMaxRowsPerTransaction() {
+        List<Integer> transactionSizes = new ArrayList<>();
+        TestInMemoryDatabaseService inMemoryDatabaseService = new TestInMemoryDatabaseService() {
+            @Override
+            public void save(List<ModelHashAccession<TestModel, String, String>> objects) {
+                transactionSizes.add(objects.size());
+                super.save(objects);
+            }
+        };
+        inMemoryDatabaseService.save(Arrays.asList(ModelHashAccession.of(TestModel.of("test-95"), "h95", "a-other")));
+        transactionSizes.clear();
+
+        BasicAccessioningServiceSaveDelegate<TestModel, String, String> delegate =
+                new BasicAccessioningServiceSaveDelegate<>(inMemoryDatabaseService);
+        delegate.setMaxRowsPerTransaction(30);
+        SaveResponse<String, TestModel> response = delegate.doSaveAccessions(getObjects(0, 100));
+
+        assertEquals(99, response.getSavedAccessions().size());
+        assertEquals(1, response.getUnsavedAccessions().size());
+        assertEquals(Arrays.asList(30, 30, 30), transactionSizes.subList(0, 3));
+        assertTrue(transactionSizes.stream().allMatch(size -> size <= 30));
+    }
+
+    @Test
+    public void testRowsPerTransactionAdaptToCommitLatency() {
+        TestInMemoryDatabaseService slowDatabaseService = new TestInMemoryDatabaseService() {
+            @Override
+            public void save(List<ModelHashAccession<TestModel, String, String>> objects) {
+                try {
+                    Thread.sleep(objects.size() / 2);
+                } catch (InterruptedException e) {
+                    throw new RuntimeException(e);
+                }
+                super.save(objects);
+            }
+        };
+
+        BasicAccessioningServiceSaveDelegate<TestModel, String, String> delegate =
+                new BasicAccessioningServiceSaveDelegate<>(slowDatabaseService);
+        delegate.setMaxRowsPerTransaction(100);
+        delegate.setTargetTransactionTime(20, TimeUnit.MILLISECONDS);
+        SaveResponse<String, TestModel> response = delegate.doSaveAccessions(getObjects(0, 400));
+
+        assertEquals(400, response.getSavedAccessions().size());
+        assertTrue(delegate.getRowsPerTransaction() < 100);
+        assertTrue(delegate.getRowsPerTransaction() > 0);
+    }
+
     private BasicAccessioningService<TestModel, String, String> getAccessioningService() {
         return new BasicAccessioningService<>(
                 SingleAccessionGenerator.ofHashAccessionGenerator(
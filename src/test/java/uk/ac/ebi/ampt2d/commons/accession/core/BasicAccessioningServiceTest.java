@@ -23,6 +23,7 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
 import org.springframework.test.context.ContextConfiguration;
 import org.springframework.test.context.junit4.SpringRunner;
+import uk.ac.ebi.ampt2d.commons.accession.core.exceptions.HashMismatchException;
 import uk.ac.ebi.ampt2d.commons.accession.generators.SingleAccessionGenerator;
 import uk.ac.ebi.ampt2d.commons.accession.generators.exceptions.AccessionCouldNotBeGeneratedException;
 import uk.ac.ebi.ampt2d.commons.accession.hashing.SHA1HashingFunction;
@@ -33,9 +34,13 @@ import uk.ac.ebi.ampt2d.test.persistence.TestEntity;
 import uk.ac.ebi.ampt2d.test.persistence.TestRepository;
 
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
 
 @RunWith(SpringRunner.class)
 @DataJpaTest
@@ -131,4 +136,56 @@ public class BasicAccessioningServiceTest {
         assertEquals(3, accessions.size());
     }
 
+    @Test
+    public void testGetOrCreateWithParallelHashingKeepsFirstMessage() throws AccessionCouldNotBeGeneratedException {
+        BasicAccessioningService<TestModel, String, String> accessioningService = getAccessioningService();
+        accessioningService.setParallelHashing(new ForkJoinPool(4), 2);
+
+        TestModel firstMessage = TestModel.of("service-test-2");
+        Map<String, TestModel> accessions = accessioningService.getOrCreateAccessions(Arrays.asList(
+                TestModel.of("service-test-1"),
+                firstMessage,
+                TestModel.of("service-test-2"),
+                TestModel.of("service-test-3"),
+                TestModel.of("service-test-2")
+        ));
+        assertEquals(3, accessions.size());
+        assertSame(firstMessage, accessions.get("id-service-service-test-2"));
+
+        assertEquals(3, accessioningService.getAccessions(Arrays.asList(
+                TestModel.of("service-test-1"),
+                TestModel.of("service-test-2"),
+                TestModel.of("service-test-3")
+        )).size());
+    }
+
+    @Test
+    public void testGetOrCreateAccessionsByHash() throws AccessionCouldNotBeGeneratedException {
+        repository.save(new TestEntity(
+                "id-service-test-3",
+                "85C4F271CBD3E11A9F8595854F755ADDFE2C0732",
+                "service-test-3"));
+
+        BasicAccessioningService<TestModel, String, String> accessioningService = getAccessioningService();
+        accessioningService.setHashVerificationRate(1);
+
+        Map<String, TestModel> hashToMessages = new HashMap<>();
+        hashToMessages.put(new SHA1HashingFunction().apply("service-test-1"), TestModel.of("service-test-1"));
+        hashToMessages.put("85C4F271CBD3E11A9F8595854F755ADDFE2C0732", TestModel.of("service-test-3"));
+        Map<String, TestModel> accessions = accessioningService.getOrCreateAccessionsByHash(hashToMessages);
+
+        assertEquals(2, accessions.size());
+        assertEquals("service-test-1", accessions.get("id-service-service-test-1").getSomething());
+        assertEquals("service-test-3", accessions.get("id-service-test-3").getSomething());
+    }
+
+    @Test(expected = HashMismatchException.class)
+    public void testGetOrCreateAccessionsByHashWithWrongHash() throws AccessionCouldNotBeGeneratedException {
+        BasicAccessioningService<TestModel, String, String> accessioningService = getAccessioningService();
+        accessioningService.setHashVerificationRate(1);
+
+        accessioningService.getOrCreateAccessionsByHash(
+                Collections.singletonMap("85C4F271CBD3E11A9F8595854F755ADDFE2C0732", TestModel.of("service-test-1")));
+    }
+
 }
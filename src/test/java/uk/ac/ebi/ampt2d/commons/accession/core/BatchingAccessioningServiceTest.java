@@ -0,0 +1,262 @@
+/*
+ *
+ * Copyright 2018 EMBL - European Bioinformatics Institute
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package uk.ac.ebi.ampt2d.commons.accession.core;
+
+import org.junit.Test;
+import uk.ac.ebi.ampt2d.commons.accession.generators.AccessionGenerator;
+import uk.ac.ebi.ampt2d.commons.accession.generators.ModelHashAccession;
+import uk.ac.ebi.ampt2d.commons.accession.generators.exceptions.AccessionCouldNotBeGeneratedException;
+import uk.ac.ebi.ampt2d.test.TestModel;
+import uk.ac.ebi.ampt2d.test.service.TestInMemoryDatabaseService;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class BatchingAccessioningServiceTest {
+
+    private static final int WINDOW_MILLIS = 500;
+
+    /**
+     * Generates accessions "id-" + message, keeping count of the calls. It fails to generate the accession of the
+     * message "fail", and raises an error for the message "error".
+     */
+    private static class CountingAccessionGenerator implements AccessionGenerator<TestModel, String> {
+
+        private final AtomicInteger calls = new AtomicInteger();
+
+        @Override
+        public <HASH> List<ModelHashAccession<TestModel, HASH, String>> generateAccessions(
+                Map<HASH, TestModel> messages) throws AccessionCouldNotBeGeneratedException {
+            calls.incrementAndGet();
+            for (TestModel message : messages.values()) {
+                if (message.getSomething().equals("fail")) {
+                    throw new AccessionCouldNotBeGeneratedException("Could not accession 'fail'");
+                }
+                if (message.getSomething().equals("error")) {
+                    throw new AssertionError("Error accessioning 'error'");
+                }
+            }
+            return messages.entrySet().stream()
+                    .map(entry -> ModelHashAccession.of(entry.getValue(), entry.getKey(),
+                            "id-" + entry.getValue().getSomething()))
+                    .collect(Collectors.toList());
+        }
+
+        @Override
+        public void postSave(SaveResponse<String, TestModel> response) {
+        }
+    }
+
+    @Test
+    public void testConcurrentRequestsAreCoalesced() throws Exception {
+        CountingAccessionGenerator delegate = new CountingAccessionGenerator();
+        BatchingAccessioningService<TestModel, String, String> service = getService(delegate, 1000);
+
+        List<Map<String, TestModel>> results = runConcurrently(service,
+                Arrays.asList(TestModel.of("batch-1"), TestModel.of("batch-2")),
+                Arrays.asList(TestModel.of("batch-2"), TestModel.of("batch-3")),
+                Arrays.asList(TestModel.of("batch-4")));
+
+        assertEquals(1, delegate.calls.get());
+        assertEquals(1, service.getNumberOfWindows());
+        assertEquals(3, service.getNumberOfRequests());
+        assertEquals(5, service.getNumberOfMessages());
+
+        assertEquals(2, results.get(0).size());
+        assertEquals("batch-1", results.get(0).get("id-batch-1").getSomething());
+        assertEquals("batch-2", results.get(0).get("id-batch-2").getSomething());
+        assertEquals(2, results.get(1).size());
+        assertEquals("batch-2", results.get(1).get("id-batch-2").getSomething());
+        assertEquals("batch-3", results.get(1).get("id-batch-3").getSomething());
+        assertEquals(1, results.get(2).size());
+        assertEquals("batch-4", results.get(2).get("id-batch-4").getSomething());
+    }
+
+    @Test
+    public void testMessagesAreHashedOnce() throws Exception {
+        AtomicInteger summaries = new AtomicInteger();
+        BatchingAccessioningService<TestModel, String, String> service = new BatchingAccessioningService<>(
+                new BasicAccessioningService<>(new CountingAccessionGenerator(), new TestInMemoryDatabaseService(),
+                        message -> {
+                            summaries.incrementAndGet();
+                            return message.getSomething();
+                        },
+                        s -> s),
+                WINDOW_MILLIS, 1000);
+
+        List<Map<String, TestModel>> results = runConcurrently(service,
+                Arrays.asList(TestModel.of("batch-1"), TestModel.of("batch-2")),
+                Arrays.asList(TestModel.of("batch-2"), TestModel.of("batch-3")));
+
+        assertEquals(2, results.get(0).size());
+        assertEquals(2, results.get(1).size());
+        assertEquals(4, summaries.get());
+    }
+
+    @Test
+    public void testWindowClosesWhenMaxBatchSizeIsReached() throws Exception {
+        CountingAccessionGenerator delegate = new CountingAccessionGenerator();
+        BatchingAccessioningService<TestModel, String, String> service = new BatchingAccessioningService<>(
+                getAccessioningService(delegate), 60000, 2);
+
+        long start = System.currentTimeMillis();
+        Map<String, TestModel> accessions = service.getOrCreateAccessions(Arrays.asList(
+                TestModel.of("batch-1"),
+                TestModel.of("batch-2")));
+
+        assertTrue(System.currentTimeMillis() - start < 60000);
+        assertEquals(2, accessions.size());
+        assertEquals(1, delegate.calls.get());
+    }
+
+    @Test
+    public void testFilterRepeatedInsideRequest() throws Exception {
+        CountingAccessionGenerator delegate = new CountingAccessionGenerator();
+        BatchingAccessioningService<TestModel, String, String> service = getService(delegate, 1000);
+
+        Map<String, TestModel> accessions = service.getOrCreateAccessions(Arrays.asList(
+                TestModel.of("batch-1"),
+                TestModel.of("batch-2"),
+                TestModel.of("batch-2")));
+
+        assertEquals(2, accessions.size());
+    }
+
+    @Test
+    public void testExceptionIsOnlyPropagatedToTheFailingRequest() throws Exception {
+        CountingAccessionGenerator delegate = new CountingAccessionGenerator();
+        BatchingAccessioningService<TestModel, String, String> service = getService(delegate, 1000);
+
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            Future<Map<String, TestModel>> failing = executor.submit(() -> {
+                start.await();
+                return service.getOrCreateAccessions(Arrays.asList(TestModel.of("fail")));
+            });
+            Future<Map<String, TestModel>> valid = executor.submit(() -> {
+                start.await();
+                return service.getOrCreateAccessions(Arrays.asList(TestModel.of("batch-1")));
+            });
+            start.countDown();
+
+            assertTrue(getCause(failing) instanceof AccessionCouldNotBeGeneratedException);
+            assertEquals("batch-1", valid.get().get("id-batch-1").getSomething());
+            assertEquals(1, service.getNumberOfWindows());
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void testErrorIsOnlyPropagatedToTheFailingRequest() throws Exception {
+        CountingAccessionGenerator delegate = new CountingAccessionGenerator();
+        BatchingAccessioningService<TestModel, String, String> service = getService(delegate, 1000);
+
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            Future<Map<String, TestModel>> failing = executor.submit(() -> {
+                start.await();
+                return service.getOrCreateAccessions(Arrays.asList(TestModel.of("error")));
+            });
+            Future<Map<String, TestModel>> valid = executor.submit(() -> {
+                start.await();
+                return service.getOrCreateAccessions(Arrays.asList(TestModel.of("batch-1")));
+            });
+            start.countDown();
+
+            assertTrue(getCause(failing, 10) instanceof AssertionError);
+            assertEquals("batch-1", valid.get(10, TimeUnit.SECONDS).get("id-batch-1").getSomething());
+            assertEquals(1, service.getNumberOfWindows());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private Throwable getCause(Future<?> future, long timeoutSeconds) throws Exception {
+        try {
+            future.get(timeoutSeconds, TimeUnit.SECONDS);
+        } catch (ExecutionException e) {
+            return e.getCause();
+        }
+        return null;
+    }
+
+    private Throwable getCause(Future<?> future) throws InterruptedException {
+        try {
+            future.get();
+        } catch (ExecutionException e) {
+            return e.getCause();
+        }
+        return null;
+    }
+
+    private BatchingAccessioningService<TestModel, String, String> getService(
+            CountingAccessionGenerator delegate, int maxBatchSize) {
+        return new BatchingAccessioningService<>(getAccessioningService(delegate), WINDOW_MILLIS, maxBatchSize);
+    }
+
+    private BasicAccessioningService<TestModel, String, String> getAccessioningService(
+            CountingAccessionGenerator delegate) {
+        return new BasicAccessioningService<>(delegate, new TestInMemoryDatabaseService(), TestModel::getSomething,
+                s -> s);
+    }
+
+    @SafeVarargs
+    private final List<Map<String, TestModel>> runConcurrently(
+            BatchingAccessioningService<TestModel, String, String> service, List<TestModel>... requests)
+            throws Exception {
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(requests.length);
+        try {
+            List<Future<Map<String, TestModel>>> futures = new ArrayList<>();
+            for (List<TestModel> request : requests) {
+                Callable<Map<String, TestModel>> call = () -> {
+                    start.await();
+                    return service.getOrCreateAccessions(request);
+                };
+                futures.add(executor.submit(call));
+            }
+            start.countDown();
+
+            List<Map<String, TestModel>> results = new ArrayList<>();
+            for (Future<Map<String, TestModel>> future : futures) {
+                results.add(future.get());
+            }
+            return results;
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+}
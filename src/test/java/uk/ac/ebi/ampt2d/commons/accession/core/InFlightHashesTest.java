@@ -0,0 +1,102 @@
+/*
+ *
+ * Copyright 2018 EMBL - European Bioinformatics Institute
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package uk.ac.ebi.ampt2d.commons.accession.core;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+import static org.hamcrest.Matchers.containsInAnyOrder;
+import static org.hamcrest.Matchers.empty;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+
+public class InFlightHashesTest {
+
+    @Test
+    public void testClaimFreeHashes() {
+        InFlightHashes<String, String> inFlightHashes = new InFlightHashes<>();
+        InFlightHashes<String, String>.Claim claim = inFlightHashes.claim(Arrays.asList("h1", "h2"));
+
+        assertThat(claim.getOwnedHashes(), containsInAnyOrder("h1", "h2"));
+        assertThat(claim.getAwaitedHashes(), empty());
+    }
+
+    @Test
+    public void testClaimHashesInFlight() {
+        InFlightHashes<String, String> inFlightHashes = new InFlightHashes<>();
+        inFlightHashes.claim(Arrays.asList("h1", "h2"));
+        InFlightHashes<String, String>.Claim claim = inFlightHashes.claim(Arrays.asList("h2", "h3"));
+
+        assertThat(claim.getOwnedHashes(), containsInAnyOrder("h3"));
+        assertThat(claim.getAwaitedHashes(), containsInAnyOrder("h2"));
+    }
+
+    @Test
+    public void testCompletedHashesCanBeClaimedAgain() {
+        InFlightHashes<String, String> inFlightHashes = new InFlightHashes<>();
+        InFlightHashes<String, String>.Claim claim = inFlightHashes.claim(Arrays.asList("h1"));
+        inFlightHashes.complete(claim, Collections.singletonMap("h1", "a1"));
+
+        InFlightHashes<String, String>.Claim secondClaim = inFlightHashes.claim(Arrays.asList("h1"));
+        assertThat(secondClaim.getOwnedHashes(), containsInAnyOrder("h1"));
+    }
+
+    @Test
+    public void testAwaitResultOfOwner() throws Exception {
+        InFlightHashes<String, String> inFlightHashes = new InFlightHashes<>();
+        InFlightHashes<String, String>.Claim ownerClaim = inFlightHashes.claim(Arrays.asList("h1", "h2"));
+        InFlightHashes<String, String>.Claim waiterClaim = inFlightHashes.claim(Arrays.asList("h1", "h2"));
+
+        CompletableFuture<Map<String, String>> awaited = CompletableFuture.supplyAsync(
+                () -> inFlightHashes.await(waiterClaim));
+        assertFalse(awaited.isDone());
+
+        Map<String, String> accessions = new HashMap<>();
+        accessions.put("h1", "a1");
+        inFlightHashes.complete(ownerClaim, accessions);
+
+        Map<String, String> result = awaited.get();
+        assertEquals(2, result.size());
+        assertEquals("a1", result.get("h1"));
+        assertTrue(result.containsKey("h2"));
+        assertNull(result.get("h2"));
+    }
+
+    @Test
+    public void testAwaitFailedOwner() {
+        InFlightHashes<String, String> inFlightHashes = new InFlightHashes<>();
+        InFlightHashes<String, String>.Claim ownerClaim = inFlightHashes.claim(Arrays.asList("h1"));
+        InFlightHashes<String, String>.Claim waiterClaim = inFlightHashes.claim(Arrays.asList("h1"));
+
+        inFlightHashes.fail(ownerClaim, new RuntimeException("Owner failed"));
+
+        Map<String, String> result = inFlightHashes.await(waiterClaim);
+        assertTrue(result.containsKey("h1"));
+        assertNull(result.get("h1"));
+        assertThat(inFlightHashes.claim(Arrays.asList("h1")).getOwnedHashes(), containsInAnyOrder("h1"));
+    }
+
+}
@@ -0,0 +1,91 @@
+/*
+ *
+ * Copyright 2018 EMBL - European Bioinformatics Institute
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package uk.ac.ebi.ampt2d.commons.accession.core;
+
+import org.junit.Test;
+import uk.ac.ebi.ampt2d.commons.accession.generators.ModelHashAccession;
+import uk.ac.ebi.ampt2d.commons.accession.generators.SingleAccessionGenerator;
+import uk.ac.ebi.ampt2d.commons.accession.generators.exceptions.AccessionCouldNotBeGeneratedException;
+import uk.ac.ebi.ampt2d.test.TestModel;
+import uk.ac.ebi.ampt2d.test.service.TestInMemoryDatabaseService;
+
+import java.util.Arrays;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static uk.ac.ebi.ampt2d.test.service.TestInMemoryDatabaseService.getObjects;
+
+public class RecheckExistingSaveStrategyTest {
+
+    @Test
+    public void testExistingHashesAreNotSaved() {
+        TestInMemoryDatabaseService dbService = new TestInMemoryDatabaseService();
+        dbService.save(Arrays.asList(
+                ModelHashAccession.of(TestModel.of("recheck-2"), "h2", "a-other-2"),
+                ModelHashAccession.of(TestModel.of("recheck-4"), "h4", "a-other-4")));
+        RecheckExistingSaveStrategy<TestModel, String, String> strategy = new RecheckExistingSaveStrategy<>(dbService);
+
+        SaveResponse<String, TestModel> response = strategy.doSaveAccessions(getObjects(1, 6));
+
+        assertEquals(3, response.getSavedAccessions().size());
+        assertEquals(2, response.getUnsavedAccessions().size());
+        assertTrue(response.getUnsavedAccessions().keySet().containsAll(Arrays.asList("a2", "a4")));
+        assertEquals(2, response.getExistingAccessions().size());
+        assertEquals("a-other-2", response.getExistingAccessions().get("a2"));
+        assertEquals("a-other-4", response.getExistingAccessions().get("a4"));
+        assertEquals(2, dbService.getSaves());
+        assertEquals(0, strategy.getRetries());
+        assertEquals(0.4, strategy.getConflictRate(), 0.0001);
+    }
+
+    @Test
+    public void testConflictsAfterRecheckAreHandledByDelegate() {
+        TestInMemoryDatabaseService dbService = new TestInMemoryDatabaseService();
+        dbService.save(Arrays.asList(ModelHashAccession.of(TestModel.of("recheck-2"), "h-other", "a2")));
+        RecheckExistingSaveStrategy<TestModel, String, String> strategy = new RecheckExistingSaveStrategy<>(dbService);
+
+        SaveResponse<String, TestModel> response = strategy.doSaveAccessions(getObjects(1, 5));
+
+        assertEquals(3, response.getSavedAccessions().size());
+        assertEquals(1, response.getUnsavedAccessions().size());
+        assertTrue(response.getExistingAccessions().isEmpty());
+        assertTrue(strategy.getRetries() > 0);
+    }
+
+    @Test
+    public void testRecheckedAccessionsAreNotLookedUpAgain() throws AccessionCouldNotBeGeneratedException {
+        TestInMemoryDatabaseService dbService = new TestInMemoryDatabaseService();
+        // Another instance stores the same object while the accession is being generated
+        SingleAccessionGenerator<TestModel, String> generator = new SingleAccessionGenerator<>(model -> {
+            dbService.save(Arrays.asList(ModelHashAccession.of(model, model.getSomething(), "a-other")));
+            return "a-generated";
+        });
+        BasicAccessioningService<TestModel, String, String> accessioningService = new BasicAccessioningService<>(
+                generator, dbService, TestModel::getSomething, s -> s,
+                new RecheckExistingSaveStrategy<>(dbService));
+
+        Map<String, TestModel> accessions = accessioningService.getOrCreateAccessions(
+                Arrays.asList(TestModel.of("recheck-race")));
+
+        assertEquals(1, accessions.size());
+        assertEquals("recheck-race", accessions.get("a-other").getSomething());
+        assertEquals(2, dbService.getHashQueries());
+    }
+
+}
@@ -0,0 +1,149 @@
+/*
+ *
+ * Copyright 2018 EMBL - European Bioinformatics Institute
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package uk.ac.ebi.ampt2d.commons.accession.core;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.dao.DataAccessResourceFailureException;
+import uk.ac.ebi.ampt2d.commons.accession.generators.ModelHashAccession;
+import uk.ac.ebi.ampt2d.commons.accession.generators.SingleAccessionGenerator;
+import uk.ac.ebi.ampt2d.commons.accession.hashing.SHA1HashingFunction;
+import uk.ac.ebi.ampt2d.test.TestModel;
+import uk.ac.ebi.ampt2d.test.service.TestInMemoryDatabaseService;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class ShardedAccessioningServiceTest {
+
+    /**
+     * Records the threads that save accessions.
+     */
+    private static class ThreadRecordingDatabaseService extends TestInMemoryDatabaseService {
+
+        private final Set<String> savingThreads = ConcurrentHashMap.newKeySet();
+
+        @Override
+        public void save(List<ModelHashAccession<TestModel, String, String>> objects) {
+            savingThreads.add(Thread.currentThread().getName());
+            super.save(objects);
+        }
+    }
+
+    private ExecutorService executor;
+
+    private ThreadRecordingDatabaseService dbService;
+
+    private BasicAccessioningService<TestModel, String, String> accessioningService;
+
+    @Before
+    public void setUp() {
+        executor = Executors.newFixedThreadPool(4);
+        dbService = new ThreadRecordingDatabaseService();
+        accessioningService = new BasicAccessioningService<>(
+                SingleAccessionGenerator.ofHashAccessionGenerator(TestModel::getSomething, s -> "id-" + s),
+                dbService,
+                TestModel::getSomething,
+                new SHA1HashingFunction());
+    }
+
+    @After
+    public void tearDown() {
+        executor.shutdown();
+    }
+
+    @Test
+    public void testLargeBatchIsAccessionedInShards() throws Exception {
+        ShardedAccessioningService<TestModel, String, String> service = new ShardedAccessioningService<>(
+                accessioningService, executor, 4, 10);
+        List<TestModel> messages = getModels(0, 100);
+        messages.addAll(getModels(0, 50));
+
+        Map<String, TestModel> accessions = service.getOrCreateAccessions(messages);
+
+        assertEquals(100, accessions.size());
+        assertEquals("sharded-test-7", accessions.get("id-sharded-test-7").getSomething());
+        assertFalse(dbService.savingThreads.contains(Thread.currentThread().getName()));
+        assertEquals(100, service.getAccessions(getModels(0, 100)).size());
+    }
+
+    @Test
+    public void testShardsByHashPrefix() throws Exception {
+        ShardedAccessioningService<TestModel, String, String> service = new ShardedAccessioningService<>(
+                accessioningService, executor, 16, 10, hash -> Character.digit(hash.charAt(0), 16));
+
+        service.getOrCreateAccessions(getModels(0, 50));
+        Map<String, TestModel> accessions = service.getOrCreateAccessions(getModels(25, 75));
+
+        assertEquals(50, accessions.size());
+        assertEquals(75, service.getAccessions(getModels(0, 75)).size());
+    }
+
+    @Test
+    public void testSmallBatchIsAccessionedInCallingThread() throws Exception {
+        ShardedAccessioningService<TestModel, String, String> service = new ShardedAccessioningService<>(
+                accessioningService, executor, 4, 10);
+
+        Map<String, TestModel> accessions = service.getOrCreateAccessions(Arrays.asList(
+                TestModel.of("sharded-test-1"),
+                TestModel.of("sharded-test-2")));
+
+        assertEquals(2, accessions.size());
+        assertEquals(1, dbService.savingThreads.size());
+        assertTrue(dbService.savingThreads.contains(Thread.currentThread().getName()));
+    }
+
+    @Test(expected = DataAccessResourceFailureException.class)
+    public void testShardFailuresAreNotWrapped() throws Exception {
+        accessioningService = new BasicAccessioningService<>(
+                SingleAccessionGenerator.ofHashAccessionGenerator(TestModel::getSomething, s -> "id-" + s),
+                new TestInMemoryDatabaseService() {
+                    @Override
+                    public Map<String, String> getExistingAccessions(Collection<String> hashes) {
+                        throw new DataAccessResourceFailureException("Database unavailable");
+                    }
+                },
+                TestModel::getSomething,
+                new SHA1HashingFunction());
+        ShardedAccessioningService<TestModel, String, String> service = new ShardedAccessioningService<>(
+                accessioningService, executor, 4, 10);
+
+        service.getOrCreateAccessions(getModels(0, 100));
+    }
+
+    private List<TestModel> getModels(int from, int to) {
+        List<TestModel> models = new ArrayList<>();
+        for (int i = from; i < to; i++) {
+            models.add(TestModel.of("sharded-test-" + i));
+        }
+        return models;
+    }
+
+}
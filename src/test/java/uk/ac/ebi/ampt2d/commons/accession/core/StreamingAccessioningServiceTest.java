@@ -0,0 +1,89 @@
+/*
+ *
+ * Copyright 2018 EMBL - European Bioinformatics Institute
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package uk.ac.ebi.ampt2d.commons.accession.core;
+
+import org.junit.Test;
+import uk.ac.ebi.ampt2d.commons.accession.generators.SingleAccessionGenerator;
+import uk.ac.ebi.ampt2d.commons.accession.generators.exceptions.AccessionCouldNotBeGeneratedException;
+import uk.ac.ebi.ampt2d.commons.accession.hashing.SHA1HashingFunction;
+import uk.ac.ebi.ampt2d.test.TestModel;
+import uk.ac.ebi.ampt2d.test.service.TestInMemoryDatabaseService;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+import static org.junit.Assert.assertEquals;
+
+public class StreamingAccessioningServiceTest {
+
+    @Test
+    public void testAccessionInChunks() throws AccessionCouldNotBeGeneratedException {
+        StreamingAccessioningService<TestModel, String> service = new StreamingAccessioningService<>(
+                getAccessioningService(), 3);
+
+        List<Map<String, TestModel>> chunks = new ArrayList<>();
+        long numberOfMessages = service.getOrCreateAccessions(
+                IntStream.range(0, 7).mapToObj(i -> TestModel.of("streaming-test-" + i)), chunks::add);
+
+        assertEquals(7, numberOfMessages);
+        assertEquals(3, chunks.size());
+        assertEquals(3, chunks.get(0).size());
+        assertEquals(3, chunks.get(1).size());
+        assertEquals(1, chunks.get(2).size());
+        assertEquals("streaming-test-6", chunks.get(2).get("id-streaming-test-6").getSomething());
+    }
+
+    @Test
+    public void testRepeatedMessagesInDifferentChunks() throws AccessionCouldNotBeGeneratedException {
+        StreamingAccessioningService<TestModel, String> service = new StreamingAccessioningService<>(
+                getAccessioningService(), 2);
+
+        Map<String, TestModel> accessions = new HashMap<>();
+        long numberOfMessages = service.getOrCreateAccessions(Stream.of(
+                TestModel.of("streaming-test-1"),
+                TestModel.of("streaming-test-2"),
+                TestModel.of("streaming-test-1")), accessions::putAll);
+
+        assertEquals(3, numberOfMessages);
+        assertEquals(2, accessions.size());
+    }
+
+    @Test
+    public void testEmptyStream() throws AccessionCouldNotBeGeneratedException {
+        StreamingAccessioningService<TestModel, String> service = new StreamingAccessioningService<>(
+                getAccessioningService(), 2);
+
+        List<Map<String, TestModel>> chunks = new ArrayList<>();
+        assertEquals(0, service.getOrCreateAccessions(Stream.empty(), chunks::add));
+        assertEquals(0, chunks.size());
+    }
+
+    private BasicAccessioningService<TestModel, String, String> getAccessioningService() {
+        return new BasicAccessioningService<>(
+                SingleAccessionGenerator.ofHashAccessionGenerator(TestModel::getSomething, s -> "id-" + s),
+                new TestInMemoryDatabaseService(),
+                TestModel::getSomething,
+                new SHA1HashingFunction()
+        );
+    }
+
+}
@@ -0,0 +1,72 @@
+/*
+ *
+ * Copyright 2018 EMBL - European Bioinformatics Institute
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package uk.ac.ebi.ampt2d.commons.accession.export;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.Test;
+import uk.ac.ebi.ampt2d.commons.accession.generators.ModelHashAccession;
+import uk.ac.ebi.ampt2d.test.TestModel;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+
+public class NdjsonAccessionExportSinkTest {
+
+    @Test
+    public void testWriteLines() throws IOException {
+        StringWriter writer = new StringWriter();
+        NdjsonAccessionExportSink<TestModel, String, Long> sink = new NdjsonAccessionExportSink<>(writer, model -> {
+            Map<String, Object> fields = new LinkedHashMap<>();
+            fields.put("something", model.getSomething());
+            fields.put("length", model.getSomething().length());
+            fields.put("missing", null);
+            return fields;
+        });
+
+        sink.write(ModelHashAccession.of(TestModel.of("something1"), "h1", 1L));
+        sink.write(ModelHashAccession.of(TestModel.of("\"quoted\"\n\u0001"), "h2", 2L));
+        sink.endPage(2L);
+
+        assertEquals("{\"accession\":1,\"hash\":\"h1\",\"model\":{\"something\":\"something1\",\"length\":10," +
+                "\"missing\":null}}\n" +
+                "{\"accession\":2,\"hash\":\"h2\",\"model\":{\"something\":\"\\\"quoted\\\"\\n\\u0001\"," +
+                "\"length\":10,\"missing\":null}}\n", writer.toString());
+    }
+
+    @Test
+    public void testControlCharactersAreEscaped() throws IOException {
+        StringWriter writer = new StringWriter();
+        NdjsonAccessionExportSink<TestModel, String, Long> sink = new NdjsonAccessionExportSink<>(writer,
+                model -> Collections.singletonMap("something", model.getSomething()));
+        String something = "\b\f\u0000\u001f";
+
+        sink.write(ModelHashAccession.of(TestModel.of(something), "h1", 1L));
+        sink.endPage(1L);
+
+        JsonNode line = new ObjectMapper().readTree(writer.toString());
+        assertEquals(something, line.get("model").get("something").asText());
+        assertEquals(1L, line.get("accession").asLong());
+    }
+
+}
@@ -0,0 +1,46 @@
+/*
+ *
+ * Copyright 2018 EMBL - European Bioinformatics Institute
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package uk.ac.ebi.ampt2d.commons.accession.export;
+
+import org.junit.Test;
+import uk.ac.ebi.ampt2d.commons.accession.generators.ModelHashAccession;
+import uk.ac.ebi.ampt2d.test.TestModel;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.util.Arrays;
+
+import static org.junit.Assert.assertEquals;
+
+public class TsvAccessionExportSinkTest {
+
+    @Test
+    public void testWriteLines() throws IOException {
+        StringWriter writer = new StringWriter();
+        TsvAccessionExportSink<TestModel, String, Long> sink = new TsvAccessionExportSink<>(writer,
+                model -> Arrays.asList(model.getSomething(), null));
+
+        sink.write(ModelHashAccession.of(TestModel.of("something1"), "h1", 1L));
+        sink.write(ModelHashAccession.of(TestModel.of("tab\\t\tline\n"), "h2", 2L));
+        sink.endPage(2L);
+
+        assertEquals("1\th1\tsomething1\t\\N\n" +
+                "2\th2\ttab\\\\t\\tline\\n\t\\N\n", writer.toString());
+    }
+
+}
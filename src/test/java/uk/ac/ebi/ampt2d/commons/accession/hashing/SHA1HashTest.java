@@ -0,0 +1,98 @@
+/*
+ *
+ * Copyright 2018 EMBL - European Bioinformatics Institute
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package uk.ac.ebi.ampt2d.commons.accession.hashing;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+
+public class SHA1HashTest {
+
+    @Test
+    public void testBinaryHashMatchesHexadecimalHash() {
+        String hex = new SHA1HashingFunction().apply("Object1");
+        SHA1Hash hash = new SHA1BinaryHashingFunction().apply("Object1");
+        assertEquals(hex, hash.toHex());
+        assertEquals(hash, SHA1Hash.fromHex(hex));
+        assertEquals(hash, SHA1Hash.fromHex(hex.toLowerCase()));
+    }
+
+    @Test
+    public void testBytesRoundTrip() {
+        byte[] bytes = new byte[SHA1Hash.LENGTH];
+        for (int i = 0; i < bytes.length; i++) {
+            bytes[i] = (byte) (0xFF - i);
+        }
+        SHA1Hash hash = SHA1Hash.fromBytes(bytes);
+        assertArrayEquals(bytes, hash.toBytes());
+        assertEquals(hash, SHA1Hash.fromBytes(hash.toBytes()));
+        assertEquals(hash.hashCode(), SHA1Hash.fromHex(hash.toHex()).hashCode());
+    }
+
+    @Test
+    public void testDifferentSummariesHaveDifferentHashes() {
+        SHA1BinaryHashingFunction hashingFunction = new SHA1BinaryHashingFunction();
+        assertNotEquals(hashingFunction.apply("Object1"), hashingFunction.apply("Object2"));
+        assertEquals(hashingFunction.apply("Object2"), hashingFunction.apply("Object2"));
+    }
+
+    @Test
+    public void testOrderIsTheOrderOfTheUnsignedBytes() {
+        List<String> hexes = Arrays.asList(
+                "0000000000000000000000000000000000000001",
+                "00000000000000000000000000000000000000FF",
+                "000000000000000000000000FF00000000000000",
+                "7FFFFFFFFFFFFFFFFFFFFFFFFFFFFFFFFFFFFFFF",
+                "8000000000000000000000000000000000000000",
+                "FFFFFFFFFFFFFFFFFFFFFFFFFFFFFFFFFFFFFFFF");
+        List<String> sorted = hexes.stream().map(SHA1Hash::fromHex).sorted().map(SHA1Hash::toHex)
+                .collect(Collectors.toList());
+        assertEquals(hexes, sorted);
+        assertTrue(SHA1Hash.fromHex(hexes.get(0)).compareTo(SHA1Hash.fromHex(hexes.get(0))) == 0);
+    }
+
+    @Test
+    public void testSerializationRoundTrip() throws IOException, ClassNotFoundException {
+        SHA1Hash hash = new SHA1BinaryHashingFunction().apply("Object1");
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ObjectOutputStream output = new ObjectOutputStream(bytes)) {
+            output.writeObject(hash);
+        }
+        try (ObjectInputStream input = new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray()))) {
+            assertEquals(hash, input.readObject());
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidLength() {
+        SHA1Hash.fromBytes(new byte[SHA1Hash.LENGTH - 1]);
+    }
+
+}
@@ -0,0 +1,90 @@
+/*
+ *
+ * Copyright 2018 EMBL - European Bioinformatics Institute
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package uk.ac.ebi.ampt2d.commons.accession.metrics;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Captor;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.boot.actuate.metrics.GaugeService;
+import org.springframework.boot.actuate.metrics.repository.InMemoryMetricRepository;
+import org.springframework.boot.actuate.metrics.writer.Delta;
+import org.springframework.boot.actuate.metrics.writer.MetricWriter;
+
+import static org.junit.Assert.assertEquals;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyZeroInteractions;
+
+public class ActuatorAccessioningMetricsTest {
+
+    @Mock
+    private GaugeService gaugeService;
+
+    @Mock
+    private MetricWriter metricWriter;
+
+    private ActuatorAccessioningMetrics metrics;
+
+    @Captor
+    private ArgumentCaptor<Delta<?>> captor;
+
+    @Before
+    public void setUp() {
+        MockitoAnnotations.initMocks(this);
+        metrics = new ActuatorAccessioningMetrics(gaugeService, metricWriter);
+    }
+
+    @Test
+    public void testTimesAreSubmittedInMilliseconds() {
+        metrics.recordTime(AccessioningMetrics.SAVE, 2500000);
+
+        verify(gaugeService).submit("timer.accessioning.save", 2.5);
+        verifyZeroInteractions(metricWriter);
+    }
+
+    @Test
+    public void testValuesAreSubmittedAsHistograms() {
+        metrics.recordValue(AccessioningMetrics.BATCH_SIZE, 100);
+
+        verify(gaugeService).submit("histogram.accessioning.batch.size", 100.0);
+        verifyZeroInteractions(metricWriter);
+    }
+
+    @Test
+    public void testCountersAreIncrementedByDeltaInOneCall() {
+        metrics.increment(AccessioningMetrics.CONFLICTS, 10000);
+
+        verify(metricWriter).increment(captor.capture());
+        assertEquals("counter.accessioning.conflicts", captor.getValue().getName());
+        assertEquals(10000L, captor.getValue().getValue().longValue());
+    }
+
+    @Test
+    public void testCountersAreAccumulatedInARepository() {
+        InMemoryMetricRepository repository = new InMemoryMetricRepository();
+        ActuatorAccessioningMetrics repositoryMetrics = new ActuatorAccessioningMetrics(gaugeService, repository);
+
+        repositoryMetrics.increment(AccessioningMetrics.CONFLICTS, 3);
+        repositoryMetrics.increment(AccessioningMetrics.CONFLICTS, 4);
+
+        assertEquals(7L, repository.findOne("counter.accessioning.conflicts").getValue().longValue());
+    }
+
+}
@@ -17,33 +17,54 @@
  */
 package uk.ac.ebi.ampt2d.commons.accession.persistence;
 
+import org.hibernate.Session;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
 import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.test.annotation.Commit;
 import org.springframework.test.context.ContextConfiguration;
 import org.springframework.test.context.junit4.SpringRunner;
 import org.springframework.test.context.transaction.TestTransaction;
+import uk.ac.ebi.ampt2d.commons.accession.core.HashedMessageAccession;
 import uk.ac.ebi.ampt2d.commons.accession.generators.ModelHashAccession;
 import uk.ac.ebi.ampt2d.test.TestModel;
 import uk.ac.ebi.ampt2d.test.configuration.TestDatabaseServiceTestConfiguration;
 import uk.ac.ebi.ampt2d.test.persistence.TestEntity;
+import uk.ac.ebi.ampt2d.test.persistence.TestNamedIdEntity;
+import uk.ac.ebi.ampt2d.test.persistence.TestNamedIdRepository;
+import uk.ac.ebi.ampt2d.test.persistence.TestRepository;
 
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
 import java.util.Map;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
 
 @RunWith(SpringRunner.class)
 @DataJpaTest
 @ContextConfiguration(classes = {TestDatabaseServiceTestConfiguration.class})
 public class BasicSpringDataRepositoryDatabaseServiceTest {
 
+    @Autowired
+    private TestRepository repository;
+
     @Autowired
     private BasicSpringDataRepositoryDatabaseService<TestModel, TestEntity, String, String> service;
 
+    @Autowired
+    private TestEntityManager testEntityManager;
+
+    @Autowired
+    private TestNamedIdRepository namedIdRepository;
+
     @Test
     public void testFindInEmptyRepository() {
         assertEquals(0, service.findAllAccessionMappingsByAccessions(Arrays.asList("a1", "a2")).size());
@@ -77,6 +98,39 @@ public class BasicSpringDataRepositoryDatabaseServiceTest {
         assertEquals("a3", hashToAccession.get("h3"));
     }
 
+    @Test
+    public void findHashedMessageAccessionProjection() {
+        service.save(Arrays.asList(
+                ModelHashAccession.of(TestModel.of("something1"), "h1", "a1"),
+                ModelHashAccession.of(TestModel.of("something2"), "h2", "a2")
+        ));
+
+        Collection<?> projections = repository.findByHashedMessageIn(Arrays.asList("h2", "h3"),
+                HashedMessageAccession.class);
+        assertEquals(1, projections.size());
+        HashedMessageAccession<?, ?> projection = (HashedMessageAccession<?, ?>) projections.iterator().next();
+        assertFalse(projection instanceof TestEntity);
+        assertEquals("h2", projection.getHashedMessage());
+        assertEquals("a2", projection.getAccession());
+    }
+
+    @Test
+    public void getExistingAccessionsDoesNotLoadTheEntities() {
+        service.save(Arrays.asList(
+                ModelHashAccession.of(TestModel.of("something1"), "h1", "a1"),
+                ModelHashAccession.of(TestModel.of("something2"), "h2", "a2")
+        ));
+        testEntityManager.flush();
+        testEntityManager.clear();
+        Session session = testEntityManager.getEntityManager().unwrap(Session.class);
+
+        Map<String, String> hashToAccession = service.getExistingAccessions(Arrays.asList("h1", "h2", "h3"));
+
+        assertEquals(2, hashToAccession.size());
+        assertEquals("a1", hashToAccession.get("h1"));
+        assertEquals(0, session.getStatistics().getEntityCount());
+    }
+
     @Test(expected = DataIntegrityViolationException.class)
     @Commit
     public void saveNonUniqueElements() {
@@ -88,4 +142,70 @@ public class BasicSpringDataRepositoryDatabaseServiceTest {
         TestTransaction.end();
     }
 
+    @Test
+    public void saveInWriteOnlyMode() {
+        Session session = testEntityManager.getEntityManager().unwrap(Session.class);
+        TestEntity callerEntity = testEntityManager.persist(new TestEntity("a-caller", "h-caller", "caller"));
+        List<Integer> managedEntities = new ArrayList<>();
+        BasicSpringDataRepositoryDatabaseService<TestModel, TestEntity, String, String> writeOnlyService =
+                new BasicSpringDataRepositoryDatabaseService<>(repository, triple -> {
+                    managedEntities.add(session.getStatistics().getEntityCount());
+                    return new TestEntity(triple);
+                }, TestEntity::getAccession, TestEntity::getHashedMessage, testEntityManager.getEntityManager(), 10);
+        List<ModelHashAccession<TestModel, String, String>> objects = new ArrayList<>();
+        for (int i = 0; i < 25; i++) {
+            objects.add(ModelHashAccession.of(TestModel.of("something" + i), "h" + i, "a" + i));
+        }
+        writeOnlyService.save(objects);
+
+        // The entity of the caller and at most a batch of saved entities are managed at any time
+        assertEquals(25, managedEntities.size());
+        assertEquals(Integer.valueOf(10), Collections.max(managedEntities));
+        assertEquals(1, session.getStatistics().getEntityCount());
+        assertTrue(testEntityManager.getEntityManager().contains(callerEntity));
+
+        assertEquals(26, repository.count());
+        assertEquals("something24", testEntityManager.find(TestEntity.class, "a24").getSomething());
+        Map<String, String> hashToAccession = writeOnlyService.getExistingAccessions(Arrays.asList("h0", "h24"));
+        assertEquals(2, hashToAccession.size());
+    }
+
+    @Test(expected = DataIntegrityViolationException.class)
+    public void saveNonUniqueHashesInWriteOnlyMode() {
+        getWriteOnlyService(2).save(Arrays.asList(
+                ModelHashAccession.of(TestModel.of("something1"), "h1", "a1"),
+                ModelHashAccession.of(TestModel.of("something2"), "h1", "a2"),
+                ModelHashAccession.of(TestModel.of("something3"), "h3", "a3")
+        ));
+    }
+
+    @Test(expected = DataIntegrityViolationException.class)
+    public void saveNonUniqueAccessionsInWriteOnlyMode() {
+        getWriteOnlyService(10).save(Arrays.asList(
+                ModelHashAccession.of(TestModel.of("something1"), "h1", "a1"),
+                ModelHashAccession.of(TestModel.of("something2"), "h2", "a1")
+        ));
+    }
+
+    private BasicSpringDataRepositoryDatabaseService<TestModel, TestEntity, String, String> getWriteOnlyService(
+            int writeBatchSize) {
+        return new BasicSpringDataRepositoryDatabaseService<>(repository, TestEntity::new,
+                TestEntity::getAccession, TestEntity::getHashedMessage, testEntityManager.getEntityManager(),
+                writeBatchSize);
+    }
+
+    @Test
+    public void getExistingAccessionsOfEntityWithNamedId() {
+        BasicSpringDataRepositoryDatabaseService<TestModel, TestNamedIdEntity, String, String> namedIdService =
+                new BasicSpringDataRepositoryDatabaseService<>(namedIdRepository, TestNamedIdEntity::new,
+                        TestNamedIdEntity::getId, TestNamedIdEntity::getHashedMessage);
+        namedIdService.save(Arrays.asList(
+                ModelHashAccession.of(TestModel.of("something1"), "h1", "a1"),
+                ModelHashAccession.of(TestModel.of("something2"), "h2", "a2")));
+
+        Map<String, String> hashToAccession = namedIdService.getExistingAccessions(Arrays.asList("h1", "h3"));
+        assertEquals(1, hashToAccession.size());
+        assertEquals("a1", hashToAccession.get("h1"));
+    }
+
 }
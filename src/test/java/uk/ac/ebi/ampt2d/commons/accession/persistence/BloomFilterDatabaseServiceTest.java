@@ -0,0 +1,161 @@
+/*
+ *
+ * Copyright 2018 EMBL - European Bioinformatics Institute
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package uk.ac.ebi.ampt2d.commons.accession.persistence;
+
+import org.junit.Test;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import uk.ac.ebi.ampt2d.commons.accession.core.BasicAccessioningService;
+import uk.ac.ebi.ampt2d.commons.accession.generators.ModelHashAccession;
+import uk.ac.ebi.ampt2d.commons.accession.generators.SingleAccessionGenerator;
+import uk.ac.ebi.ampt2d.commons.accession.generators.exceptions.AccessionCouldNotBeGeneratedException;
+import uk.ac.ebi.ampt2d.test.TestModel;
+import uk.ac.ebi.ampt2d.test.service.TestInMemoryDatabaseService;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class BloomFilterDatabaseServiceTest {
+
+    private static final List<String> PERSISTED_HASHES = Arrays.asList("h1", "h2");
+
+    @Test
+    public void testNewHashesDoNotReachTheDatabase() {
+        TestInMemoryDatabaseService dbService = getDbServiceWithPersistedHashes();
+        BloomFilterDatabaseService<TestModel, String, String> service = getService(dbService);
+        service.afterPropertiesSet();
+
+        assertEquals(0, service.getExistingAccessions(Arrays.asList("h3", "h4")).size());
+        assertEquals(0, dbService.getHashQueries());
+    }
+
+    @Test
+    public void testReadsOfHashesSavedByAnotherInstanceAreNotFiltered() {
+        TestInMemoryDatabaseService dbService = getDbServiceWithPersistedHashes();
+        BloomFilterDatabaseService<TestModel, String, String> service = getService(dbService);
+        service.afterPropertiesSet();
+        BloomFilterDatabaseService<TestModel, String, String> otherInstance = getService(dbService);
+        otherInstance.afterPropertiesSet();
+        otherInstance.save(Arrays.asList(ModelHashAccession.of(TestModel.of("something3"), "h3", "a3")));
+
+        Map<String, TestModel> accessions = service.findAllAccessionsByHash(Arrays.asList("h1", "h3", "h4"));
+        assertEquals(2, accessions.size());
+        assertEquals("something1", accessions.get("a1").getSomething());
+        assertEquals("something3", accessions.get("a3").getSomething());
+    }
+
+    @Test
+    public void testPersistedHashesAreQueried() {
+        TestInMemoryDatabaseService dbService = getDbServiceWithPersistedHashes();
+        BloomFilterDatabaseService<TestModel, String, String> service = getService(dbService);
+        service.afterPropertiesSet();
+
+        Map<String, String> hashToAccession = service.getExistingAccessions(Arrays.asList("h1", "h2", "h3"));
+        assertEquals(2, hashToAccession.size());
+        assertEquals("a1", hashToAccession.get("h1"));
+        assertEquals("a2", hashToAccession.get("h2"));
+        assertEquals(1, dbService.getHashQueries());
+    }
+
+    @Test
+    public void testSavedHashesAreAddedToTheFilter() {
+        TestInMemoryDatabaseService dbService = getDbServiceWithPersistedHashes();
+        BloomFilterDatabaseService<TestModel, String, String> service = getService(dbService);
+        service.afterPropertiesSet();
+
+        service.save(Arrays.asList(ModelHashAccession.of(TestModel.of("something3"), "h3", "a3")));
+
+        assertEquals("a3", service.getExistingAccessions(Arrays.asList("h3")).get("h3"));
+    }
+
+    @Test
+    public void testAllQueriesReachTheDatabaseBeforeBuild() {
+        TestInMemoryDatabaseService dbService = getDbServiceWithPersistedHashes();
+        BloomFilterDatabaseService<TestModel, String, String> service = getService(dbService);
+
+        assertFalse(service.isBuilt());
+        assertEquals(0, service.getExistingAccessions(Arrays.asList("h3")).size());
+        assertEquals(1, dbService.getHashQueries());
+
+        service.rebuild();
+        assertTrue(service.isBuilt());
+    }
+
+    @Test
+    public void testHashSavedByAnotherInstanceIsResolvedAfterTheConflict()
+            throws AccessionCouldNotBeGeneratedException {
+        TestInMemoryDatabaseService dbService = getDbServiceWithPersistedHashes();
+        BloomFilterDatabaseService<TestModel, String, String> service = getService(dbService);
+        service.afterPropertiesSet();
+        BloomFilterDatabaseService<TestModel, String, String> otherInstance = getService(dbService);
+        otherInstance.afterPropertiesSet();
+        otherInstance.save(Arrays.asList(ModelHashAccession.of(TestModel.of("h3"), "h3", "a3")));
+        assertEquals(0, service.getExistingAccessions(Arrays.asList("h3")).size());
+
+        BasicAccessioningService<TestModel, String, String> accessioningService = new BasicAccessioningService<>(
+                SingleAccessionGenerator.ofHashAccessionGenerator(TestModel::getSomething, s -> "id-" + s),
+                service,
+                TestModel::getSomething,
+                s -> s);
+        Map<String, TestModel> accessions = accessioningService.getOrCreateAccessions(Arrays.asList(
+                TestModel.of("h3"), TestModel.of("h4")));
+
+        assertEquals(2, accessions.size());
+        assertEquals("h3", accessions.get("a3").getSomething());
+        assertEquals("h4", accessions.get("id-h4").getSomething());
+        assertEquals("a3", service.getExistingAccessions(Arrays.asList("h3")).get("h3"));
+    }
+
+    @Test
+    public void testUncommittedSavesAreAddedToRebuiltFilter() {
+        TestInMemoryDatabaseService dbService = getDbServiceWithPersistedHashes();
+        BloomFilterDatabaseService<TestModel, String, String> service = getService(dbService);
+        service.afterPropertiesSet();
+
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            service.save(Arrays.asList(ModelHashAccession.of(TestModel.of("something3"), "h3", "a3")));
+            // The persisted hashes streamed by the rebuild don't include the uncommitted one
+            service.rebuild();
+            TransactionSynchronizationManager.getSynchronizations().forEach(
+                    synchronization -> synchronization.afterCompletion(TransactionSynchronization.STATUS_COMMITTED));
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+
+        assertEquals("a3", service.getExistingAccessions(Arrays.asList("h3")).get("h3"));
+    }
+
+    private TestInMemoryDatabaseService getDbServiceWithPersistedHashes() {
+        TestInMemoryDatabaseService dbService = new TestInMemoryDatabaseService();
+        dbService.save(Arrays.asList(
+                ModelHashAccession.of(TestModel.of("something1"), "h1", "a1"),
+                ModelHashAccession.of(TestModel.of("something2"), "h2", "a2")));
+        return dbService;
+    }
+
+    private BloomFilterDatabaseService<TestModel, String, String> getService(TestInMemoryDatabaseService dbService) {
+        return new BloomFilterDatabaseService<>(dbService, PERSISTED_HASHES::stream, PERSISTED_HASHES::size, 0.001);
+    }
+
+}
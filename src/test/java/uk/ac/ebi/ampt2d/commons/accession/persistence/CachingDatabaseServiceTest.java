@@ -0,0 +1,136 @@
+/*
+ *
+ * Copyright 2018 EMBL - European Bioinformatics Institute
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package uk.ac.ebi.ampt2d.commons.accession.persistence;
+
+import org.junit.Test;
+import uk.ac.ebi.ampt2d.commons.accession.generators.ModelHashAccession;
+import uk.ac.ebi.ampt2d.test.TestModel;
+import uk.ac.ebi.ampt2d.test.service.TestInMemoryDatabaseService;
+
+import java.util.Arrays;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+
+public class CachingDatabaseServiceTest {
+
+    @Test
+    public void testExistingAccessionsAreCachedOnRead() {
+        TestInMemoryDatabaseService dbService = new TestInMemoryDatabaseService();
+        dbService.save(Arrays.asList(
+                ModelHashAccession.of(TestModel.of("something1"), "h1", "a1"),
+                ModelHashAccession.of(TestModel.of("something2"), "h2", "a2")));
+        CachingDatabaseService<TestModel, String, String> service = new CachingDatabaseService<>(dbService, 10);
+
+        assertEquals(2, service.getExistingAccessions(Arrays.asList("h1", "h2", "h3")).size());
+        assertEquals(1, dbService.getHashQueries());
+        assertEquals(2, service.getCachedHashes());
+
+        Map<String, String> hashToAccession = service.getExistingAccessions(Arrays.asList("h1", "h2"));
+        assertEquals(1, dbService.getHashQueries());
+        assertEquals("a1", hashToAccession.get("h1"));
+        assertEquals("a2", hashToAccession.get("h2"));
+        assertEquals(2, service.getHits());
+        assertEquals(3, service.getMisses());
+    }
+
+    @Test
+    public void testSavedAccessionsAreCached() {
+        TestInMemoryDatabaseService dbService = new TestInMemoryDatabaseService();
+        CachingDatabaseService<TestModel, String, String> service = new CachingDatabaseService<>(dbService, 10);
+
+        service.save(Arrays.asList(
+                ModelHashAccession.of(TestModel.of("something1"), "h1", "a1"),
+                ModelHashAccession.of(TestModel.of("something2"), "h2", "a2")));
+
+        Map<String, String> hashToAccession = service.getExistingAccessions(Arrays.asList("h1", "h2"));
+        assertEquals(0, dbService.getHashQueries());
+        assertEquals("a1", hashToAccession.get("h1"));
+        assertEquals("a2", hashToAccession.get("h2"));
+    }
+
+    @Test
+    public void testCacheIsBounded() {
+        TestInMemoryDatabaseService dbService = new TestInMemoryDatabaseService();
+        CachingDatabaseService<TestModel, String, String> service = new CachingDatabaseService<>(dbService, 2);
+
+        service.save(Arrays.asList(
+                ModelHashAccession.of(TestModel.of("something1"), "h1", "a1"),
+                ModelHashAccession.of(TestModel.of("something2"), "h2", "a2"),
+                ModelHashAccession.of(TestModel.of("something3"), "h3", "a3")));
+
+        assertEquals(2, service.getCachedHashes());
+        assertEquals(1, service.getEvictions());
+        assertEquals(3, service.getExistingAccessions(Arrays.asList("h1", "h2", "h3")).size());
+        assertEquals(1, dbService.getHashQueries());
+    }
+
+    @Test
+    public void testModelsAreCachedOnRead() {
+        TestInMemoryDatabaseService dbService = new TestInMemoryDatabaseService();
+        dbService.save(Arrays.asList(
+                ModelHashAccession.of(TestModel.of("something1"), "h1", "a1"),
+                ModelHashAccession.of(TestModel.of("something2"), "h2", "a2")));
+        CachingDatabaseService<TestModel, String, String> service = new CachingDatabaseService<>(dbService, 10, 10,
+                model -> 1);
+
+        assertEquals(1, service.findAllAccessionMappingsByAccessions(Arrays.asList("a1", "a3")).size());
+        assertEquals(1, dbService.getAccessionQueries());
+
+        Map<String, TestModel> accessionToModels = service.findAllAccessionMappingsByAccessions(
+                Arrays.asList("a1", "a2"));
+        assertEquals(2, dbService.getAccessionQueries());
+        assertEquals("something1", accessionToModels.get("a1").getSomething());
+        assertEquals("something2", accessionToModels.get("a2").getSomething());
+        assertEquals(2, service.getCachedModels());
+        assertEquals(1, service.getModelHits());
+        assertEquals(3, service.getModelMisses());
+
+        service.findAllAccessionMappingsByAccessions(Arrays.asList("a1", "a2"));
+        assertEquals(2, dbService.getAccessionQueries());
+    }
+
+    @Test
+    public void testModelCacheIsBoundedByWeight() {
+        TestInMemoryDatabaseService dbService = new TestInMemoryDatabaseService();
+        dbService.save(Arrays.asList(
+                ModelHashAccession.of(TestModel.of("small"), "h1", "a1"),
+                ModelHashAccession.of(TestModel.of("larger"), "h2", "a2")));
+        CachingDatabaseService<TestModel, String, String> service = new CachingDatabaseService<>(dbService, 10, 8,
+                model -> model.getSomething().length());
+
+        service.findAllAccessionMappingsByAccessions(Arrays.asList("a1", "a2"));
+
+        assertEquals(1, service.getCachedModels());
+        assertEquals(1, service.getModelEvictions());
+    }
+
+    @Test
+    public void testModelsAreNotCachedByDefault() {
+        TestInMemoryDatabaseService dbService = new TestInMemoryDatabaseService();
+        dbService.save(Arrays.asList(ModelHashAccession.of(TestModel.of("something1"), "h1", "a1")));
+        CachingDatabaseService<TestModel, String, String> service = new CachingDatabaseService<>(dbService, 10);
+
+        service.findAllAccessionMappingsByAccessions(Arrays.asList("a1"));
+        service.findAllAccessionMappingsByAccessions(Arrays.asList("a1"));
+
+        assertEquals(2, dbService.getAccessionQueries());
+        assertEquals(0, service.getCachedModels());
+    }
+
+}
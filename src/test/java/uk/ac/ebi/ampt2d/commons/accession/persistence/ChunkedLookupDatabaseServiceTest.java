@@ -0,0 +1,158 @@
+/*
+ *
+ * Copyright 2018 EMBL - European Bioinformatics Institute
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package uk.ac.ebi.ampt2d.commons.accession.persistence;
+
+import org.junit.Test;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import uk.ac.ebi.ampt2d.test.TestModel;
+import uk.ac.ebi.ampt2d.test.service.TestInMemoryDatabaseService;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static uk.ac.ebi.ampt2d.test.service.TestInMemoryDatabaseService.getObjects;
+
+public class ChunkedLookupDatabaseServiceTest {
+
+    /**
+     * Records the size of the queries and the threads that run them.
+     */
+    private static class QueryRecordingDatabaseService extends TestInMemoryDatabaseService {
+
+        private final List<Integer> querySizes = Collections.synchronizedList(new ArrayList<>());
+
+        private final Set<String> queryThreads = ConcurrentHashMap.newKeySet();
+
+        @Override
+        public Map<String, String> getExistingAccessions(Collection<String> hashes) {
+            querySizes.add(hashes.size());
+            queryThreads.add(Thread.currentThread().getName());
+            return super.getExistingAccessions(hashes);
+        }
+
+        @Override
+        public Map<String, TestModel> findAllAccessionMappingsByAccessions(List<String> accessions) {
+            querySizes.add(accessions.size());
+            return super.findAllAccessionMappingsByAccessions(accessions);
+        }
+    }
+
+    @Test
+    public void testQueriesAreSplitInPaddedChunks() {
+        QueryRecordingDatabaseService dbService = new QueryRecordingDatabaseService();
+        dbService.save(getObjects(0, 250));
+        ChunkedLookupDatabaseService<TestModel, String, String> service = new ChunkedLookupDatabaseService<>(
+                dbService, 100);
+
+        Map<String, String> hashToAccession = service.getExistingAccessions(getValues("h", 0, 250));
+
+        assertEquals(250, hashToAccession.size());
+        assertEquals("a249", hashToAccession.get("h249"));
+        assertEquals(Arrays.asList(100, 100, 64), dbService.querySizes);
+    }
+
+    @Test
+    public void testSmallQueriesArePadded() {
+        QueryRecordingDatabaseService dbService = new QueryRecordingDatabaseService();
+        dbService.save(getObjects(0, 10));
+        ChunkedLookupDatabaseService<TestModel, String, String> service = new ChunkedLookupDatabaseService<>(
+                dbService, 100);
+
+        assertEquals(3, service.findAllAccessionMappingsByAccessions(getValues("a", 0, 3)).size());
+        assertEquals(10, service.findAllAccessionMappingsByAccessions(getValues("a", 0, 10)).size());
+        assertEquals(0, service.findAllAccessionMappingsByAccessions(new ArrayList<>()).size());
+
+        assertEquals(Arrays.asList(8, 16, 0), dbService.querySizes);
+    }
+
+    @Test
+    public void testChunksAreQueriedInParallel() {
+        QueryRecordingDatabaseService dbService = new QueryRecordingDatabaseService();
+        dbService.save(getObjects(0, 1000));
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            ChunkedLookupDatabaseService<TestModel, String, String> service = new ChunkedLookupDatabaseService<>(
+                    dbService, 64, executor);
+
+            Map<String, String> hashToAccession = service.getExistingAccessions(getValues("h", 0, 1200));
+
+            assertEquals(1000, hashToAccession.size());
+            assertEquals(19, dbService.querySizes.size());
+            assertFalse(dbService.queryThreads.contains(Thread.currentThread().getName()));
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void testChunksAreQueriedSequentiallyInTransaction() {
+        QueryRecordingDatabaseService dbService = new QueryRecordingDatabaseService();
+        dbService.save(getObjects(0, 1000));
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        TransactionSynchronizationManager.setActualTransactionActive(true);
+        try {
+            ChunkedLookupDatabaseService<TestModel, String, String> service = new ChunkedLookupDatabaseService<>(
+                    dbService, 64, executor);
+
+            Map<String, String> hashToAccession = service.getExistingAccessions(getValues("h", 0, 1200));
+
+            assertEquals(1000, hashToAccession.size());
+            assertEquals(19, dbService.querySizes.size());
+            assertEquals(Collections.singleton(Thread.currentThread().getName()), dbService.queryThreads);
+        } finally {
+            TransactionSynchronizationManager.setActualTransactionActive(false);
+            executor.shutdown();
+        }
+    }
+
+    @Test(expected = DataAccessResourceFailureException.class)
+    public void testErrorOfParallelChunkIsNotWrapped() {
+        TestInMemoryDatabaseService dbService = new TestInMemoryDatabaseService() {
+            @Override
+            public Map<String, String> getExistingAccessions(Collection<String> hashes) {
+                throw new DataAccessResourceFailureException("Connection lost");
+            }
+        };
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            new ChunkedLookupDatabaseService<>(dbService, 64, executor).getExistingAccessions(getValues("h", 0, 200));
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    private List<String> getValues(String prefix, int from, int to) {
+        List<String> values = new ArrayList<>();
+        for (int i = from; i < to; i++) {
+            values.add(prefix + i);
+        }
+        return values;
+    }
+
+}
@@ -0,0 +1,144 @@
+/*
+ *
+ * Copyright 2018 EMBL - European Bioinformatics Institute
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package uk.ac.ebi.ampt2d.commons.accession.persistence;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabase;
+import uk.ac.ebi.ampt2d.commons.accession.generators.ModelHashAccession;
+import uk.ac.ebi.ampt2d.test.TestModel;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static uk.ac.ebi.ampt2d.test.persistence.TestEmbeddedDatabases.count;
+import static uk.ac.ebi.ampt2d.test.persistence.TestEmbeddedDatabases.createDatabase;
+import static uk.ac.ebi.ampt2d.test.persistence.TestEmbeddedDatabases.getDatabaseService;
+import static uk.ac.ebi.ampt2d.test.persistence.TestEmbeddedDatabases.insert;
+import static uk.ac.ebi.ampt2d.test.service.TestInMemoryDatabaseService.getObjects;
+
+public class ReadReplicaDatabaseServiceTest {
+
+    private EmbeddedDatabase primaryDatabase;
+
+    private EmbeddedDatabase replicaDatabase;
+
+    private JdbcTemplate primary;
+
+    private JdbcTemplate replica;
+
+    private ReadReplicaDatabaseService<TestModel, String, String> service;
+
+    @Before
+    public void setUp() {
+        primaryDatabase = createDatabase();
+        replicaDatabase = createDatabase();
+        primary = new JdbcTemplate(primaryDatabase);
+        replica = new JdbcTemplate(replicaDatabase);
+        service = new ReadReplicaDatabaseService<>(getDatabaseService(primary), getDatabaseService(replica), 100);
+    }
+
+    @After
+    public void tearDown() {
+        primaryDatabase.shutdown();
+        replicaDatabase.shutdown();
+    }
+
+    @Test
+    public void testReadsGoToTheReplica() {
+        insert(replica, "a1", "h1", "replicated1");
+
+        assertEquals("a1", service.getExistingAccessions(Arrays.asList("h1")).get("h1"));
+        assertEquals("replicated1", service.findAllAccessionsByHash(Arrays.asList("h1")).get("a1").getSomething());
+        assertEquals("replicated1", service.findAllAccessionMappingsByAccessions(Arrays.asList("a1")).get("a1")
+                .getSomething());
+    }
+
+    @Test
+    public void testSavesGoToThePrimaryAndAreReadFromThePrimary() {
+        insert(replica, "a1", "h1", "replicated1");
+        service.save(Arrays.asList(ModelHashAccession.of(TestModel.of("something2"), "h2", "a2")));
+
+        assertEquals(1, count(primary));
+        assertEquals(1, count(replica));
+
+        Map<String, String> hashToAccession = service.getExistingAccessions(Arrays.asList("h1", "h2"));
+        assertEquals(2, hashToAccession.size());
+        assertEquals("a1", hashToAccession.get("h1"));
+        assertEquals("a2", hashToAccession.get("h2"));
+        assertEquals(2, service.findAllAccessionsByHash(Arrays.asList("h1", "h2")).size());
+        assertEquals("something2", service.findAllAccessionMappingsByAccessions(Arrays.asList("a1", "a2"))
+                .get("a2").getSomething());
+    }
+
+    @Test
+    public void testConflictRecheckReadsFromThePrimary() {
+        insert(primary, "a1", "h1", "savedByAnotherInstance");
+
+        assertTrue(service.getExistingAccessions(Arrays.asList("h1")).isEmpty());
+        try {
+            service.save(Arrays.asList(ModelHashAccession.of(TestModel.of("something1"), "h1", "a2")));
+            fail("The hash was already saved in the primary");
+        } catch (DataIntegrityViolationException e) {
+            assertEquals(Collections.singletonMap("h1", "a1"), service.getExistingAccessions(Arrays.asList("h1")));
+        }
+    }
+
+    @Test
+    public void testConflictRecheckOfBatchLargerThanTheCacheReadsFromThePrimary() {
+        service = new ReadReplicaDatabaseService<>(getDatabaseService(primary), getDatabaseService(replica), 10);
+        insert(primary, "a-other", "h0", "savedByAnotherInstance");
+        List<ModelHashAccession<TestModel, String, String>> objects = getObjects(0, 30);
+        List<String> hashes = objects.stream().map(ModelHashAccession::hash).collect(Collectors.toList());
+
+        try {
+            service.save(objects);
+            fail("The first hash was already saved in the primary");
+        } catch (DataIntegrityViolationException e) {
+            assertEquals("a-other", service.getConflictingAccessions(hashes).get("h0"));
+        }
+    }
+
+    @Test
+    public void testReadsAreBalancedBetweenReplicas() {
+        EmbeddedDatabase secondReplicaDatabase = createDatabase();
+        try {
+            JdbcTemplate secondReplica = new JdbcTemplate(secondReplicaDatabase);
+            insert(replica, "a1", "h1", "replica1");
+            insert(secondReplica, "a1", "h1", "replica2");
+            service = new ReadReplicaDatabaseService<>(getDatabaseService(primary),
+                    Arrays.asList(getDatabaseService(replica), getDatabaseService(secondReplica)), 100);
+
+            assertEquals("replica1", service.findAllAccessionsByHash(Arrays.asList("h1")).get("a1").getSomething());
+            assertEquals("replica2", service.findAllAccessionsByHash(Arrays.asList("h1")).get("a1").getSomething());
+            assertEquals("replica1", service.findAllAccessionsByHash(Arrays.asList("h1")).get("a1").getSomething());
+        } finally {
+            secondReplicaDatabase.shutdown();
+        }
+    }
+
+}
@@ -0,0 +1,102 @@
+/*
+ *
+ * Copyright 2018 EMBL - European Bioinformatics Institute
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package uk.ac.ebi.ampt2d.commons.accession.persistence;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.junit4.SpringRunner;
+import uk.ac.ebi.ampt2d.commons.accession.generators.ModelHashAccession;
+import uk.ac.ebi.ampt2d.commons.accession.hashing.SHA1BinaryHashingFunction;
+import uk.ac.ebi.ampt2d.commons.accession.hashing.SHA1Hash;
+import uk.ac.ebi.ampt2d.test.TestModel;
+import uk.ac.ebi.ampt2d.test.configuration.TestDatabaseServiceTestConfiguration;
+import uk.ac.ebi.ampt2d.test.persistence.TestBinaryHashEntity;
+import uk.ac.ebi.ampt2d.test.persistence.TestBinaryHashRepository;
+
+import javax.sql.DataSource;
+import java.util.Arrays;
+import java.util.Map;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+@RunWith(SpringRunner.class)
+@DataJpaTest
+@ContextConfiguration(classes = {TestDatabaseServiceTestConfiguration.class})
+public class SHA1HashConverterTest {
+
+    @Autowired
+    private TestBinaryHashRepository repository;
+
+    @Autowired
+    private TestEntityManager testEntityManager;
+
+    @Autowired
+    private DataSource dataSource;
+
+    private BasicSpringDataRepositoryDatabaseService<TestModel, TestBinaryHashEntity, SHA1Hash, String> service;
+
+    private final SHA1BinaryHashingFunction hashingFunction = new SHA1BinaryHashingFunction();
+
+    @Before
+    public void setUp() {
+        service = new BasicSpringDataRepositoryDatabaseService<>(repository, TestBinaryHashEntity::new,
+                TestBinaryHashEntity::getAccession, TestBinaryHashEntity::getHashedMessage);
+    }
+
+    @Test
+    public void saveAndFindBinaryHashes() {
+        SHA1Hash hash1 = hashingFunction.apply("something1");
+        SHA1Hash hash2 = hashingFunction.apply("something2");
+        service.save(Arrays.asList(
+                ModelHashAccession.of(TestModel.of("something1"), hash1, "a1"),
+                ModelHashAccession.of(TestModel.of("something2"), hash2, "a2"),
+                ModelHashAccession.of(TestModel.of("something3"), hashingFunction.apply("something3"), "a3")));
+        testEntityManager.flush();
+        testEntityManager.clear();
+
+        Map<SHA1Hash, String> hashToAccession = service.getExistingAccessions(
+                Arrays.asList(hash1, hash2, hashingFunction.apply("something4")));
+        assertEquals(2, hashToAccession.size());
+        assertEquals("a1", hashToAccession.get(hash1));
+        assertEquals("a2", hashToAccession.get(hash2));
+
+        Map<String, TestModel> accessionToModel = service.findAllAccessionsByHash(Arrays.asList(hash2));
+        assertEquals(1, accessionToModel.size());
+        assertEquals("something2", accessionToModel.get("a2").getSomething());
+        assertEquals(hash2, ((TestBinaryHashEntity) accessionToModel.get("a2")).getHashedMessage());
+    }
+
+    @Test
+    public void hashIsStoredAsBinary() {
+        SHA1Hash hash = hashingFunction.apply("something1");
+        service.save(Arrays.asList(ModelHashAccession.of(TestModel.of("something1"), hash, "a1")));
+        testEntityManager.flush();
+
+        byte[] storedHash = new JdbcTemplate(dataSource).queryForObject(
+                "SELECT hashed_message FROM test_binary_hash_entity WHERE accession = 'a1'", byte[].class);
+        assertArrayEquals(hash.toBytes(), storedHash);
+    }
+
+}
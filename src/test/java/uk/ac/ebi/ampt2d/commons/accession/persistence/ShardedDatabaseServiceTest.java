@@ -0,0 +1,211 @@
+/*
+ *
+ * Copyright 2018 EMBL - European Bioinformatics Institute
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package uk.ac.ebi.ampt2d.commons.accession.persistence;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabase;
+import uk.ac.ebi.ampt2d.commons.accession.core.BasicAccessioningService;
+import uk.ac.ebi.ampt2d.commons.accession.core.SaveResponse;
+import uk.ac.ebi.ampt2d.commons.accession.generators.ModelHashAccession;
+import uk.ac.ebi.ampt2d.commons.accession.generators.SingleAccessionGenerator;
+import uk.ac.ebi.ampt2d.commons.accession.generators.exceptions.AccessionCouldNotBeGeneratedException;
+import uk.ac.ebi.ampt2d.commons.accession.core.BasicAccessioningServiceSaveDelegate;
+import uk.ac.ebi.ampt2d.commons.accession.hashing.SHA1BinaryHashingFunction;
+import uk.ac.ebi.ampt2d.commons.accession.hashing.SHA1Hash;
+import uk.ac.ebi.ampt2d.test.TestModel;
+import uk.ac.ebi.ampt2d.test.persistence.TestEmbeddedDatabases;
+import uk.ac.ebi.ampt2d.test.service.TestInMemoryDatabaseService;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static uk.ac.ebi.ampt2d.test.persistence.TestEmbeddedDatabases.createDatabase;
+import static uk.ac.ebi.ampt2d.test.persistence.TestEmbeddedDatabases.getDatabaseService;
+import static uk.ac.ebi.ampt2d.test.persistence.TestEmbeddedDatabases.insert;
+import static uk.ac.ebi.ampt2d.test.service.TestInMemoryDatabaseService.getObjects;
+
+public class ShardedDatabaseServiceTest {
+
+    private static final int SHARDS = 3;
+
+    private List<EmbeddedDatabase> databases;
+
+    private List<JdbcTemplate> shards;
+
+    private ExecutorService executor;
+
+    private ShardedDatabaseService<TestModel, String, String> service;
+
+    @Before
+    public void setUp() {
+        databases = new ArrayList<>();
+        shards = new ArrayList<>();
+        for (int i = 0; i < SHARDS; i++) {
+            EmbeddedDatabase database = createDatabase();
+            databases.add(database);
+            shards.add(new JdbcTemplate(database));
+        }
+        executor = Executors.newFixedThreadPool(SHARDS);
+        service = newService();
+    }
+
+    @After
+    public void tearDown() {
+        executor.shutdown();
+        databases.forEach(EmbeddedDatabase::shutdown);
+    }
+
+    private ShardedDatabaseService<TestModel, String, String> newService() {
+        List<DatabaseService<TestModel, String, String>> shardServices = new ArrayList<>();
+        for (JdbcTemplate shard : shards) {
+            shardServices.add(getDatabaseService(shard));
+        }
+        return new ShardedDatabaseService<>(shardServices, executor, hash -> Integer.parseInt(hash.substring(1)),
+                100);
+    }
+
+    private int count(int shard) {
+        return TestEmbeddedDatabases.count(shards.get(shard));
+    }
+
+    private void saveSixObjects() {
+        List<ModelHashAccession<TestModel, String, String>> objects = new ArrayList<>();
+        for (int i = 0; i < 6; i++) {
+            objects.add(ModelHashAccession.of(TestModel.of("something" + i), "h" + i, "a" + i));
+        }
+        service.save(objects);
+    }
+
+    @Test
+    public void testObjectsArePartitionedByHash() {
+        saveSixObjects();
+
+        for (int shard = 0; shard < SHARDS; shard++) {
+            assertEquals(2, count(shard));
+        }
+        assertEquals("a4", shards.get(1).queryForObject(
+                "SELECT accession FROM test_entity WHERE hashed_message = 'h4'", String.class));
+    }
+
+    @Test
+    public void testFindAcrossShards() {
+        saveSixObjects();
+
+        Map<String, String> hashToAccession = service.getExistingAccessions(Arrays.asList("h0", "h1", "h5", "h7"));
+        assertEquals(3, hashToAccession.size());
+        assertEquals("a5", hashToAccession.get("h5"));
+
+        Map<String, TestModel> accessionsToModels = service.findAllAccessionsByHash(Arrays.asList("h2", "h3"));
+        assertEquals(2, accessionsToModels.size());
+        assertEquals("something3", accessionsToModels.get("a3").getSomething());
+    }
+
+    @Test
+    public void testFindByAccessionsWithoutDirectoryQueriesAllShards() {
+        saveSixObjects();
+
+        Map<String, TestModel> accessionsToModels = newService().findAllAccessionMappingsByAccessions(
+                Arrays.asList("a0", "a4", "a5", "a6"));
+        assertEquals(3, accessionsToModels.size());
+        assertEquals("something4", accessionsToModels.get("a4").getSomething());
+    }
+
+    @Test
+    public void testFindByAccessionsIsRoutedThroughTheDirectory() {
+        saveSixObjects();
+        insert(shards.get(2), "a4", "other", "otherShard");
+
+        assertEquals("something4", service.findAllAccessionMappingsByAccessions(Arrays.asList("a4")).get("a4")
+                .getSomething());
+    }
+
+    @Test
+    public void testInsertIfAbsentReportsTheObjectsStoredInEachShard() {
+        insert(shards.get(1), "existing", "h1", "something1");
+
+        SaveResponse<String, TestModel> response = service.insertIfAbsent(Arrays.asList(
+                ModelHashAccession.of(TestModel.of("something0"), "h0", "a0"),
+                ModelHashAccession.of(TestModel.of("something1"), "h1", "a1"),
+                ModelHashAccession.of(TestModel.of("something2"), "h2", "a2"),
+                ModelHashAccession.of(TestModel.of("something4"), "h4", "a4")));
+
+        assertEquals(3, response.getSavedAccessions().size());
+        assertEquals(1, response.getUnsavedAccessions().size());
+        assertEquals("something1", response.getUnsavedAccessions().get("a1").getSomething());
+        assertEquals(1, count(0));
+        assertEquals(2, count(1));
+        assertEquals(1, count(2));
+    }
+
+    @Test
+    public void testAccessioning() throws AccessionCouldNotBeGeneratedException {
+        BasicAccessioningService<TestModel, String, String> accessioningService = new BasicAccessioningService<>(
+                SingleAccessionGenerator.ofHashAccessionGenerator(TestModel::getSomething, s -> "id-" + s),
+                service,
+                TestModel::getSomething,
+                s -> "h" + s.length());
+        insert(shards.get(0), "id-other", "h3", "abc");
+
+        Map<String, TestModel> accessions = accessioningService.getOrCreateAccessions(Arrays.asList(
+                TestModel.of("a"), TestModel.of("ab"), TestModel.of("abc"), TestModel.of("abcd")));
+
+        assertEquals(4, accessions.size());
+        assertEquals("abc", accessions.get("id-other").getSomething());
+        assertEquals(4, count(0) + count(1) + count(2));
+        assertEquals(2, accessioningService.getByAccessions(Arrays.asList("id-a", "id-abcd")).size());
+    }
+
+    @Test
+    public void testShardsAreSavedWithTheirOwnSaveStrategies() {
+        List<TestInMemoryDatabaseService> shardServices = Arrays.asList(new TestInMemoryDatabaseService(),
+                new TestInMemoryDatabaseService());
+        ShardedDatabaseService<TestModel, String, String> shardedService = new ShardedDatabaseService<>(
+                shardServices, null, hash -> Integer.parseInt(hash.substring(1)), 100, shard -> {
+            BasicAccessioningServiceSaveDelegate<TestModel, String, String> delegate =
+                    new BasicAccessioningServiceSaveDelegate<>(shard);
+            delegate.setMaxRowsPerTransaction(2);
+            return delegate;
+        });
+
+        SaveResponse<String, TestModel> response = shardedService.insertIfAbsent(getObjects(0, 10));
+
+        assertEquals(10, response.getSavedAccessions().size());
+        assertEquals(3, shardServices.get(0).getSaves());
+        assertEquals(3, shardServices.get(1).getSaves());
+    }
+
+    @Test
+    public void testStableShardFunctions() {
+        assertEquals(3272, ShardedDatabaseService.ofStrings().applyAsInt("h0"));
+        SHA1Hash hash = SHA1Hash.fromHex("0000000A" + "FFFFFFFF" + "FFFFFFFF" + "FFFFFFFF" + "FFFFFFFF");
+        assertEquals(10, ShardedDatabaseService.ofSHA1Hashes().applyAsInt(hash));
+        SHA1BinaryHashingFunction hashingFunction = new SHA1BinaryHashingFunction();
+        assertNotEquals(ShardedDatabaseService.ofSHA1Hashes().applyAsInt(hashingFunction.apply("something1")),
+                ShardedDatabaseService.ofSHA1Hashes().applyAsInt(hashingFunction.apply("something2")));
+    }
+
+}
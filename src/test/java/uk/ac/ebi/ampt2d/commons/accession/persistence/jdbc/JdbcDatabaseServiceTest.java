@@ -0,0 +1,214 @@
+/*
+ *
+ * Copyright 2018 EMBL - European Bioinformatics Institute
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package uk.ac.ebi.ampt2d.commons.accession.persistence.jdbc;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.junit4.SpringRunner;
+import uk.ac.ebi.ampt2d.commons.accession.export.AccessionExportSink;
+import uk.ac.ebi.ampt2d.commons.accession.generators.ModelHashAccession;
+import uk.ac.ebi.ampt2d.commons.accession.hashing.SHA1BinaryHashingFunction;
+import uk.ac.ebi.ampt2d.commons.accession.hashing.SHA1Hash;
+import uk.ac.ebi.ampt2d.test.TestModel;
+import uk.ac.ebi.ampt2d.test.configuration.TestDatabaseServiceTestConfiguration;
+
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+@RunWith(SpringRunner.class)
+@DataJpaTest
+@ContextConfiguration(classes = {TestDatabaseServiceTestConfiguration.class})
+public class JdbcDatabaseServiceTest {
+
+    @Autowired
+    private DataSource dataSource;
+
+    private JdbcDatabaseService<TestModel, String, String> service;
+
+    @Before
+    public void setUp() {
+        service = new JdbcDatabaseService<>(new JdbcTemplate(dataSource),
+                new AccessionTableMapping<>("test_entity", "accession", "hashed_message", Arrays.asList("something"),
+                        model -> new Object[]{model.getSomething()},
+                        (resultSet, rowNum) -> TestModel.of(resultSet.getString("something"))),
+                String.class, String.class, 2);
+    }
+
+    @Test
+    public void testFindInEmptyRepository() {
+        assertEquals(0, service.findAllAccessionMappingsByAccessions(Arrays.asList("a1", "a2")).size());
+        assertEquals(0, service.findAllAccessionsByHash(Arrays.asList("h1", "h2")).size());
+        assertEquals(0, service.getExistingAccessions(Arrays.asList("h1", "h2")).size());
+        assertEquals(0, service.getExistingAccessions(Arrays.asList()).size());
+    }
+
+    @Test
+    public void saveUniqueElements() {
+        service.save(Arrays.asList(
+                ModelHashAccession.of(TestModel.of("something1"), "h1", "a1"),
+                ModelHashAccession.of(TestModel.of("something2"), "h2", "a2"),
+                ModelHashAccession.of(TestModel.of("something3"), "h3", "a3"),
+                ModelHashAccession.of(TestModel.of("something4"), "h4", "a4"),
+                ModelHashAccession.of(TestModel.of("something5"), "h5", "a5")
+        ));
+
+        Map<String, TestModel> accessionsToModels = service.findAllAccessionMappingsByAccessions(
+                Arrays.asList("a1", "a2", "a5"));
+        assertEquals(3, accessionsToModels.size());
+        assertEquals("something1", accessionsToModels.get("a1").getSomething());
+        assertEquals("something5", accessionsToModels.get("a5").getSomething());
+
+        Map<String, TestModel> accessionsToModels2 = service.findAllAccessionsByHash(Arrays.asList("h1", "h2"));
+        assertEquals(2, accessionsToModels2.size());
+        assertEquals("something2", accessionsToModels2.get("a2").getSomething());
+
+        Map<String, String> hashToAccession = service.getExistingAccessions(Arrays.asList("h1", "h3", "h6"));
+        assertEquals(2, hashToAccession.size());
+        assertEquals("a1", hashToAccession.get("h1"));
+        assertEquals("a3", hashToAccession.get("h3"));
+    }
+
+    @Test
+    public void saveBinaryHashes() {
+        JdbcDatabaseService<TestModel, SHA1Hash, String> binaryHashService = new JdbcDatabaseService<>(
+                new JdbcTemplate(dataSource),
+                new AccessionTableMapping<>("test_binary_hash_entity", "accession", "hashed_message",
+                        Arrays.asList("something"), model -> new Object[]{model.getSomething()},
+                        (resultSet, rowNum) -> TestModel.of(resultSet.getString("something"))),
+                new SHA1HashColumnConverter(), JdbcColumnConverter.of(String.class), 2);
+        SHA1BinaryHashingFunction hashingFunction = new SHA1BinaryHashingFunction();
+        SHA1Hash hash1 = hashingFunction.apply("something1");
+        SHA1Hash hash2 = hashingFunction.apply("something2");
+        binaryHashService.save(Arrays.asList(
+                ModelHashAccession.of(TestModel.of("something1"), hash1, "a1"),
+                ModelHashAccession.of(TestModel.of("something2"), hash2, "a2"),
+                ModelHashAccession.of(TestModel.of("something3"), hashingFunction.apply("something3"), "a3")));
+
+        Map<SHA1Hash, String> hashToAccession = binaryHashService.getExistingAccessions(
+                Arrays.asList(hash1, hash2, hashingFunction.apply("something4")));
+        assertEquals(2, hashToAccession.size());
+        assertEquals("a1", hashToAccession.get(hash1));
+        assertEquals("a2", hashToAccession.get(hash2));
+        assertEquals("something2", binaryHashService.findAllAccessionsByHash(Arrays.asList(hash2)).get("a2")
+                .getSomething());
+        assertArrayEquals(hash1.toBytes(), new JdbcTemplate(dataSource).queryForObject(
+                "SELECT hashed_message FROM test_binary_hash_entity WHERE accession = 'a1'", byte[].class));
+    }
+
+    @Test
+    public void testStreamHashes() {
+        service.save(Arrays.asList(
+                ModelHashAccession.of(TestModel.of("something1"), "h1", "a1"),
+                ModelHashAccession.of(TestModel.of("something2"), "h2", "a2"),
+                ModelHashAccession.of(TestModel.of("something3"), "h3", "a3")));
+        service.setExportFetchSize(2);
+
+        List<String> hashes;
+        try (Stream<String> hashStream = service.streamHashes()) {
+            hashes = hashStream.sorted().collect(Collectors.toList());
+        }
+        assertEquals(Arrays.asList("h1", "h2", "h3"), hashes);
+        assertEquals(3, service.countHashes());
+    }
+
+    @Test(expected = DataIntegrityViolationException.class)
+    public void saveNonUniqueElements() {
+        service.save(Arrays.asList(
+                ModelHashAccession.of(TestModel.of("something1"), "h1", "a1"),
+                ModelHashAccession.of(TestModel.of("something2"), "h1", "a2"),
+                ModelHashAccession.of(TestModel.of("something3"), "h3", "a3")
+        ));
+    }
+
+    @Test
+    public void testExportInPages() throws IOException {
+        saveObjects(7);
+        service.setExportPageSize(3);
+        List<String> exported = new ArrayList<>();
+        List<String> pageEnds = new ArrayList<>();
+
+        String lastAccession = service.export(null, new AccessionExportSink<TestModel, String, String>() {
+            @Override
+            public void write(ModelHashAccession<TestModel, String, String> object) {
+                exported.add(object.accession() + "/" + object.hash() + "/" + object.model().getSomething());
+            }
+
+            @Override
+            public void endPage(String lastAccession) {
+                pageEnds.add(lastAccession);
+            }
+        });
+
+        assertEquals("a7", lastAccession);
+        assertEquals(Arrays.asList("a1/h1/something1", "a2/h2/something2", "a3/h3/something3", "a4/h4/something4",
+                "a5/h5/something5", "a6/h6/something6", "a7/h7/something7"), exported);
+        assertEquals(Arrays.asList("a3", "a6", "a7"), pageEnds);
+    }
+
+    @Test
+    public void testResumeExport() throws IOException {
+        saveObjects(5);
+        service.setExportPageSize(2);
+        List<String> exported = new ArrayList<>();
+
+        assertEquals("a5", service.export("a3", object -> exported.add(object.accession())));
+        assertEquals(Arrays.asList("a4", "a5"), exported);
+        assertEquals("a5", service.export("a5", object -> exported.add(object.accession())));
+        assertEquals(2, exported.size());
+    }
+
+    @Test
+    public void testExportEmptyTable() throws IOException {
+        assertNull(service.export(null, object -> {
+            throw new AssertionError("Nothing to export");
+        }));
+    }
+
+    @Test(expected = IOException.class)
+    public void testExportSinkFailure() throws IOException {
+        saveObjects(2);
+        service.export(null, object -> {
+            throw new IOException("Sink failure");
+        });
+    }
+
+    private void saveObjects(int objects) {
+        List<ModelHashAccession<TestModel, String, String>> modelHashAccessions = new ArrayList<>();
+        for (int i = objects; i > 0; i--) {
+            modelHashAccessions.add(ModelHashAccession.of(TestModel.of("something" + i), "h" + i, "a" + i));
+        }
+        service.save(modelHashAccessions);
+    }
+
+}
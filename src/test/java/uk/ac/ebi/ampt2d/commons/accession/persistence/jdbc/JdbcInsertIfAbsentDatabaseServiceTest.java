@@ -0,0 +1,186 @@
+/*
+ *
+ * Copyright 2018 EMBL - European Bioinformatics Institute
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package uk.ac.ebi.ampt2d.commons.accession.persistence.jdbc;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.junit4.SpringRunner;
+import uk.ac.ebi.ampt2d.commons.accession.core.BasicAccessioningService;
+import uk.ac.ebi.ampt2d.commons.accession.core.SaveResponse;
+import uk.ac.ebi.ampt2d.commons.accession.generators.ModelHashAccession;
+import uk.ac.ebi.ampt2d.commons.accession.generators.SingleAccessionGenerator;
+import uk.ac.ebi.ampt2d.commons.accession.generators.exceptions.AccessionCouldNotBeGeneratedException;
+import uk.ac.ebi.ampt2d.commons.accession.persistence.BasicSpringDataRepositoryDatabaseService;
+import uk.ac.ebi.ampt2d.commons.accession.persistence.CachingDatabaseService;
+import uk.ac.ebi.ampt2d.commons.accession.persistence.ChunkedLookupDatabaseService;
+import uk.ac.ebi.ampt2d.commons.accession.persistence.InsertIfAbsentDatabaseService;
+import uk.ac.ebi.ampt2d.test.TestModel;
+import uk.ac.ebi.ampt2d.test.configuration.TestDatabaseServiceTestConfiguration;
+import uk.ac.ebi.ampt2d.test.persistence.TestEntity;
+import uk.ac.ebi.ampt2d.test.persistence.TestRepository;
+
+import javax.sql.DataSource;
+import java.util.Arrays;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.verify;
+
+@RunWith(SpringRunner.class)
+@DataJpaTest
+@ContextConfiguration(classes = {TestDatabaseServiceTestConfiguration.class})
+public class JdbcInsertIfAbsentDatabaseServiceTest {
+
+    @Autowired
+    private DataSource dataSource;
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    @Autowired
+    private TestRepository repository;
+
+    @Autowired
+    private BasicSpringDataRepositoryDatabaseService<TestModel, TestEntity, String, String> databaseService;
+
+    private JdbcInsertIfAbsentDatabaseService<TestModel, String, String> service;
+
+    @Before
+    public void setUp() {
+        service = new JdbcInsertIfAbsentDatabaseService<>(databaseService, new JdbcTemplate(dataSource),
+                new AccessionTableMapping<>("test_entity", "accession", "hashed_message",
+                        Arrays.asList("something"), model -> new Object[]{model.getSomething()}));
+    }
+
+    @Test
+    public void testInsertIfAbsent() {
+        entityManager.persistAndFlush(new TestEntity("a1", "h1", "something1"));
+        entityManager.persistAndFlush(new TestEntity("a2", "h2", "something2"));
+
+        SaveResponse<String, TestModel> response = service.insertIfAbsent(Arrays.asList(
+                ModelHashAccession.of(TestModel.of("something1"), "h1", "a1"),
+                ModelHashAccession.of(TestModel.of("something2"), "h2", "a-other"),
+                ModelHashAccession.of(TestModel.of("something3"), "h3", "a3"),
+                ModelHashAccession.of(TestModel.of("something4"), "h4", "a4"),
+                ModelHashAccession.of(TestModel.of("something4"), "h4", "a4-duplicate")));
+
+        assertEquals(2, response.getSavedAccessions().size());
+        assertTrue(response.getSavedAccessions().keySet().containsAll(Arrays.asList("a3", "a4")));
+        assertEquals(3, response.getUnsavedAccessions().size());
+        assertTrue(response.getUnsavedAccessions().keySet().containsAll(Arrays.asList("a1", "a-other",
+                "a4-duplicate")));
+
+        Map<String, String> hashToAccession = service.getExistingAccessions(Arrays.asList("h1", "h2", "h3", "h4"));
+        assertEquals(4, hashToAccession.size());
+        assertEquals("a2", hashToAccession.get("h2"));
+        assertEquals("a4", hashToAccession.get("h4"));
+        assertEquals("something3", repository.findOne("a3").getSomething());
+    }
+
+    @Test
+    public void testInsertIfAbsentSkipsExistingAccession() {
+        entityManager.persistAndFlush(new TestEntity("a1", "h1", "something1"));
+
+        SaveResponse<String, TestModel> response = service.insertIfAbsent(Arrays.asList(
+                ModelHashAccession.of(TestModel.of("something2"), "h2", "a1")));
+
+        assertEquals(0, response.getSavedAccessions().size());
+        assertEquals(1, response.getUnsavedAccessions().size());
+        assertEquals(0, service.getExistingAccessions(Arrays.asList("h2")).size());
+    }
+
+    @Test
+    public void testInsertIfAbsentSelectingFromDual() {
+        JdbcInsertIfAbsentDatabaseService<TestModel, String, String> dualService =
+                new JdbcInsertIfAbsentDatabaseService<TestModel, String, String>(databaseService,
+                        new JdbcTemplate(dataSource), service.getTableMapping()) {
+                    @Override
+                    protected String getSelectFromClause() {
+                        return " FROM DUAL";
+                    }
+                };
+        entityManager.persistAndFlush(new TestEntity("a1", "h1", "something1"));
+
+        SaveResponse<String, TestModel> response = dualService.insertIfAbsent(Arrays.asList(
+                ModelHashAccession.of(TestModel.of("something1"), "h1", "a1"),
+                ModelHashAccession.of(TestModel.of("something2"), "h2", "a2")));
+
+        assertEquals(1, response.getSavedAccessions().size());
+        assertEquals(1, response.getUnsavedAccessions().size());
+        assertEquals("something2", repository.findOne("a2").getSomething());
+    }
+
+    @Test
+    public void testAccessioningWithInsertIfAbsent() throws AccessionCouldNotBeGeneratedException {
+        BasicAccessioningService<TestModel, String, String> accessioningService = new BasicAccessioningService<>(
+                SingleAccessionGenerator.ofHashAccessionGenerator(TestModel::getSomething, s -> "id-" + s),
+                service,
+                TestModel::getSomething,
+                s -> s);
+        entityManager.persistAndFlush(new TestEntity("id-other", "insert-test-2", "insert-test-2"));
+
+        Map<String, TestModel> accessions = accessioningService.getOrCreateAccessions(Arrays.asList(
+                TestModel.of("insert-test-1"),
+                TestModel.of("insert-test-2"),
+                TestModel.of("insert-test-3")));
+
+        assertEquals(3, accessions.size());
+        assertEquals("insert-test-2", accessions.get("id-other").getSomething());
+        assertEquals(3, repository.count());
+    }
+
+    @Test
+    public void testAccessioningWithInsertIfAbsentThroughDecorators() throws AccessionCouldNotBeGeneratedException {
+        JdbcInsertIfAbsentDatabaseService<TestModel, String, String> spiedService = spy(service);
+        CachingDatabaseService<TestModel, String, String> decoratedService = new CachingDatabaseService<>(
+                new ChunkedLookupDatabaseService<>(spiedService, 10), 100);
+        BasicAccessioningService<TestModel, String, String> accessioningService = new BasicAccessioningService<>(
+                SingleAccessionGenerator.ofHashAccessionGenerator(TestModel::getSomething, s -> "id-" + s),
+                decoratedService,
+                TestModel::getSomething,
+                s -> s);
+
+        Map<String, TestModel> accessions = accessioningService.getOrCreateAccessions(Arrays.asList(
+                TestModel.of("decorated-1"),
+                TestModel.of("decorated-2")));
+
+        assertEquals(2, accessions.size());
+        assertEquals(2, repository.count());
+        verify(spiedService).insertIfAbsent(any());
+        verify(spiedService, never()).save(any());
+    }
+
+    @Test
+    public void testDecoratorsSupportInsertIfAbsentOnlyIfTheDecoratedServiceDoes() {
+        assertTrue(InsertIfAbsentDatabaseService.canInsertIfAbsent(new CachingDatabaseService<>(service, 10)));
+        assertFalse(InsertIfAbsentDatabaseService.canInsertIfAbsent(
+                new CachingDatabaseService<>(databaseService, 10)));
+    }
+
+}
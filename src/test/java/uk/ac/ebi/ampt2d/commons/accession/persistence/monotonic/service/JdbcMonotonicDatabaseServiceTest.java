@@ -0,0 +1,95 @@
+/*
+ *
+ * Copyright 2018 EMBL - European Bioinformatics Institute
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package uk.ac.ebi.ampt2d.commons.accession.persistence.monotonic.service;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.junit4.SpringRunner;
+import uk.ac.ebi.ampt2d.commons.accession.core.BasicMonotonicAccessioningService;
+import uk.ac.ebi.ampt2d.commons.accession.generators.ModelHashAccession;
+import uk.ac.ebi.ampt2d.commons.accession.generators.exceptions.AccessionCouldNotBeGeneratedException;
+import uk.ac.ebi.ampt2d.commons.accession.generators.monotonic.MonotonicAccessionGenerator;
+import uk.ac.ebi.ampt2d.commons.accession.generators.monotonic.MonotonicRange;
+import uk.ac.ebi.ampt2d.commons.accession.hashing.SHA1HashingFunction;
+import uk.ac.ebi.ampt2d.commons.accession.persistence.jdbc.AccessionTableMapping;
+import uk.ac.ebi.ampt2d.test.TestModel;
+import uk.ac.ebi.ampt2d.test.configuration.TestMonotonicDatabaseServiceTestConfiguration;
+
+import javax.sql.DataSource;
+import java.util.Arrays;
+import java.util.Map;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+@RunWith(SpringRunner.class)
+@DataJpaTest
+@ContextConfiguration(classes = {TestMonotonicDatabaseServiceTestConfiguration.class})
+public class JdbcMonotonicDatabaseServiceTest {
+
+    @Autowired
+    private DataSource dataSource;
+
+    @Autowired
+    private MonotonicAccessionGenerator<TestModel> monotonicAccessionGenerator;
+
+    private JdbcMonotonicDatabaseService<TestModel, String> service;
+
+    @Before
+    public void setUp() {
+        service = new JdbcMonotonicDatabaseService<>(new JdbcTemplate(dataSource),
+                new AccessionTableMapping<>("test_monotonic_entity", "accession", "hashed_message",
+                        Arrays.asList("something"), model -> new Object[]{model.getSomething()},
+                        (resultSet, rowNum) -> TestModel.of(resultSet.getString("something"))),
+                String.class);
+    }
+
+    @Test
+    public void testGetAccessionsInRanges() {
+        service.save(Arrays.asList(
+                ModelHashAccession.of(TestModel.of("something1"), "h1", 5L),
+                ModelHashAccession.of(TestModel.of("something2"), "h2", 1L),
+                ModelHashAccession.of(TestModel.of("something3"), "h3", 12L),
+                ModelHashAccession.of(TestModel.of("something4"), "h4", 20L)));
+
+        assertArrayEquals(new long[]{1, 5, 20}, service.getAccessionsInRanges(Arrays.asList(
+                new MonotonicRange(0, 10), new MonotonicRange(15, 30))));
+        assertEquals(0, service.getAccessionsInRanges(Arrays.asList(new MonotonicRange(100, 200))).length);
+    }
+
+    @Test
+    public void testAccessioning() throws AccessionCouldNotBeGeneratedException {
+        BasicMonotonicAccessioningService<TestModel, String> accessioningService =
+                new BasicMonotonicAccessioningService<>(monotonicAccessionGenerator, service,
+                        TestModel::getSomething, new SHA1HashingFunction());
+
+        Map<Long, TestModel> accessions = accessioningService.getOrCreateAccessions(Arrays.asList(
+                TestModel.of("jdbc-1"), TestModel.of("jdbc-2"), TestModel.of("jdbc-3")));
+
+        assertEquals(3, accessions.size());
+        assertEquals(accessions.keySet(), accessioningService.getAccessions(Arrays.asList(
+                TestModel.of("jdbc-1"), TestModel.of("jdbc-2"), TestModel.of("jdbc-3"))).keySet());
+        assertEquals(3, service.getAccessionsInRanges(Arrays.asList(new MonotonicRange(0, 10000))).length);
+    }
+
+}
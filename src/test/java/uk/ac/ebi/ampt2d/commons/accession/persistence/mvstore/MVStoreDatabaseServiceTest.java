@@ -0,0 +1,181 @@
+/*
+ *
+ * Copyright 2018 EMBL - European Bioinformatics Institute
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package uk.ac.ebi.ampt2d.commons.accession.persistence.mvstore;
+
+import org.h2.mvstore.MVStore;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.springframework.dao.DataIntegrityViolationException;
+import uk.ac.ebi.ampt2d.commons.accession.generators.ModelHashAccession;
+import uk.ac.ebi.ampt2d.test.TestModel;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class MVStoreDatabaseServiceTest {
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    private String fileName;
+
+    private MVStore store;
+
+    private MVStoreDatabaseService<TestModel, String, String> service;
+
+    @Before
+    public void setUp() throws IOException {
+        fileName = temporaryFolder.newFile().getAbsolutePath();
+        openService();
+    }
+
+    @After
+    public void tearDown() {
+        store.close();
+    }
+
+    private void openService() {
+        store = new MVStore.Builder().fileName(fileName).autoCommitDisabled().open();
+        service = new MVStoreDatabaseService<>(store, TestModel::getSomething, value -> TestModel.of((String) value));
+    }
+
+    @Test
+    public void testFindInEmptyStore() {
+        assertEquals(0, service.findAllAccessionMappingsByAccessions(Arrays.asList("a1", "a2")).size());
+        assertEquals(0, service.findAllAccessionsByHash(Arrays.asList("h1", "h2")).size());
+        assertEquals(0, service.getExistingAccessions(Arrays.asList("h1", "h2")).size());
+    }
+
+    @Test
+    public void saveUniqueElements() {
+        service.save(Arrays.asList(
+                ModelHashAccession.of(TestModel.of("something1"), "h1", "a1"),
+                ModelHashAccession.of(TestModel.of("something2"), "h2", "a2"),
+                ModelHashAccession.of(TestModel.of("something3"), "h3", "a3")
+        ));
+
+        Map<String, TestModel> accessionsToModels = service.findAllAccessionMappingsByAccessions(
+                Arrays.asList("a1", "a2", "a4"));
+        assertEquals(2, accessionsToModels.size());
+        assertEquals("something1", accessionsToModels.get("a1").getSomething());
+        assertEquals("something2", accessionsToModels.get("a2").getSomething());
+
+        Map<String, TestModel> accessionsToModels2 = service.findAllAccessionsByHash(Arrays.asList("h2", "h3"));
+        assertEquals(2, accessionsToModels2.size());
+        assertEquals("something3", accessionsToModels2.get("a3").getSomething());
+
+        Map<String, String> hashToAccession = service.getExistingAccessions(Arrays.asList("h1", "h3", "h4"));
+        assertEquals(2, hashToAccession.size());
+        assertEquals("a1", hashToAccession.get("h1"));
+        assertEquals("a3", hashToAccession.get("h3"));
+    }
+
+    @Test
+    public void testSavedElementsArePersisted() {
+        service.save(Arrays.asList(ModelHashAccession.of(TestModel.of("something1"), "h1", "a1")));
+        store.close();
+        openService();
+
+        assertEquals("a1", service.getExistingAccessions(Arrays.asList("h1")).get("h1"));
+        assertEquals("something1", service.findAllAccessionsByHash(Arrays.asList("h1")).get("a1").getSomething());
+    }
+
+    @Test
+    public void saveNonUniqueHashes() {
+        service.save(Arrays.asList(ModelHashAccession.of(TestModel.of("something1"), "h1", "a1")));
+        assertSaveFails(Arrays.asList(ModelHashAccession.of(TestModel.of("something2"), "h2", "a2"),
+                ModelHashAccession.of(TestModel.of("something3"), "h1", "a3")));
+        assertSaveFails(Arrays.asList(ModelHashAccession.of(TestModel.of("something2"), "h2", "a2"),
+                ModelHashAccession.of(TestModel.of("something3"), "h2", "a3")));
+    }
+
+    @Test
+    public void saveNonUniqueAccessions() {
+        service.save(Arrays.asList(ModelHashAccession.of(TestModel.of("something1"), "h1", "a1")));
+        assertSaveFails(Arrays.asList(ModelHashAccession.of(TestModel.of("something2"), "h2", "a2"),
+                ModelHashAccession.of(TestModel.of("something3"), "h3", "a1")));
+        assertSaveFails(Arrays.asList(ModelHashAccession.of(TestModel.of("something2"), "h2", "a2"),
+                ModelHashAccession.of(TestModel.of("something3"), "h3", "a2")));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testStoreWithAutoCommitIsRejected() throws IOException {
+        MVStore autoCommitStore = new MVStore.Builder().fileName(temporaryFolder.newFile().getAbsolutePath()).open();
+        try {
+            new MVStoreDatabaseService<>(autoCommitStore, TestModel::getSomething,
+                    value -> TestModel.of((String) value));
+        } finally {
+            autoCommitStore.close();
+        }
+    }
+
+    @Test
+    public void testRollbackDoesNotDiscardSavesOfServicesSharingTheStore() throws InterruptedException {
+        MVStoreDatabaseService<TestModel, String, String> failingService = new MVStoreDatabaseService<>(store,
+                "failing", model -> {
+            if (model.getSomething().startsWith("fail")) {
+                throw new IllegalStateException("The model cannot be stored");
+            }
+            return model.getSomething();
+        }, value -> TestModel.of((String) value));
+        Thread failingSaves = new Thread(() -> {
+            for (int i = 0; i < 1000; i++) {
+                try {
+                    failingService.save(Arrays.asList(
+                            ModelHashAccession.of(TestModel.of("ok" + i), "failing-h" + i, "failing-a" + i),
+                            ModelHashAccession.of(TestModel.of("fail" + i), "failing-h-" + i, "failing-a-" + i)));
+                } catch (IllegalStateException e) {
+                    // Expected, the save is rolled back
+                }
+            }
+        });
+        failingSaves.start();
+        for (int i = 0; i < 1000; i++) {
+            service.save(Arrays.asList(ModelHashAccession.of(TestModel.of("something" + i), "h" + i, "a" + i)));
+        }
+        failingSaves.join();
+
+        List<String> hashes = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            hashes.add("h" + i);
+        }
+        assertEquals(1000, service.getExistingAccessions(hashes).size());
+        assertTrue(failingService.getExistingAccessions(Arrays.asList("failing-h0", "failing-h999")).isEmpty());
+    }
+
+    private void assertSaveFails(List<ModelHashAccession<TestModel, String, String>> objects) {
+        try {
+            service.save(objects);
+            fail("The save should have failed");
+        } catch (DataIntegrityViolationException e) {
+            assertEquals(1, service.getExistingAccessions(Arrays.asList("h1", "h2", "h3")).size());
+            assertEquals(1, service.findAllAccessionMappingsByAccessions(Arrays.asList("a1", "a2", "a3")).size());
+        }
+    }
+
+}
@@ -0,0 +1,59 @@
+/*
+ *
+ * Copyright 2018 EMBL - European Bioinformatics Institute
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package uk.ac.ebi.ampt2d.commons.accession.utils;
+
+import org.junit.Test;
+
+import java.util.stream.IntStream;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class BloomFilterTest {
+
+    @Test
+    public void testNoFalseNegatives() {
+        BloomFilter<String> filter = BloomFilter.ofStringRepresentation(1000, 0.01);
+        IntStream.range(0, 1000).forEach(i -> filter.add("element-" + i));
+
+        IntStream.range(0, 1000).forEach(i -> assertTrue(filter.mightContain("element-" + i)));
+    }
+
+    @Test
+    public void testFalsePositiveProbability() {
+        BloomFilter<String> filter = BloomFilter.ofStringRepresentation(10000, 0.01);
+        IntStream.range(0, 10000).forEach(i -> filter.add("element-" + i));
+
+        long falsePositives = IntStream.range(0, 10000).filter(i -> filter.mightContain("other-" + i)).count();
+        assertTrue("False positives: " + falsePositives, falsePositives < 200);
+    }
+
+    @Test
+    public void testSizing() {
+        BloomFilter<String> filter = BloomFilter.ofStringRepresentation(1000, 0.01);
+
+        assertEquals(9600, filter.getNumberOfBits());
+        assertEquals(7, filter.getNumberOfHashFunctions());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidFalsePositiveProbability() {
+        BloomFilter.ofStringRepresentation(1000, 1);
+    }
+
+}
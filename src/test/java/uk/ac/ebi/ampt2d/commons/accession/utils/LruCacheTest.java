@@ -0,0 +1,76 @@
+/*
+ *
+ * Copyright 2018 EMBL - European Bioinformatics Institute
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package uk.ac.ebi.ampt2d.commons.accession.utils;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+public class LruCacheTest {
+
+    @Test
+    public void testGetCountsHitsAndMisses() {
+        LruCache<String, String> cache = new LruCache<>(10);
+        cache.put("k1", "v1");
+
+        assertEquals("v1", cache.get("k1"));
+        assertNull(cache.get("k2"));
+        assertEquals(1, cache.getHits());
+        assertEquals(1, cache.getMisses());
+    }
+
+    @Test
+    public void testEvictLeastRecentlyUsed() {
+        LruCache<String, String> cache = new LruCache<>(2);
+        cache.put("k1", "v1");
+        cache.put("k2", "v2");
+        cache.get("k1");
+        cache.put("k3", "v3");
+
+        assertEquals(2, cache.size());
+        assertEquals(1, cache.getEvictions());
+        assertEquals("v1", cache.get("k1"));
+        assertNull(cache.get("k2"));
+        assertEquals("v3", cache.get("k3"));
+    }
+
+    @Test
+    public void testEvictByWeight() {
+        LruCache<String, String> cache = new LruCache<>(10, String::length);
+        cache.put("k1", "1234");
+        cache.put("k2", "1234");
+        cache.put("k3", "123");
+
+        assertEquals(2, cache.size());
+        assertEquals(7, cache.getWeight());
+        assertEquals(1, cache.getEvictions());
+        assertNull(cache.get("k1"));
+    }
+
+    @Test
+    public void testReplacedValuesUpdateWeight() {
+        LruCache<String, String> cache = new LruCache<>(10, String::length);
+        cache.put("k1", "1234");
+        cache.put("k1", "12");
+
+        assertEquals(1, cache.size());
+        assertEquals(2, cache.getWeight());
+    }
+
+}
@@ -0,0 +1,67 @@
+/*
+ *
+ * Copyright 2018 EMBL - European Bioinformatics Institute
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package uk.ac.ebi.ampt2d.test.persistence;
+
+import uk.ac.ebi.ampt2d.commons.accession.generators.ModelHashAccession;
+import uk.ac.ebi.ampt2d.commons.accession.hashing.SHA1Hash;
+import uk.ac.ebi.ampt2d.commons.accession.persistence.SHA1HashConverter;
+import uk.ac.ebi.ampt2d.test.TestModel;
+
+import javax.persistence.Column;
+import javax.persistence.Convert;
+import javax.persistence.Entity;
+import javax.persistence.Id;
+
+/**
+ * Entity whose hashed message is stored in a binary column.
+ */
+@Entity
+public class TestBinaryHashEntity implements TestModel {
+
+    @Id
+    private String accession;
+
+    @Column(nullable = false, unique = true, columnDefinition = "BINARY(20)")
+    @Convert(converter = SHA1HashConverter.class)
+    private SHA1Hash hashedMessage;
+
+    private String something;
+
+    TestBinaryHashEntity() {
+    }
+
+    public TestBinaryHashEntity(ModelHashAccession<TestModel, SHA1Hash, String> triple) {
+        this.accession = triple.accession();
+        this.hashedMessage = triple.hash();
+        this.something = triple.model().getSomething();
+    }
+
+    public String getAccession() {
+        return accession;
+    }
+
+    public SHA1Hash getHashedMessage() {
+        return hashedMessage;
+    }
+
+    @Override
+    public String getSomething() {
+        return something;
+    }
+
+}
@@ -0,0 +1,67 @@
+/*
+ *
+ * Copyright 2018 EMBL - European Bioinformatics Institute
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package uk.ac.ebi.ampt2d.test.persistence;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabase;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseBuilder;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseType;
+import uk.ac.ebi.ampt2d.commons.accession.persistence.jdbc.AccessionTableMapping;
+import uk.ac.ebi.ampt2d.commons.accession.persistence.jdbc.JdbcDatabaseService;
+import uk.ac.ebi.ampt2d.test.TestModel;
+
+import java.util.Arrays;
+
+/**
+ * Independent embedded H2 databases with the table of {@link TestEntity}, to test services that use several
+ * databases, like shards or read replicas.
+ */
+public class TestEmbeddedDatabases {
+
+    private TestEmbeddedDatabases() {
+    }
+
+    /**
+     * @return New database with an empty "test_entity" table, to be shut down by the caller
+     */
+    public static EmbeddedDatabase createDatabase() {
+        EmbeddedDatabase database = new EmbeddedDatabaseBuilder().setType(EmbeddedDatabaseType.H2)
+                .generateUniqueName(true).build();
+        new JdbcTemplate(database).execute("CREATE TABLE test_entity (accession VARCHAR(255) PRIMARY KEY, " +
+                "hashed_message VARCHAR(255) NOT NULL UNIQUE, something VARCHAR(255))");
+        return database;
+    }
+
+    public static JdbcDatabaseService<TestModel, String, String> getDatabaseService(JdbcTemplate jdbcTemplate) {
+        return new JdbcDatabaseService<>(jdbcTemplate,
+                new AccessionTableMapping<>("test_entity", "accession", "hashed_message", Arrays.asList("something"),
+                        model -> new Object[]{model.getSomething()},
+                        (resultSet, rowNum) -> TestModel.of(resultSet.getString("something"))),
+                String.class, String.class);
+    }
+
+    public static void insert(JdbcTemplate jdbcTemplate, String accession, String hash, String something) {
+        jdbcTemplate.update("INSERT INTO test_entity (accession, hashed_message, something) VALUES (?, ?, ?)",
+                accession, hash, something);
+    }
+
+    public static int count(JdbcTemplate jdbcTemplate) {
+        return jdbcTemplate.queryForObject("SELECT COUNT(*) FROM test_entity", Integer.class);
+    }
+
+}
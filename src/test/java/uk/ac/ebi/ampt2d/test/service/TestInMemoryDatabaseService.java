@@ -0,0 +1,122 @@
+/*
+ *
+ * Copyright 2018 EMBL - European Bioinformatics Institute
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package uk.ac.ebi.ampt2d.test.service;
+
+import org.springframework.dao.DataIntegrityViolationException;
+import uk.ac.ebi.ampt2d.commons.accession.generators.ModelHashAccession;
+import uk.ac.ebi.ampt2d.commons.accession.persistence.DatabaseService;
+import uk.ac.ebi.ampt2d.test.TestModel;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * In memory database service that keeps count of the queries and saves it receives, to test decorators of
+ * {@link DatabaseService} and save strategies without a real database.
+ */
+public class TestInMemoryDatabaseService implements DatabaseService<TestModel, String, String> {
+
+    private final Map<String, String> hashToAccession = new HashMap<>();
+
+    private final Map<String, TestModel> accessionToModel = new HashMap<>();
+
+    private final AtomicInteger hashQueries = new AtomicInteger();
+
+    private final AtomicInteger accessionQueries = new AtomicInteger();
+
+    private final AtomicInteger saves = new AtomicInteger();
+
+    @Override
+    public synchronized Map<String, TestModel> findAllAccessionsByHash(Collection<String> hashes) {
+        hashQueries.incrementAndGet();
+        Map<String, TestModel> result = new HashMap<>();
+        hashes.stream().filter(hashToAccession::containsKey).map(hashToAccession::get)
+                .forEach(accession -> result.put(accession, accessionToModel.get(accession)));
+        return result;
+    }
+
+    @Override
+    public synchronized Map<String, String> getExistingAccessions(Collection<String> hashes) {
+        hashQueries.incrementAndGet();
+        Map<String, String> result = new HashMap<>();
+        hashes.stream().filter(hashToAccession::containsKey)
+                .forEach(hash -> result.put(hash, hashToAccession.get(hash)));
+        return result;
+    }
+
+    @Override
+    public synchronized void save(List<ModelHashAccession<TestModel, String, String>> objects) {
+        saves.incrementAndGet();
+        for (ModelHashAccession<TestModel, String, String> object : objects) {
+            if (hashToAccession.containsKey(object.hash()) || accessionToModel.containsKey(object.accession())) {
+                throw new DataIntegrityViolationException("Duplicated hash or accession");
+            }
+        }
+        for (ModelHashAccession<TestModel, String, String> object : objects) {
+            hashToAccession.put(object.hash(), object.accession());
+            accessionToModel.put(object.accession(), object.model());
+        }
+    }
+
+    @Override
+    public synchronized Map<String, TestModel> findAllAccessionMappingsByAccessions(List<String> accessions) {
+        accessionQueries.incrementAndGet();
+        Map<String, TestModel> result = new HashMap<>();
+        accessions.stream().filter(accessionToModel::containsKey)
+                .forEach(accession -> result.put(accession, accessionToModel.get(accession)));
+        return result;
+    }
+
+    public int getHashQueries() {
+        return hashQueries.get();
+    }
+
+    public int getAccessionQueries() {
+        return accessionQueries.get();
+    }
+
+    public int getSaves() {
+        return saves.get();
+    }
+
+    /**
+     * @return Objects with hashes "h" + i and accessions "a" + i, for i from "from" (inclusive) to "to" (exclusive)
+     */
+    public static List<ModelHashAccession<TestModel, String, String>> getObjects(int from, int to) {
+        return getObjects("", from, to, 1);
+    }
+
+    /**
+     * @return Objects with hashes prefix + "h" + i and accessions prefix + "a" + i, for i from "from" (inclusive) to
+     * "to" (exclusive) with the given step
+     */
+    public static List<ModelHashAccession<TestModel, String, String>> getObjects(String prefix, int from, int to,
+                                                                                  int step) {
+        List<ModelHashAccession<TestModel, String, String>> objects = new ArrayList<>();
+        for (int i = from; i < to; i += step) {
+            objects.add(ModelHashAccession.of(TestModel.of(prefix + "something" + i), prefix + "h" + i,
+                    prefix + "a" + i));
+        }
+        return objects;
+    }
+
+}